@@ -0,0 +1,38 @@
+package com.mindex.challenge.benchmark;
+
+import com.mindex.challenge.ChallengeApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Starts the app for the benchmarks that need its beans: the embedded Mongo, seeded as usual, but no web server and
+ * none of the debug logging, which would otherwise end up in the numbers, unless asked for.
+ */
+public final class BenchmarkContext {
+
+    private BenchmarkContext() {}
+
+    public static ConfigurableApplicationContext start() {
+        return start("WARN");
+    }
+
+    /**
+     * @param logLevel -- the level to log the app's own code at.
+     * @param args -- any more properties, as in "--name=value".
+     */
+    public static ConfigurableApplicationContext start(String logLevel, String... args) {
+        List<String> allArgs = new ArrayList<>(List.of(args));
+        allArgs.add("--mongo.backend=memory");
+        allArgs.add("--bootstrap.async=false");
+        allArgs.add("--logging.level.com.mindex=" + logLevel);
+
+        //Passed as args rather than defaults, so they win over application.properties
+        return new SpringApplicationBuilder(ChallengeApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(allArgs.toArray(new String[0]));
+    }
+}
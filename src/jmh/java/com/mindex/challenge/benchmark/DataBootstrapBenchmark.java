@@ -0,0 +1,66 @@
+package com.mindex.challenge.benchmark;
+
+import com.mindex.challenge.DataBootstrap;
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Seeding the DB from the JSON snapshots and building the org graph from it, same as at start-up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class DataBootstrapBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private DataBootstrap dataBootstrap;
+    private MongoTemplate mongoTemplate;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.start();
+        dataBootstrap = context.getBean(DataBootstrap.class);
+        mongoTemplate = context.getBean(MongoTemplate.class);
+    }
+
+    /**
+     * The bootstrap leaves a DB with data in it alone, so empty it out first. The records are removed rather than the
+     * collections dropped, so the indexes stay put, just like on a real start-up.
+     */
+    @Setup(Level.Invocation)
+    public void emptyDb() {
+        mongoTemplate.remove(new Query(), Employee.class);
+        mongoTemplate.remove(new Query(), Compensation.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public boolean load() {
+        dataBootstrap.init();
+        return dataBootstrap.isReady();
+    }
+}
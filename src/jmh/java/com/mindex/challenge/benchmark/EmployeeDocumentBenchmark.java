@@ -0,0 +1,126 @@
+package com.mindex.challenge.benchmark;
+
+import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.Employee;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading employees back out of the repo, stored with their direct reports as IDs, the way they are now, against
+ * stored the way they were before, with whatever filled out reports they were saved with embedded in full. The sizes
+ * of the documents either way are printed at set up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EmployeeDocumentBenchmark {
+
+    @Param({"ids", "embedded"})
+    private String storage;
+
+    private ConfigurableApplicationContext context;
+    private EmployeeRepository employeeRepository;
+
+    private String rootId;
+    private List<String> managerIds;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        context = BenchmarkContext.start();
+        employeeRepository = context.getBean(EmployeeRepository.class);
+        MongoTemplate mongoTemplate = context.getBean(MongoTemplate.class);
+
+        mongoTemplate.remove(new Query(), Employee.class);
+
+        //1,111 employees, 111 of them managers
+        SyntheticOrg org = SyntheticOrg.generate("documents", 10, 3);
+        rootId = org.getRoot().getEmployeeId();
+        managerIds = new ArrayList<>();
+        for(Employee record : org.getRecords()) {
+            if(!record.getDirectReports().isEmpty()) {
+                managerIds.add(record.getEmployeeId());
+            }
+        }
+
+        if("ids".equals(storage)) {
+            employeeRepository.insert(org.getRecords());
+        } else {
+            //Converted straight to documents, so nothing gets the chance to cut the reports down to their IDs
+            List<Document> documents = new ArrayList<>();
+            for(Employee employee : hydrateAll(org.wire())) {
+                Document document = new Document();
+                mongoTemplate.getConverter().write(employee, document);
+                documents.add(document);
+            }
+            mongoTemplate.getCollection(mongoTemplate.getCollectionName(Employee.class)).insertMany(documents);
+        }
+
+        long totalBytes = 0;
+        long rootBytes = 0;
+        for(RawBsonDocument document : mongoTemplate.getCollection(mongoTemplate.getCollectionName(Employee.class))
+                .withDocumentClass(RawBsonDocument.class).find()) {
+            int bytes = document.getByteBuffer().remaining();
+            totalBytes += bytes;
+            if(rootId.equals(document.getString("_id").getValue())) {
+                rootBytes = bytes;
+            }
+        }
+        System.out.printf("%n[%s] %d employees stored in %d bytes, the root's document is %d bytes%n",
+                storage, org.getRecords().size(), totalBytes, rootBytes);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public Employee read_root() {
+        return employeeRepository.findByEmployeeId(rootId);
+    }
+
+    @Benchmark
+    public List<Employee> read_managers() {
+        return employeeRepository.findByEmployeeIdIn(managerIds);
+    }
+
+    /**
+     * @return List -- every employee in the filled out tree, each still holding their own filled out reports.
+     */
+    private static List<Employee> hydrateAll(Employee root) {
+        List<Employee> employees = new ArrayList<>();
+        Deque<Employee> pending = new ArrayDeque<>();
+        pending.add(root);
+        while(!pending.isEmpty()) {
+            Employee employee = pending.poll();
+            employees.add(employee);
+            pending.addAll(employee.getDirectReports());
+        }
+        return employees;
+    }
+}
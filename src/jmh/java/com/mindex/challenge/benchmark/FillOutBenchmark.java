@@ -0,0 +1,90 @@
+package com.mindex.challenge.benchmark;
+
+import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.graph.OrgGraph;
+import com.mindex.challenge.service.ReportingStructureService;
+import com.mindex.challenge.service.impl.ReportingStructureServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hydrated reporting structure reads, which fill out every report under the employee, against the embedded Mongo.
+ *
+ * "cold" starts every read off with an empty org graph, so the whole org is read through from Mongo a level at a
+ * time, the way it is for employees written straight to the repo. "warm" reads from the app's own graph, which holds
+ * the org after the first read, so it's just the fill out.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(1)
+public class FillOutBenchmark {
+
+    @Param({"wide", "deep"})
+    private String shape;
+
+    @Param({"cold", "warm"})
+    private String graph;
+
+    private ConfigurableApplicationContext context;
+    private String rootId;
+    private ReportingStructureService reportingStructureService;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = BenchmarkContext.start();
+
+        SyntheticOrg org = SyntheticOrg.of(shape);
+        context.getBean(EmployeeRepository.class).insert(org.getRecords());
+        rootId = org.getRoot().getEmployeeId();
+        reportingStructureService = context.getBean(ReportingStructureService.class);
+    }
+
+    /**
+     * A separate service over a brand new, empty graph. Creating them is kept out of the timings, which is why every
+     * read is its own single shot.
+     */
+    @Setup(Level.Invocation)
+    public void emptyGraph() {
+        if(!"cold".equals(graph)) {
+            return;
+        }
+
+        AutowireCapableBeanFactory beanFactory = context.getAutowireCapableBeanFactory();
+        ReportingStructureServiceImpl service = beanFactory.createBean(ReportingStructureServiceImpl.class);
+        Field orgGraph = ReflectionUtils.findField(ReportingStructureServiceImpl.class, "orgGraph");
+        ReflectionUtils.makeAccessible(orgGraph);
+        ReflectionUtils.setField(orgGraph, service, beanFactory.createBean(OrgGraph.class));
+        reportingStructureService = service;
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public ReportingStructure read_hydrated() {
+        return reportingStructureService.read(rootId, null, true);
+    }
+}
@@ -0,0 +1,92 @@
+package com.mindex.challenge.benchmark;
+
+import com.mindex.challenge.controller.EmployeeController;
+import com.mindex.challenge.controller.ReportingStructureController;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.ReportingStructure;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read throughput through the controllers, and so through all their and the services' log lines, with the app's own
+ * code logging at DEBUG against INFO, and with the default, synchronous, appender against the prod profile's async
+ * one.
+ *
+ * The console goes nowhere for the run, so it's the cost of logging in the app being measured, not of the terminal
+ * JMH would otherwise echo every line to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmark {
+
+    private static final String EMPLOYEE_ID = "16a596ae-edd3-4847-99fe-c4518e82c86f";
+
+    @Param({"DEBUG", "INFO"})
+    private String level;
+
+    @Param({"default", "prod"})
+    private String profile;
+
+    private PrintStream console;
+    private ConfigurableApplicationContext context;
+    private EmployeeController employeeController;
+    private ReportingStructureController reportingStructureController;
+
+    @Setup(Level.Trial)
+    public void start() {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        context = BenchmarkContext.start(level, "--spring.profiles.active=" + profile,
+                "--logging.debug-sampling.rate=0");
+        employeeController = context.getBean(EmployeeController.class);
+        reportingStructureController = context.getBean(ReportingStructureController.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public Employee read_employee() {
+        return employeeController.read(EMPLOYEE_ID, false, unconditionalRequest());
+    }
+
+    @Benchmark
+    public ReportingStructure read_reportingStructure() {
+        return reportingStructureController.read(EMPLOYEE_ID, null, true, unconditionalRequest());
+    }
+
+    /**
+     * @return ServletWebRequest -- a request with no If-None-Match, so every read goes through in full.
+     */
+    private static ServletWebRequest unconditionalRequest() {
+        return new ServletWebRequest(new MockHttpServletRequest());
+    }
+}
@@ -0,0 +1,65 @@
+package com.mindex.challenge.benchmark;
+
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.graph.CompactHierarchy;
+import com.mindex.challenge.graph.OrgGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Working out a reporting structure once everything is in memory, both over fully nested employee records and over
+ * the org graph's {@link CompactHierarchy}. No Spring, no DB, just the walk.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportingStructureBenchmark {
+
+    @Param({"wide", "deep"})
+    private String shape;
+
+    private Employee wiredRoot;
+    private Employee rootRecord;
+    private CompactHierarchy hierarchy;
+
+    @Setup
+    public void setup() {
+        SyntheticOrg org = SyntheticOrg.of(shape);
+        wiredRoot = org.wire();
+
+        //Everyone's in the graph, so it never needs to read through to its repo
+        OrgGraph orgGraph = new OrgGraph();
+        org.getRecords().forEach(orgGraph::put);
+        hierarchy = orgGraph.getCompactHierarchy();
+        rootRecord = org.getRoot();
+    }
+
+    @Benchmark
+    public ReportingStructure calculateStructure_records() {
+        ReportingStructure reportingStructure = new ReportingStructure(wiredRoot);
+        reportingStructure.calculateStructure(null);
+        return reportingStructure;
+    }
+
+    @Benchmark
+    public ReportingStructure calculateStructure_compact() {
+        ReportingStructure reportingStructure = new ReportingStructure(rootRecord);
+        reportingStructure.calculateStructure(hierarchy, null);
+        return reportingStructure;
+    }
+}
@@ -0,0 +1,108 @@
+package com.mindex.challenge.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.mindex.challenge.config.JacksonConfig;
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing and reading employees and compensations as JSON, with the app's own {@link ObjectMapper}, so whatever the
+ * app has it configured with (indenting included) is part of the numbers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private ConfigurableApplicationContext context;
+    private ObjectMapper objectMapper;
+
+    /**
+     * A manager as stored, with 100 direct reports as stubs.
+     */
+    private Employee employee;
+    private byte[] employeeJson;
+
+    /**
+     * Writes out just the fields most clients ask for, same as a read with
+     * <code>fields=firstName,lastName,position</code>.
+     */
+    private ObjectWriter employeeFieldsWriter;
+
+    /**
+     * A compensation with its employee filled in, as the compensation endpoints send them.
+     */
+    private Compensation compensation;
+    private byte[] compensationJson;
+
+    @Setup(Level.Trial)
+    public void setup() throws JsonProcessingException {
+        context = BenchmarkContext.start();
+        objectMapper = context.getBean(ObjectMapper.class);
+
+        employee = SyntheticOrg.generate("serialization", 100, 1).getRoot();
+        employeeJson = objectMapper.writeValueAsBytes(employee);
+        employeeFieldsWriter = objectMapper.writer(new SimpleFilterProvider().addFilter(JacksonConfig.EMPLOYEE_FILTER,
+                SimpleBeanPropertyFilter.filterOutAllExcept("employeeId", "firstName", "lastName", "position")));
+
+        compensation = new Compensation(employee);
+        compensation.setSalary(new BigDecimal("123456.78"));
+        compensation.setEffectiveDate(LocalDate.of(2020, 3, 3));
+        compensationJson = objectMapper.writeValueAsBytes(compensation);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    public byte[] write_employee() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(employee);
+    }
+
+    @Benchmark
+    public byte[] write_employee_fields() throws JsonProcessingException {
+        return employeeFieldsWriter.writeValueAsBytes(employee);
+    }
+
+    @Benchmark
+    public Employee read_employee() throws IOException {
+        return objectMapper.readValue(employeeJson, Employee.class);
+    }
+
+    @Benchmark
+    public byte[] write_compensation() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(compensation);
+    }
+
+    @Benchmark
+    public Compensation read_compensation() throws IOException {
+        return objectMapper.readValue(compensationJson, Compensation.class);
+    }
+}
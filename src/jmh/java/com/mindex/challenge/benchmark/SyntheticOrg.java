@@ -0,0 +1,116 @@
+package com.mindex.challenge.benchmark;
+
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.builder.EmployeeBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A made up org for the benchmarks to run over, where every manager has the same number of direct reports, down to a
+ * set depth. The records come out the same as they're stored in the repo, with direct reports as ID-only stubs.
+ */
+public final class SyntheticOrg {
+
+    private final List<Employee> records;
+
+    private SyntheticOrg(List<Employee> records) {
+        this.records = records;
+    }
+
+    /**
+     * @param shape -- "wide", for a root with 100 reports who each have 100 of their own (10,101 employees), or
+     * "deep", for a single chain of 2,000 managers.
+     */
+    public static SyntheticOrg of(String shape) {
+        switch(shape) {
+            case "wide":
+                return generate(shape, 100, 2);
+            case "deep":
+                return generate(shape, 1, 2000);
+            default:
+                throw new IllegalArgumentException("Unknown org shape: " + shape);
+        }
+    }
+
+    /**
+     * @param width -- the number of direct reports every manager has.
+     * @param depth -- the number of levels below the root.
+     */
+    public static SyntheticOrg generate(String prefix, int width, int depth) {
+        List<Employee> records = new ArrayList<>();
+
+        List<EmployeeBuilder> level = List.of(builder(prefix, 0));
+        int next = 1;
+        for(int d = 0; d <= depth; d++) {
+            List<EmployeeBuilder> nextLevel = new ArrayList<>();
+            for(EmployeeBuilder manager : level) {
+                if(d < depth) {
+                    for(int i = 0; i < width; i++) {
+                        int n = next++;
+                        manager.directReport(stub(prefix + "-" + n));
+                        nextLevel.add(builder(prefix, n));
+                    }
+                }
+                records.add(manager.build());
+            }
+            level = nextLevel;
+        }
+
+        return new SyntheticOrg(records);
+    }
+
+    private static EmployeeBuilder builder(String prefix, int n) {
+        return new EmployeeBuilder("First" + n + " Last" + n)
+                .employeeId(prefix + "-" + n)
+                .position("Position " + n % 20)
+                .department("Department " + n % 8);
+    }
+
+    private static Employee stub(String employeeId) {
+        Employee stub = new Employee();
+        stub.setEmployeeId(employeeId);
+        return stub;
+    }
+
+    /**
+     * @return Employee -- the one at the top of the org.
+     */
+    public Employee getRoot() {
+        return records.get(0);
+    }
+
+    /**
+     * @return List -- everyone in the org, top down, with their direct reports as stubs.
+     */
+    public List<Employee> getRecords() {
+        return records;
+    }
+
+    /**
+     * @return Employee -- a copy of the root with every report under them filled out as full nested records, the way a
+     * hydrated reporting structure read builds it.
+     */
+    public Employee wire() {
+        Map<String, Employee> copies = new HashMap<>();
+        for(Employee record : records) {
+            Employee copy = new EmployeeBuilder()
+                    .employeeId(record.getEmployeeId())
+                    .firstName(record.getFirstName())
+                    .lastName(record.getLastName())
+                    .position(record.getPosition())
+                    .department(record.getDepartment())
+                    .build();
+            copies.put(copy.getEmployeeId(), copy);
+        }
+        for(Employee record : records) {
+            Employee copy = copies.get(record.getEmployeeId());
+            for(Employee directReport : record.getDirectReports()) {
+                copy.addDirectReport(copies.get(directReport.getEmployeeId()));
+            }
+        }
+        return copies.get(getRoot().getEmployeeId());
+    }
+}
@@ -0,0 +1,26 @@
+package com.mindex.challenge;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the app as OUT_OF_SERVICE at <code>/actuator/health</code>, under <code>bootstrap</code>, until the
+ * {@link DataBootstrap} has loaded everything, so a load balancer holds off sending traffic to an app that's come up
+ * early with <code>bootstrap.async=true</code> but is still seeding. UP from then on.
+ */
+@Component
+public class BootstrapHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private DataBootstrap dataBootstrap;
+
+    @Override
+    public Health health() {
+        if(!dataBootstrap.isReady()) {
+            return Health.outOfService().withDetail("reason", "Still loading the seed data").build();
+        }
+        return Health.up().build();
+    }
+}
@@ -1,20 +1,42 @@
 package com.mindex.challenge;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mindex.challenge.dao.CompensationRepository;
 import com.mindex.challenge.dao.EmployeeRepository;
 import com.mindex.challenge.data.Compensation;
 import com.mindex.challenge.data.Employee;
-import com.mindex.challenge.service.CompensationService;
+import com.mindex.challenge.graph.OrgGraph;
+import com.mindex.challenge.util.JsonRecordReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Seeds the DB from the JSON snapshots on start-up. The snapshots are streamed in a record at a time and written in
+ * batches, so they never have to fit in memory whole.
+ *
+ * By default, start-up waits for the seed to finish. With <code>bootstrap.async=true</code> the seed runs in the
+ * background instead, letting the app come up and bind its port straight away; {@link #isReady()} says when it's done.
+ *
+ * Either way, the indexes are all in place, and any old data migrated, before the first record goes in.
+ */
 @Component
+@DependsOn({"mongoIndexInitializer", "directReportIdsMigration"})
 public class DataBootstrap {
+    private static final Logger LOG = LoggerFactory.getLogger(DataBootstrap.class);
+
     private static final String DATASTORE_LOCATION = "/static/employee_database.json";
     private static final String DATASTORE_LOCATION_2 = "/static/compensation_database.json";
 
@@ -27,33 +49,98 @@ public class DataBootstrap {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private OrgGraph orgGraph;
+
+    @Value("${bootstrap.async:false}")
+    private boolean async;
+
+    @Value("${bootstrap.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * Set once all the data is loaded.
+     */
+    private volatile boolean ready;
+
     @PostConstruct
     public void init() {
-        InputStream inputStream = this.getClass().getResourceAsStream(DATASTORE_LOCATION);
+        if(async) {
+            Thread loader = new Thread(() -> {
+                try {
+                    load();
+                } catch (RuntimeException e) {
+                    LOG.error("Failed to bootstrap data, app will never report ready", e);
+                }
+            }, "data-bootstrap");
+            loader.setDaemon(true);
+            loader.start();
+        } else {
+            load();
+        }
+    }
 
-        Employee[] employees = null;
-        Compensation[] compensations = null;
+    /**
+     * @return boolean -- true once the seed data has all been loaded, else false.
+     */
+    public boolean isReady() {
+        return ready;
+    }
 
-        try {
-            employees = objectMapper.readValue(inputStream, Employee[].class);
-        } catch (IOException e) {
-            throw new RuntimeException(e);
-        }
+    private void load() {
+        long start = System.nanoTime();
+
+        int employees = loadAll(DATASTORE_LOCATION, Employee.class, employeeRepository);
+        int compensations = loadAll(DATASTORE_LOCATION_2, Compensation.class, compensationRepository);
+
+        //With the DB all seeded, build the in-memory org graph up front rather than on the first reads
+        orgGraph.rebuild();
+        ready = true;
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        LOG.info("Bootstrapped [{}] employees and [{}] compensations in [{}] ms ([{}] records/sec)",
+                employees, compensations, elapsedMillis,
+                elapsedMillis == 0 ? "n/a" : (employees + compensations) * 1000L / elapsedMillis);
+    }
 
-        for (Employee employee : employees) {
-            employeeRepository.insert(employee);
+    /**
+     * Streams the records in the given snapshot into the repo, inserting them a batch at a time. A repo that already
+     * has data in it, say from a persistent backend's last run, is left alone.
+     *
+     * @return int -- the number of records loaded.
+     */
+    private <T> int loadAll(String location, Class<T> type, MongoRepository<T, String> repository) {
+        long existing = repository.count();
+        if(existing > 0) {
+            LOG.info("Skipping [{}], the DB already holds [{}] records of its type", location, existing);
+            return 0;
         }
 
-        inputStream = this.getClass().getResourceAsStream(DATASTORE_LOCATION_2);
+        List<T> batch = new ArrayList<>(batchSize);
+        int loaded = 0;
 
-        try {
-            compensations = objectMapper.readValue(inputStream, Compensation[].class);
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
+        try(InputStream inputStream = this.getClass().getResourceAsStream(location);
+            JsonRecordReader reader = new JsonRecordReader(objectMapper, inputStream)) {
+
+            JsonNode record;
+            while(null != (record = reader.next())) {
+                batch.add(objectMapper.treeToValue(record, type));
+
+                if(batch.size() >= batchSize) {
+                    repository.insert(batch);
+                    loaded += batch.size();
+                    batch.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
         }
 
-        for(Compensation compensation : compensations) {
-            compensationRepository.insert(compensation);
+        if(!batch.isEmpty()) {
+            repository.insert(batch);
+            loaded += batch.size();
         }
+
+        return loaded;
     }
 }
@@ -0,0 +1,125 @@
+package com.mindex.challenge.config;
+
+import com.mindex.challenge.dao.EmployeeDocumentListener;
+import com.mindex.challenge.data.Employee;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One-off migration of employee documents stored from before {@link EmployeeDocumentListener}, with their direct
+ * reports embedded, over to storing just the reports' IDs. Runs on start-up, before the seed and the org graph, when
+ * <code>employee.migration.enabled=true</code>, and only ever touches documents still stored the old way, so once a DB
+ * is done all it costs is one query that finds nothing.
+ *
+ * Also drops the index on the old <code>directReports._id</code>, as nothing looks anyone up by it any more.
+ */
+@Component
+@DependsOn("mongoIndexInitializer")
+public class DirectReportIdsMigration {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DirectReportIdsMigration.class);
+
+    /**
+     * What {@link MongoIndexInitializer} called the index on the embedded reports' IDs.
+     */
+    static final String LEGACY_MANAGER_INDEX = "directReports_id";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Value("${employee.migration.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * How many documents to rewrite in each bulk write.
+     */
+    @Value("${employee.migration.batch-size:1000}")
+    private int batchSize;
+
+    @PostConstruct
+    public void init() {
+        if(enabled) {
+            migrate();
+        }
+    }
+
+    /**
+     * Rewrites every employee document still holding embedded directReports, in unordered bulk writes of
+     * <code>employee.migration.batch-size</code>. Only the reports' IDs are read out of the old documents.
+     *
+     * @return int -- the number of documents rewritten.
+     */
+    public int migrate() {
+        dropLegacyIndex();
+
+        MongoCollection<Document> collection =
+                mongoTemplate.getCollection(mongoTemplate.getCollectionName(Employee.class));
+
+        List<WriteModel<Document>> batch = new ArrayList<>(batchSize);
+        int migrated = 0;
+
+        String reportIdsPath = EmployeeDocumentListener.DIRECT_REPORTS + "._id";
+        for(Document legacy : collection.find(Filters.exists(EmployeeDocumentListener.DIRECT_REPORTS))
+                .projection(Projections.include(reportIdsPath))) {
+
+            Document update = new Document(EmployeeDocumentListener.DIRECT_REPORTS,
+                    legacy.get(EmployeeDocumentListener.DIRECT_REPORTS));
+            EmployeeDocumentListener.toStored(update);
+
+            batch.add(new UpdateOneModel<>(Filters.eq("_id", legacy.get("_id")), Updates.combine(
+                    Updates.set(EmployeeDocumentListener.DIRECT_REPORT_IDS,
+                            update.get(EmployeeDocumentListener.DIRECT_REPORT_IDS)),
+                    Updates.unset(EmployeeDocumentListener.DIRECT_REPORTS))));
+
+            if(batch.size() >= batchSize) {
+                migrated += write(collection, batch);
+            }
+        }
+        migrated += write(collection, batch);
+
+        if(migrated > 0) {
+            LOG.info("Migrated [{}] employees over to storing their direct reports by ID", migrated);
+        }
+        return migrated;
+    }
+
+    private int write(MongoCollection<Document> collection, List<WriteModel<Document>> batch) {
+        if(batch.isEmpty()) {
+            return 0;
+        }
+
+        int written = batch.size();
+        collection.bulkWrite(batch, new BulkWriteOptions().ordered(false));
+        batch.clear();
+        return written;
+    }
+
+    private void dropLegacyIndex() {
+        IndexOperations indexOps = mongoTemplate.indexOps(Employee.class);
+        for(IndexInfo index : indexOps.getIndexInfo()) {
+            if(LEGACY_MANAGER_INDEX.equals(index.getName())) {
+                indexOps.dropIndex(LEGACY_MANAGER_INDEX);
+                LOG.info("Dropped index [{}], direct reports are stored by ID now", LEGACY_MANAGER_INDEX);
+            }
+        }
+    }
+}
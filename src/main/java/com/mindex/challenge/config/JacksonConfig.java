@@ -0,0 +1,33 @@
+package com.mindex.challenge.config;
+
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.mindex.challenge.data.Employee;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Lets a response leave some of an {@link Employee}'s fields out, by handing the app's ObjectMapper a filter for them
+ * under {@link #EMPLOYEE_FILTER}, see {@link org.springframework.http.converter.json.MappingJacksonValue}. Anything
+ * written without one comes out whole, same as ever.
+ *
+ * The filter is hooked up with a mix-in, rather than on the Employee itself, so any other ObjectMapper that comes
+ * across an employee doesn't need to know about it.
+ */
+@Configuration
+public class JacksonConfig {
+
+    public static final String EMPLOYEE_FILTER = "employeeFields";
+
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer employeeFilterCustomizer() {
+        return builder -> builder
+                .mixIn(Employee.class, EmployeeFilterMixIn.class)
+                .filters(new SimpleFilterProvider().setFailOnUnknownId(false));
+    }
+
+    @JsonFilter(EMPLOYEE_FILTER)
+    abstract static class EmployeeFilterMixIn {
+    }
+}
@@ -0,0 +1,63 @@
+package com.mindex.challenge.config;
+
+import com.mindex.challenge.dao.EmployeeCache;
+import com.mindex.challenge.graph.OrgGraph;
+import com.mindex.challenge.metrics.MongoCommandInterceptor;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * The app's own metrics, on top of the request timers Actuator already keeps for every endpoint. All are served for
+ * Prometheus at <code>/actuator/prometheus</code>.
+ */
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private MongoCommandInterceptor mongoCommandInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(mongoCommandInterceptor);
+    }
+
+    /**
+     * Size and hit rate of the {@link EmployeeCache}.
+     */
+    @Bean
+    public MeterBinder employeeCacheMetrics(EmployeeCache employeeCache) {
+        return registry -> {
+            Gauge.builder("employee.cache.size", employeeCache, EmployeeCache::size)
+                    .description("Employees cached right now")
+                    .register(registry);
+            FunctionCounter.builder("employee.cache.requests", employeeCache, cache -> cache.stats().hitCount())
+                    .description("Employee cache lookups")
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("employee.cache.requests", employeeCache, cache -> cache.stats().missCount())
+                    .description("Employee cache lookups")
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("employee.cache.evictions", employeeCache,
+                    cache -> cache.stats().evictionCount())
+                    .description("Employees evicted from the cache")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Number of employees held in the {@link OrgGraph}.
+     */
+    @Bean
+    public MeterBinder orgGraphMetrics(OrgGraph orgGraph) {
+        return registry -> Gauge.builder("org.graph.size", orgGraph, OrgGraph::size)
+                .description("Employees held in the org graph")
+                .register(registry);
+    }
+}
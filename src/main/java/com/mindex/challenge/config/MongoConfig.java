@@ -1,10 +1,18 @@
 package com.mindex.challenge.config;
 
-import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.metrics.MongoCommandCounter;
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.h2.H2Backend;
 import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.mongodb.MongoDbFactory;
@@ -12,30 +20,89 @@ import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.SimpleMongoClientDbFactory;
 import org.springframework.data.mongodb.repository.config.EnableMongoRepositories;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Where the data lives is picked with <code>mongo.backend</code>:
+ *  "memory" (the default) is an embedded Mongo holding everything on the heap, gone on restart,
+ *  "h2" is an embedded Mongo writing through to an H2 MVStore file at <code>mongo.h2.file</code>, and
+ *  "uri" is a real Mongo somewhere else, at <code>mongo.uri</code>.
+ */
 @EnableMongoRepositories(basePackages = "com.mindex.challenge.dao")
 @Configuration
 public class MongoConfig{
+    private static final Logger LOG = LoggerFactory.getLogger(MongoConfig.class);
+
+    @Value("${mongo.database:test}")
+    private String database;
+
     @Bean
-    public MongoTemplate mongoTemplate(MongoClient mongoClient) {
-        return new MongoTemplate(mongoDbFactory(mongoClient));
+    public MongoTemplate mongoTemplate(MongoDbFactory mongoDbFactory) {
+        return new MongoTemplate(mongoDbFactory);
     }
 
     @Bean
     public MongoDbFactory mongoDbFactory(MongoClient mongoClient) {
-        return new SimpleMongoClientDbFactory(mongoClient, "test");
+        return new SimpleMongoClientDbFactory(mongoClient, database);
     }
 
     @Bean(destroyMethod="shutdown")
+    @ConditionalOnProperty(name = "mongo.backend", havingValue = "memory", matchIfMissing = true)
     public MongoServer mongoServer() {
         MongoServer mongoServer = new MongoServer(new MemoryBackend());
         mongoServer.bind();
         return mongoServer;
     }
 
-    @Bean(destroyMethod="close")
-    public MongoClient mongoClient() {
-        return MongoClients.create("mongodb:/" + mongoServer().getLocalAddress());
+    @Bean(destroyMethod="shutdown")
+    @ConditionalOnProperty(name = "mongo.backend", havingValue = "h2")
+    public MongoServer h2MongoServer(@Value("${mongo.h2.file:data/challenge.mv}") String file) {
+        LOG.info("Using embedded Mongo backed by H2 file [{}]", file);
+
+        Path parent = Paths.get(file).toAbsolutePath().getParent();
+        try {
+            Files.createDirectories(parent);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Couldn't create directory for H2 file " + file, e);
+        }
+
+        MongoServer mongoServer = new MongoServer(new H2Backend(file));
+        mongoServer.bind();
+        return mongoServer;
     }
-}
 
+    /**
+     * Points at whichever embedded server is running, or else at the external Mongo at <code>mongo.uri</code>. Every
+     * command sent is counted by the {@link MongoCommandCounter}, either way. Shared by the blocking client and, under
+     * the "reactive" profile, the reactive one.
+     */
+    @Bean
+    public MongoClientSettings mongoClientSettings(ObjectProvider<MongoServer> mongoServer,
+                                                   @Value("${mongo.uri:}") String uri,
+                                                   MongoCommandCounter mongoCommandCounter) {
+        MongoServer embedded = mongoServer.getIfAvailable();
+        String connectionString;
+        if(null != embedded) {
+            connectionString = "mongodb:/" + embedded.getLocalAddress();
+        } else if(uri.isEmpty()) {
+            throw new IllegalStateException("mongo.uri must be set to use an external Mongo");
+        } else {
+            LOG.info("Using external Mongo, database [{}]", database);
+            connectionString = uri;
+        }
+
+        return MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(connectionString))
+                .addCommandListener(mongoCommandCounter)
+                .build();
+    }
 
+    @Bean(destroyMethod="close")
+    public MongoClient mongoClient(MongoClientSettings mongoClientSettings) {
+        return MongoClients.create(mongoClientSettings);
+    }
+}
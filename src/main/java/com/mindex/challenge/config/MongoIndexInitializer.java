@@ -0,0 +1,78 @@
+package com.mindex.challenge.config;
+
+import com.mindex.challenge.dao.EmployeeDocumentListener;
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+
+/**
+ * Makes sure the indexes behind all our lookups exist on start-up, so none of them come down to a collection scan.
+ * Creating an index that's already there is a no-op, so this is safe to run against a DB that's been around a while.
+ *
+ * Employees don't need one declaring here for their ID, since {@link Employee#getEmployeeId()} is mapped to the
+ * document's <code>_id</code>, which Mongo always keeps a unique index on.
+ */
+@Component
+public class MongoIndexInitializer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MongoIndexInitializer.class);
+
+    /**
+     * Compensations by employee, newest first.
+     */
+    public static final String COMPENSATION_EMPLOYEE_INDEX = "employeeId_effectiveDate";
+
+    /**
+     * Managers by the IDs of their direct reports, which are stored as a plain array of IDs. See
+     * {@link com.mindex.challenge.dao.EmployeeDocumentListener}.
+     */
+    public static final String EMPLOYEE_MANAGER_INDEX = "directReportIds";
+
+    /**
+     * Employees by department, and by position, then ID, so a filtered listing's paged through in index order.
+     */
+    public static final String EMPLOYEE_DEPARTMENT_INDEX = "department_id";
+    public static final String EMPLOYEE_POSITION_INDEX = "position_id";
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @PostConstruct
+    public void init() {
+        ensureIndex(Compensation.class, new Index()
+                .on("employeeId", Sort.Direction.ASC)
+                .on("effectiveDate", Sort.Direction.DESC)
+                .named(COMPENSATION_EMPLOYEE_INDEX));
+
+        ensureIndex(Employee.class, new Index()
+                .on(EmployeeDocumentListener.DIRECT_REPORT_IDS, Sort.Direction.ASC)
+                .named(EMPLOYEE_MANAGER_INDEX));
+
+        ensureIndex(Employee.class, new Index()
+                .on("department", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC)
+                .named(EMPLOYEE_DEPARTMENT_INDEX));
+
+        ensureIndex(Employee.class, new Index()
+                .on("position", Sort.Direction.ASC)
+                .on("_id", Sort.Direction.ASC)
+                .named(EMPLOYEE_POSITION_INDEX));
+    }
+
+    private void ensureIndex(Class<?> type, IndexDefinition index) {
+        IndexOperations indexOps = mongoTemplate.indexOps(type);
+        String name = indexOps.ensureIndex(index);
+
+        LOG.debug("Ensured index [{}] on [{}]", name, mongoTemplate.getCollectionName(type));
+    }
+}
@@ -0,0 +1,44 @@
+package com.mindex.challenge.config;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.ReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.SimpleReactiveMongoDatabaseFactory;
+import org.springframework.data.mongodb.repository.config.EnableReactiveMongoRepositories;
+
+/**
+ * Non-blocking access to the same Mongo, and the same database, as {@link MongoConfig}, for the "reactive" profile's
+ * endpoints. The blocking client stays up alongside it for everything else, like seeding the DB and the org graph.
+ *
+ * Boot's own reactive Mongo set up is switched off in application.properties, as it would otherwise go looking for a
+ * Mongo on localhost under every profile.
+ */
+@Profile("reactive")
+@EnableReactiveMongoRepositories(basePackages = "com.mindex.challenge.dao.reactive")
+@Configuration
+public class ReactiveMongoConfig {
+
+    @Value("${mongo.database:test}")
+    private String database;
+
+    @Bean(destroyMethod="close")
+    public MongoClient reactiveMongoClient(MongoClientSettings mongoClientSettings) {
+        return MongoClients.create(mongoClientSettings);
+    }
+
+    @Bean
+    public ReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory(MongoClient reactiveMongoClient) {
+        return new SimpleReactiveMongoDatabaseFactory(reactiveMongoClient, database);
+    }
+
+    @Bean
+    public ReactiveMongoTemplate reactiveMongoTemplate(ReactiveMongoDatabaseFactory reactiveMongoDatabaseFactory) {
+        return new ReactiveMongoTemplate(reactiveMongoDatabaseFactory);
+    }
+}
@@ -0,0 +1,26 @@
+package com.mindex.challenge.config;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Holds the virtual thread executor of {@link VirtualThreadsConfig}, so it can be a bean without being an
+ * {@link java.util.concurrent.Executor} bean. Boot only sets up its own <code>applicationTaskExecutor</code>, which
+ * <code>@Async</code> and friends run on, when there's no Executor bean at all, and would quietly hand the lot over to
+ * an unbounded virtual thread per task otherwise.
+ */
+public class VirtualThreadExecutor {
+
+    private final ExecutorService executorService;
+
+    public VirtualThreadExecutor(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    public void shutdown() {
+        executorService.shutdown();
+    }
+}
@@ -0,0 +1,53 @@
+package com.mindex.challenge.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opt-in, with <code>threads.virtual.enabled=true</code>, running on virtual threads: Tomcat handles every request on
+ * one of its own, and reporting structure reads fetch the reports they're missing on them, several batches at a time.
+ *
+ * The build still targets Java 11, so the virtual thread executor is looked up reflectively, and switching this on
+ * needs the app run on Java 21 or later. On anything older, start-up fails saying so, rather than quietly carrying on
+ * without.
+ */
+@Configuration
+@ConditionalOnProperty(name = "threads.virtual.enabled", havingValue = "true")
+public class VirtualThreadsConfig {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreadsConfig.class);
+
+    /**
+     * A new virtual thread for every task. Shared by Tomcat and the reporting structure reads, and held rather than
+     * being a bean itself, see {@link VirtualThreadExecutor}.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public VirtualThreadExecutor virtualThreadExecutor() {
+        try {
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+            LOG.info("Running on virtual threads");
+            return new VirtualThreadExecutor(executor);
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException("threads.virtual.enabled needs Java 21 or later, running on Java "
+                    + Runtime.version(), e);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Couldn't create virtual thread executor", e);
+        }
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsTomcatCustomizer(
+            VirtualThreadExecutor virtualThreadExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(virtualThreadExecutor.getExecutorService());
+    }
+}
@@ -5,14 +5,26 @@ import com.mindex.challenge.service.CompensationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
+import java.util.List;
 
 @RestController
+@Profile("!reactive")
 public class CompensationController {
     private static final Logger LOG = LoggerFactory.getLogger(CompensationController.class);
 
+    /**
+     * Dates in request params are written the same way as effective dates are in the JSON.
+     */
+    private static final String DATE_PATTERN = "dd/MM/yyyy";
+
     @Autowired
     private CompensationService compensationService;
 
@@ -29,10 +41,42 @@ public class CompensationController {
         return compensationService.create(compensation);
     }
 
+    /**
+     * Reads the compensation in effect for the given employee as of the given date, in the same dd/MM/yyyy format as
+     * effective dates, or as of today if there's no date given.
+     */
     @GetMapping("/compensation/{employeeId}")
-    public Compensation read(@PathVariable String employeeId) {
-        LOG.debug("Received read request for compensation for employee with ID [{}]", employeeId);
+    public Compensation read(@PathVariable String employeeId,
+                             @RequestParam(required = false) @DateTimeFormat(pattern = DATE_PATTERN) LocalDate asOf) {
+        LOG.debug("Received read request for compensation for employee with ID [{}] as of [{}]", employeeId, asOf);
+
+        return compensationService.read(employeeId, null == asOf ? LocalDate.now() : asOf);
+    }
+
+    /**
+     * Reads a page of the given employee's compensation history, newest first, e.g.
+     * <code>/compensation/{employeeId}/history?page=0&amp;size=20</code>.
+     */
+    @GetMapping("/compensation/{employeeId}/history")
+    public Page<Compensation> readHistory(@PathVariable String employeeId,
+                                          @PageableDefault(size = 20) Pageable pageable) {
+        LOG.debug("Received history request for compensation for employee with ID [{}], page [{}]", employeeId,
+                pageable);
+
+        return compensationService.readHistory(employeeId, pageable);
+    }
+
+    /**
+     * Reads the compensations in effect for many employees at once, given as a comma separated list, e.g.
+     * <code>/compensation?employeeIds=a,b,c</code>, as of the given date or today. Employees without a compensation
+     * are simply left out.
+     */
+    @GetMapping("/compensation")
+    public List<Compensation> readAll(@RequestParam List<String> employeeIds,
+            @RequestParam(required = false) @DateTimeFormat(pattern = DATE_PATTERN) LocalDate asOf) {
+        LOG.debug("Received batch read request for compensation for employees with IDs [{}] as of [{}]", employeeIds,
+                asOf);
 
-        return compensationService.read(employeeId);
+        return compensationService.readAll(employeeIds, null == asOf ? LocalDate.now() : asOf);
     }
 }
@@ -1,19 +1,51 @@
 package com.mindex.challenge.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.mindex.challenge.config.JacksonConfig;
+import com.mindex.challenge.data.BulkImportResult;
 import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeeBatch;
+import com.mindex.challenge.data.EmployeePage;
+import com.mindex.challenge.data.ReportEntry;
 import com.mindex.challenge.service.EmployeeService;
+import com.mindex.challenge.service.ReportingStructureService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.util.CloseableIterator;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.MappingJacksonValue;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 @RestController
+@Profile("!reactive")
 public class EmployeeController {
     private static final Logger LOG = LoggerFactory.getLogger(EmployeeController.class);
 
     @Autowired
     private EmployeeService employeeService;
 
+    @Autowired
+    private ReportingStructureService reportingStructureService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     @PostMapping("/employee")
     public Employee create(@RequestBody Employee employee) {
         LOG.debug("Received employee create request for [{}]", employee);
@@ -21,11 +53,149 @@ public class EmployeeController {
         return employeeService.create(employee);
     }
 
+    /**
+     * Lists employees a page at a time, in employeeId order, optionally only those in a given department and/or
+     * position. Pass a page's nextCursor back as <code>after</code> to get the page after it.
+     */
+    @GetMapping("/employee")
+    public EmployeePage list(@RequestParam(required = false) String department,
+                             @RequestParam(required = false) String position,
+                             @RequestParam(required = false) String after,
+                             @RequestParam(required = false) Integer limit) {
+        LOG.debug("Received employee list request for department [{}] and position [{}] after [{}], limit [{}]",
+                department, position, after, limit);
+
+        return employeeService.list(department, position, after, limit);
+    }
+
+    /**
+     * Streams every matching employee as newline delimited JSON, one employee per line, written out as they're pulled
+     * off of a DB cursor, so even the whole directory is exported without ever being held in memory.
+     */
+    @GetMapping(value = "/employee", produces = MediaTypes.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamNdjson(@RequestParam(required = false) String department,
+                                                              @RequestParam(required = false) String position,
+                                                              @RequestParam(required = false) String after) {
+        LOG.debug("Received employee NDJSON stream request for department [{}] and position [{}] after [{}]",
+                department, position, after);
+
+        //Indented output is switched on app-wide, but each employee has to stay on its own line here
+        ObjectWriter employeeWriter = objectMapper.writerFor(Employee.class)
+                .without(SerializationFeature.INDENT_OUTPUT);
+
+        StreamingResponseBody body = outputStream -> {
+            try(CloseableIterator<Employee> employees = employeeService.stream(department, position, after)) {
+                OutputStream out = new BufferedOutputStream(outputStream);
+                while(employees.hasNext()) {
+                    out.write(employeeWriter.writeValueAsBytes(employees.next()));
+                    out.write('\n');
+                }
+                out.flush();
+            }
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(MediaTypes.APPLICATION_NDJSON_VALUE))
+                .body(body);
+    }
+
+    /**
+     * Imports any number of employees in one go, from either a JSON array of them or newline delimited JSON. The body
+     * is read as it arrives rather than all up front, and a bad record doesn't stop the rest from being imported.
+     */
+    @PostMapping(value = "/employee/bulk",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaTypes.APPLICATION_NDJSON_VALUE})
+    public BulkImportResult importEmployees(InputStream body) {
+        LOG.debug("Received bulk employee import request");
+
+        return employeeService.importEmployees(body);
+    }
+
+    /**
+     * Reads the employee with just their direct reports' IDs, same as they're stored, unless <code>hydrate=true</code>,
+     * in which case everyone under them is nested in full.
+     *
+     * Comes with an ETag of the employee's version, or when hydrated, of everyone under them's versions. A request
+     * whose <code>If-None-Match</code> still matches gets a 304 with no body.
+     */
     @GetMapping("/employee/{id}")
-    public Employee read(@PathVariable String id) {
-        LOG.debug("Received employee read request for id [{}]", id);
+    public Employee read(@PathVariable String id,
+                         @RequestParam(defaultValue = "false") boolean hydrate,
+                         WebRequest request) {
+        LOG.debug("Received employee read request for id [{}], hydrate [{}]", id, hydrate);
+
+        if(hydrate) {
+            if(request.checkNotModified(reportingStructureService.etag(id, null, true))) {
+                return null;
+            }
+            return employeeService.read(id, true);
+        }
 
-        return employeeService.read(id);
+        Employee employee = employeeService.read(id);
+
+        if(request.checkNotModified(etag(employee))) {
+            return null;
+        }
+
+        return employee;
+    }
+
+    /**
+     * Same read, cut down to just the given comma separated fields, for example
+     * <code>fields=firstName,lastName,position</code>. The employeeId always comes along. Fields that aren't asked for
+     * are never written out, for the employee or anyone nested under them, and unless the employee's cached or
+     * hydrated, they're never even read from the DB.
+     */
+    @GetMapping(value = "/employee/{id}", params = "fields")
+    public MappingJacksonValue readFields(@PathVariable String id,
+                                          @RequestParam String fields,
+                                          @RequestParam(defaultValue = "false") boolean hydrate,
+                                          WebRequest request) {
+        LOG.debug("Received employee read request for id [{}], hydrate [{}], fields [{}]", id, hydrate, fields);
+
+        Set<String> fieldNames = new LinkedHashSet<>();
+        for(String field : fields.split(",")) {
+            if(!field.isBlank()) {
+                fieldNames.add(field.trim());
+            }
+        }
+
+        if(hydrate && request.checkNotModified(reportingStructureService.etag(id, null, true))) {
+            return null;
+        }
+
+        Employee employee = employeeService.read(id, hydrate, fieldNames);
+
+        if(!hydrate && request.checkNotModified(etag(employee))) {
+            return null;
+        }
+
+        fieldNames.add("employeeId");
+        MappingJacksonValue body = new MappingJacksonValue(employee);
+        body.setFilters(new SimpleFilterProvider().addFilter(JacksonConfig.EMPLOYEE_FILTER,
+                SimpleBeanPropertyFilter.filterOutAllExcept(fieldNames)));
+        return body;
+    }
+
+    /**
+     * Reads every employee in the given JSON array of IDs in one go. IDs with no employee are listed separately in
+     * the response, rather than failing the lot.
+     */
+    @PostMapping("/employee/batch-get")
+    public EmployeeBatch readAll(@RequestBody List<String> employeeIds) {
+        LOG.debug("Received employee batch read request for [{}] IDs", employeeIds.size());
+
+        return employeeService.readAll(employeeIds);
+    }
+
+    /**
+     * Reads who the employee reports to, all the way up: the chain of managers from the top of the org down to the
+     * employee themselves.
+     */
+    @GetMapping("/employee/{id}/chain")
+    public List<ReportEntry> readChain(@PathVariable String id) {
+        LOG.debug("Received management chain request for id [{}]", id);
+
+        return employeeService.readChain(id);
     }
 
     @PutMapping("/employee/{id}")
@@ -35,4 +205,12 @@ public class EmployeeController {
         employee.setEmployeeId(id);
         return employeeService.update(employee);
     }
+
+    /**
+     * Versions only ever go up, and never versioned counts as 0, so the version alone is enough to tell any two
+     * representations of the same employee apart.
+     */
+    private static String etag(Employee employee) {
+        return "v" + (null == employee.getVersion() ? 0 : employee.getVersion());
+    }
 }
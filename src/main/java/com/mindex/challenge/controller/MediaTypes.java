@@ -0,0 +1,14 @@
+package com.mindex.challenge.controller;
+
+/**
+ * Media types the controllers deal in that Spring doesn't have constants for.
+ */
+public final class MediaTypes {
+
+    /**
+     * Newline delimited JSON: one JSON document per line, so a response can be written, and read, a record at a time.
+     */
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+    private MediaTypes() {}
+}
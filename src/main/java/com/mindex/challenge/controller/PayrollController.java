@@ -0,0 +1,41 @@
+package com.mindex.challenge.controller;
+
+import com.mindex.challenge.data.PayrollRollup;
+import com.mindex.challenge.service.PayrollRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@Profile("!reactive")
+public class PayrollController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PayrollController.class);
+
+    @Autowired
+    private PayrollRollupService payrollRollupService;
+
+    /**
+     * Reads the payroll rollup of every employee with anyone reporting to them.
+     */
+    @GetMapping("/payroll")
+    public List<PayrollRollup> readAll() {
+        LOG.debug("Received payroll rollup request for all managers");
+
+        return payrollRollupService.readAll();
+    }
+
+    @GetMapping("/payroll/{employeeId}")
+    public PayrollRollup read(@PathVariable String employeeId) {
+        LOG.debug("Received payroll rollup request for employee ID: [{}]", employeeId);
+
+        return payrollRollupService.read(employeeId);
+    }
+
+}
@@ -1,15 +1,35 @@
 package com.mindex.challenge.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.mindex.challenge.data.ReportCount;
+import com.mindex.challenge.data.ReportEntry;
 import com.mindex.challenge.data.ReportingStructure;
 import com.mindex.challenge.service.ReportingStructureService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
 
 @RestController
+@Profile("!reactive")
 public class ReportingStructureController {
 
     private static final Logger LOG = LoggerFactory.getLogger(ReportingStructureController.class);
@@ -17,11 +37,90 @@ public class ReportingStructureController {
     @Autowired
     private ReportingStructureService reportingStructureService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Reads the reporting structure, with everyone under the employee nested in full. With <code>hydrate=false</code>
+     * the employee comes back with just their direct reports' IDs instead, which is a lot cheaper for a big org.
+     *
+     * Comes with an ETag made from the versions of everyone in the structure. A request whose
+     * <code>If-None-Match</code> still matches gets a 304 with no body, without the structure being built at all.
+     */
     @GetMapping("/reportingStructure/{employeeId}")
-    public ReportingStructure read(@PathVariable String employeeId) {
-        LOG.debug("Received reporting structure read request for employee ID: [{}]", employeeId);
+    public ReportingStructure read(@PathVariable String employeeId,
+                                   @RequestParam(required = false) Integer maxDepth,
+                                   @RequestParam(defaultValue = "true") boolean hydrate,
+                                   WebRequest request) {
+        LOG.debug("Received reporting structure read request for employee ID: [{}], max depth [{}], hydrate [{}]",
+                employeeId, maxDepth, hydrate);
+
+        if(request.checkNotModified(reportingStructureService.etag(employeeId, maxDepth, hydrate))) {
+            return null;
+        }
+
+        return reportingStructureService.read(employeeId, maxDepth, hydrate);
+    }
+
+    /**
+     * Streams just the tree-like display of the reporting structure, written out line by line as the structure is
+     * walked, for when the structure is too big to want built up in memory.
+     */
+    @GetMapping(value = "/reportingStructure/{employeeId}", produces = MediaType.TEXT_PLAIN_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamText(@PathVariable String employeeId,
+                                                            @RequestParam(required = false) Integer maxDepth) {
+        LOG.debug("Received reporting structure text stream request for employee ID: [{}] and max depth [{}]",
+                employeeId, maxDepth);
+
+        Iterator<ReportEntry> entries = reportingStructureService.walk(employeeId, maxDepth);
+
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            while(entries.hasNext()) {
+                ReportEntry entry = entries.next();
+                writer.write(ReportingStructure.linePrefix(entry.getDepth()));
+                writer.write(entry.getFullName());
+                writer.write('\n');
+            }
+            writer.flush();
+        };
+
+        return ResponseEntity.ok().contentType(new MediaType(MediaType.TEXT_PLAIN, StandardCharsets.UTF_8)).body(body);
+    }
+
+    /**
+     * Streams the reporting structure as newline delimited JSON, one {@link ReportEntry} per line, written out as the
+     * structure is walked, for when the structure is too big to want built up in memory.
+     */
+    @GetMapping(value = "/reportingStructure/{employeeId}", produces = MediaTypes.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamNdjson(@PathVariable String employeeId,
+                                                              @RequestParam(required = false) Integer maxDepth) {
+        LOG.debug("Received reporting structure NDJSON stream request for employee ID: [{}] and max depth [{}]",
+                employeeId, maxDepth);
+
+        Iterator<ReportEntry> entries = reportingStructureService.walk(employeeId, maxDepth);
+
+        //Indented output is switched on app-wide, but each entry has to stay on its own line here
+        ObjectWriter entryWriter = objectMapper.writerFor(ReportEntry.class)
+                .without(SerializationFeature.INDENT_OUTPUT);
+
+        StreamingResponseBody body = outputStream -> {
+            OutputStream out = new BufferedOutputStream(outputStream);
+            while(entries.hasNext()) {
+                out.write(entryWriter.writeValueAsBytes(entries.next()));
+                out.write('\n');
+            }
+            out.flush();
+        };
+
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(MediaTypes.APPLICATION_NDJSON_VALUE)).body(body);
+    }
+
+    @GetMapping("/reportingStructure/{employeeId}/count")
+    public ReportCount count(@PathVariable String employeeId) {
+        LOG.debug("Received report count request for employee ID: [{}]", employeeId);
 
-        return reportingStructureService.read(employeeId);
+        return reportingStructureService.count(employeeId);
     }
 
 }
@@ -0,0 +1,52 @@
+package com.mindex.challenge.controller.reactive;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.service.ReactiveCompensationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Same create and read endpoints as {@link com.mindex.challenge.controller.CompensationController}, on WebFlux, for
+ * the "reactive" profile.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveCompensationController {
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveCompensationController.class);
+
+    /**
+     * Dates in request params are written the same way as effective dates are in the JSON.
+     */
+    private static final String DATE_PATTERN = "dd/MM/yyyy";
+
+    @Autowired
+    private ReactiveCompensationService compensationService;
+
+    @PostMapping("/compensation")
+    public Mono<Compensation> create(@RequestBody Compensation compensation) {
+        LOG.debug("Received creation request for compensation [{}]", compensation);
+
+        //Today's date is the sensible default for a record being created, same as the blocking variant
+        if(compensation.getEffectiveDate()==null) {
+            compensation.setEffectiveDate(LocalDate.now());
+        }
+
+        return compensationService.create(compensation);
+    }
+
+    @GetMapping("/compensation/{employeeId}")
+    public Mono<Compensation> read(@PathVariable String employeeId,
+                                   @RequestParam(required = false) @DateTimeFormat(pattern = DATE_PATTERN)
+                                           LocalDate asOf) {
+        LOG.debug("Received read request for compensation for employee with ID [{}] as of [{}]", employeeId, asOf);
+
+        return compensationService.read(employeeId, null == asOf ? LocalDate.now() : asOf);
+    }
+}
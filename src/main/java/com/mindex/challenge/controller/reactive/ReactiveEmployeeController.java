@@ -0,0 +1,45 @@
+package com.mindex.challenge.controller.reactive;
+
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.service.ReactiveEmployeeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+/**
+ * Same endpoints as {@link com.mindex.challenge.controller.EmployeeController}, on WebFlux, for the "reactive"
+ * profile.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveEmployeeController {
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveEmployeeController.class);
+
+    @Autowired
+    private ReactiveEmployeeService employeeService;
+
+    @PostMapping("/employee")
+    public Mono<Employee> create(@RequestBody Employee employee) {
+        LOG.debug("Received employee create request for [{}]", employee);
+
+        return employeeService.create(employee);
+    }
+
+    @GetMapping("/employee/{id}")
+    public Mono<Employee> read(@PathVariable String id) {
+        LOG.debug("Received employee read request for id [{}]", id);
+
+        return employeeService.read(id);
+    }
+
+    @PutMapping("/employee/{id}")
+    public Mono<Employee> update(@PathVariable String id, @RequestBody Employee employee) {
+        LOG.debug("Received employee update request for id [{}] and employee [{}]", id, employee);
+
+        employee.setEmployeeId(id);
+        return employeeService.update(employee);
+    }
+}
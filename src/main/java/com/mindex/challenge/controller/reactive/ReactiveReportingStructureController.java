@@ -0,0 +1,38 @@
+package com.mindex.challenge.controller.reactive;
+
+import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.service.ReactiveReportingStructureService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * Same JSON read as {@link com.mindex.challenge.controller.ReportingStructureController}, on WebFlux, for the
+ * "reactive" profile. Unless it's <code>hydrate=false</code>, everyone under the employee is read in concurrently, a
+ * level at a time.
+ */
+@RestController
+@Profile("reactive")
+public class ReactiveReportingStructureController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveReportingStructureController.class);
+
+    @Autowired
+    private ReactiveReportingStructureService reportingStructureService;
+
+    @GetMapping("/reportingStructure/{employeeId}")
+    public Mono<ReportingStructure> read(@PathVariable String employeeId,
+                                         @RequestParam(required = false) Integer maxDepth,
+                                         @RequestParam(defaultValue = "true") boolean hydrate) {
+        LOG.debug("Received reporting structure read request for employee ID: [{}], max depth [{}], hydrate [{}]",
+                employeeId, maxDepth, hydrate);
+
+        return reportingStructureService.read(employeeId, maxDepth, hydrate);
+    }
+}
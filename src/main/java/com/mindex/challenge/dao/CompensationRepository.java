@@ -1,11 +1,56 @@
 package com.mindex.challenge.dao;
 
 import com.mindex.challenge.data.Compensation;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.repository.Aggregation;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * An employee may have any number of compensations over time, each one taking over from the last on its effective date.
+ *
+ * All of the queries below filter on employeeId and order by effectiveDate, newest first, so they're served straight
+ * off of the compound index laid down by {@link com.mindex.challenge.config.MongoIndexInitializer}.
+ */
 @Repository
 public interface CompensationRepository extends MongoRepository<Compensation, String> {
 
-    Compensation findByEmployeeId(String employeeId);
+    /**
+     * Fetches the compensation in effect for the given employee as of the given date, meaning the newest one that had
+     * already taken effect by then.
+     */
+    Compensation findFirstByEmployeeIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(String employeeId,
+                                                                                          LocalDate asOf);
+
+    /**
+     * Fetches the compensation in effect as of the given date for each of the given employees, in employeeId order, in
+     * one aggregation. The DB picks out each employee's newest compensation by then itself, off of the index, so only
+     * one per employee ever comes back, however long their histories. Employees without one are left out.
+     */
+    @Aggregation(pipeline = {
+            "{ $match: { employeeId: { $in: ?0 }, effectiveDate: { $lte: ?1 } } }",
+            "{ $sort: { employeeId: 1, effectiveDate: -1 } }",
+            "{ $group: { _id: '$employeeId', employeeId: { $first: '$employeeId' }, employee: { $first: '$employee' },"
+                    + " salary: { $first: '$salary' }, effectiveDate: { $first: '$effectiveDate' } } }",
+            "{ $sort: { employeeId: 1 } }"
+    })
+    List<Compensation> findInEffectiveByEmployeeIdIn(Collection<String> employeeIds, LocalDate asOf);
+
+    /**
+     * Streams every compensation which had taken effect by the given date, for everyone, grouped by employee and newest
+     * first, so the first for each employee is the one in effect. The stream holds a cursor open, so it must be
+     * closed.
+     */
+    Stream<Compensation> findByEffectiveDateLessThanEqualOrderByEmployeeIdAscEffectiveDateDesc(LocalDate asOf);
+
+    /**
+     * Fetches a page of the given employee's compensation history, newest first.
+     */
+    Page<Compensation> findByEmployeeIdOrderByEffectiveDateDesc(String employeeId, Pageable pageable);
 }
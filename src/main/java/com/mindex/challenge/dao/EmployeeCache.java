@@ -0,0 +1,183 @@
+package com.mindex.challenge.dao;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.mindex.challenge.data.Employee;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded, read-through, in-process cache in front of {@link EmployeeRepository} lookups by employee ID. Once full,
+ * it evicts by Caffeine's frequency-based (W-TinyLFU) policy, and entries expire a while after they were written
+ * regardless, in case the DB was changed from elsewhere. The employee service writes through it on every update.
+ *
+ * Employees are mutable, so every record going into or coming out of the cache is a copy. That way nothing a caller
+ * does to a record can leak into anyone else's.
+ *
+ * Configured through the <code>employee.cache.*</code> properties, and can be switched off altogether, in which case
+ * every lookup goes straight to the repo.
+ */
+@Component
+public class EmployeeCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmployeeCache.class);
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Value("${employee.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${employee.cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${employee.cache.ttl:10m}")
+    private Duration ttl;
+
+    private Cache<String, Employee> cache;
+
+    @PostConstruct
+    public void init() {
+        if(enabled) {
+            cache = Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(ttl.toMillis(), TimeUnit.MILLISECONDS)
+                    .recordStats()
+                    .build();
+        }
+
+        LOG.debug("Employee cache enabled [{}] with max size [{}] and TTL [{}]", enabled, maxSize, ttl);
+    }
+
+    /**
+     * @return Employee -- the employee with the given ID, from the cache if it's there, else read through from the
+     * repo. Null if there is no such employee.
+     */
+    public Employee find(String employeeId) {
+        if(!enabled) {
+            return employeeRepository.findByEmployeeId(employeeId);
+        }
+
+        return copy(cache.get(employeeId, employeeRepository::findByEmployeeId));
+    }
+
+    /**
+     * @return Employee -- the employee with the given ID if they're cached, else null, without ever going to the repo.
+     * For callers with their own way of reading the repo, who {@link #put} what they read.
+     */
+    public Employee getIfPresent(String employeeId) {
+        return enabled ? copy(cache.getIfPresent(employeeId)) : null;
+    }
+
+    /**
+     * Looks up all of the given employees, reading whichever aren't cached through from the repo with a single query.
+     * IDs which don't exist are left out of the result.
+     */
+    public Map<String, Employee> findAll(Collection<String> employeeIds) {
+        Map<String, Employee> found = new HashMap<>();
+
+        if(!enabled) {
+            for(Employee employee : employeeRepository.findByEmployeeIdIn(employeeIds)) {
+                found.put(employee.getEmployeeId(), employee);
+            }
+            return found;
+        }
+
+        Map<String, Employee> cached = cache.getAll(employeeIds, missingIds -> {
+            Map<String, Employee> loaded = new HashMap<>();
+            for(Employee employee : employeeRepository.findByEmployeeIdIn(toCollection(missingIds))) {
+                loaded.put(employee.getEmployeeId(), employee);
+            }
+            return loaded;
+        });
+
+        cached.forEach((employeeId, employee) -> found.put(employeeId, copy(employee)));
+        return found;
+    }
+
+    /**
+     * Writes the given, freshly persisted, employee through to the cache, unless what's cached is of a later version,
+     * as happens when two updates' write throughs land the other way round from their saves.
+     */
+    public void put(Employee employee) {
+        if(enabled) {
+            cache.asMap().merge(employee.getEmployeeId(), copy(employee),
+                    (cached, fresh) -> versionOf(cached) > versionOf(fresh) ? cached : fresh);
+        }
+    }
+
+    private static long versionOf(Employee employee) {
+        return null == employee.getVersion() ? 0 : employee.getVersion();
+    }
+
+    /**
+     * Drops the given employee from the cache, so the next lookup goes to the repo.
+     */
+    public void invalidate(String employeeId) {
+        if(enabled) {
+            cache.invalidate(employeeId);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * @return long -- roughly how many employees are cached right now.
+     */
+    public long size() {
+        return enabled ? cache.estimatedSize() : 0;
+    }
+
+    /**
+     * @return CacheStats -- hit, miss, load and eviction counters since start-up. All zeros if the cache is disabled.
+     */
+    public CacheStats stats() {
+        return enabled ? cache.stats() : CacheStats.empty();
+    }
+
+    private static Collection<String> toCollection(Iterable<? extends String> employeeIds) {
+        Set<String> collection = new HashSet<>();
+        employeeIds.forEach(collection::add);
+        return collection;
+    }
+
+    /**
+     * Copies the given employee, and any direct report records nested in it, so the copy shares nothing mutable with
+     * the original.
+     */
+    private static Employee copy(Employee employee) {
+        if(null == employee) {
+            return null;
+        }
+
+        Employee copy = new Employee();
+        copy.setEmployeeId(employee.getEmployeeId());
+        copy.setFirstName(employee.getFirstName());
+        copy.setLastName(employee.getLastName());
+        copy.setPosition(employee.getPosition());
+        copy.setDepartment(employee.getDepartment());
+        copy.setVersion(employee.getVersion());
+
+        if(null != employee.getDirectReports()) {
+            for(Employee directReport : employee.getDirectReports()) {
+                copy.addDirectReport(copy(directReport));
+            }
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,99 @@
+package com.mindex.challenge.dao;
+
+import com.mindex.challenge.data.Employee;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterLoadEvent;
+import org.springframework.data.mongodb.core.mapping.event.BeforeSaveEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps employee documents down to just their direct reports' IDs. However filled out the directReports handed to the
+ * repo are, the document only ever gets a flat <code>directReportIds</code> array of strings, never copies of the
+ * reports themselves, which would only bloat the document and go stale the moment a report was updated.
+ *
+ * Going the other way, the IDs are turned back into ID-only stubs before the document is mapped, so as far as the rest
+ * of the app goes an {@link Employee} still comes out of the repo with stubs in its directReports, same as ever.
+ *
+ * Works on the documents rather than the employees, so the employee being saved is left as the caller had it. Covers
+ * every write through a template, blocking or reactive, repo or bulk. Documents from before the switch, with the
+ * reports embedded, are read just fine (the copies are dropped unread) until
+ * {@link com.mindex.challenge.config.DirectReportIdsMigration} gets to them.
+ */
+@Component
+public class EmployeeDocumentListener extends AbstractMongoEventListener<Employee> {
+
+    /**
+     * Where the report IDs are stored.
+     */
+    public static final String DIRECT_REPORT_IDS = "directReportIds";
+
+    /**
+     * Where the reports were embedded before, and where the mapping still looks for them.
+     */
+    public static final String DIRECT_REPORTS = "directReports";
+
+    private static final String ID = "_id";
+
+    @Override
+    public void onBeforeSave(BeforeSaveEvent<Employee> event) {
+        if(null != event.getDocument()) {
+            toStored(event.getDocument());
+        }
+    }
+
+    @Override
+    public void onAfterLoad(AfterLoadEvent<Employee> event) {
+        if(null != event.getDocument()) {
+            fromStored(event.getDocument());
+        }
+    }
+
+    /**
+     * Swaps any embedded directReports in the given employee document for a <code>directReportIds</code> array,
+     * in the same order. A document with no directReports is left alone.
+     *
+     * @return boolean -- whether there was anything to swap.
+     */
+    public static boolean toStored(Document document) {
+        Object directReports = document.remove(DIRECT_REPORTS);
+        if(!(directReports instanceof List)) {
+            return false;
+        }
+
+        List<String> reportIds = new ArrayList<>();
+        for(Object directReport : (List<?>) directReports) {
+            if(directReport instanceof Document && null != ((Document) directReport).get(ID)) {
+                reportIds.add(((Document) directReport).get(ID).toString());
+            }
+        }
+        document.put(DIRECT_REPORT_IDS, reportIds);
+        return true;
+    }
+
+    /**
+     * The other way from {@link #toStored}: turns the stored IDs back into <code>{_id: ...}</code> stubs under
+     * directReports, which the mapping reads as ID-only employees. Reports still embedded in full, in a document that
+     * hasn't been migrated yet, are cut down to stubs the same way.
+     */
+    public static void fromStored(Document document) {
+        Object reportIds = document.remove(DIRECT_REPORT_IDS);
+        if(!(reportIds instanceof List)) {
+            //Nothing stored the new way, so fall back on anything stored the old way
+            toStored(document);
+            reportIds = document.remove(DIRECT_REPORT_IDS);
+            if(!(reportIds instanceof List)) {
+                return;
+            }
+        }
+
+        List<Document> stubs = new ArrayList<>();
+        for(Object reportId : (List<?>) reportIds) {
+            stubs.add(new Document(ID, reportId));
+        }
+        document.put(DIRECT_REPORTS, stubs);
+    }
+}
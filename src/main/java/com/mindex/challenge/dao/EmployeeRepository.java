@@ -3,8 +3,25 @@ package com.mindex.challenge.dao;
 import com.mindex.challenge.data.Employee;
 import org.springframework.stereotype.Repository;
 import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.data.mongodb.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface EmployeeRepository extends MongoRepository<Employee, String> {
     Employee findByEmployeeId(String employeeId);
+
+    /**
+     * Fetches every employee whose ID is in the given collection with a single <code>$in</code> query. IDs with no
+     * matching record are simply absent from the result.
+     */
+    List<Employee> findByEmployeeIdIn(Collection<String> employeeIds);
+
+    /**
+     * Fetches the managers of the given employee, i.e. everyone who lists them among their directReports. Spelled out,
+     * as the reports are stored by ID rather than how the Employee has them, see {@link EmployeeDocumentListener}.
+     */
+    @Query("{ 'directReportIds' : ?0 }")
+    List<Employee> findByDirectReportsEmployeeId(String employeeId);
 }
@@ -0,0 +1,22 @@
+package com.mindex.challenge.dao.reactive;
+
+import com.mindex.challenge.data.Compensation;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+/**
+ * Non-blocking twin of {@link com.mindex.challenge.dao.CompensationRepository}, for the "reactive" profile.
+ */
+@Repository
+public interface ReactiveCompensationRepository extends ReactiveMongoRepository<Compensation, String> {
+
+    /**
+     * Fetches the compensation in effect for the given employee as of the given date, meaning the newest one that had
+     * already taken effect by then.
+     */
+    Mono<Compensation> findFirstByEmployeeIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(String employeeId,
+                                                                                                LocalDate asOf);
+}
@@ -0,0 +1,23 @@
+package com.mindex.challenge.dao.reactive;
+
+import com.mindex.challenge.data.Employee;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+
+/**
+ * Non-blocking twin of {@link com.mindex.challenge.dao.EmployeeRepository}, for the "reactive" profile.
+ */
+@Repository
+public interface ReactiveEmployeeRepository extends ReactiveMongoRepository<Employee, String> {
+
+    Mono<Employee> findByEmployeeId(String employeeId);
+
+    /**
+     * Fetches every employee whose ID is in the given collection with a single <code>$in</code> query.
+     */
+    Flux<Employee> findByEmployeeIdIn(Collection<String> employeeIds);
+}
@@ -0,0 +1,81 @@
+package com.mindex.challenge.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a bulk import of records. Records are imported independently of one another, so one bad record is
+ * reported here against its position in the input, rather than failing the whole import.
+ */
+public class BulkImportResult {
+
+    /**
+     * Number of records read from the input, good or bad.
+     */
+    private int received;
+
+    /**
+     * Number of records successfully written.
+     */
+    private int imported;
+
+    /**
+     * Everything that went wrong, one entry per failed record.
+     */
+    private List<RecordError> errors;
+
+    public BulkImportResult() {
+        errors = new ArrayList<>();
+    }
+
+    public void addError(int index, String id, String message) {
+        errors.add(new RecordError(index, id, message));
+    }
+
+    public void incrementReceived() {received++;}
+    public void incrementImported() {imported++;}
+
+    public void setReceived(int received) {this.received = received;}
+    public int getReceived() {return received;}
+
+    public void setImported(int imported) {this.imported = imported;}
+    public int getImported() {return imported;}
+
+    public void setErrors(List<RecordError> errors) {this.errors = errors;}
+    public List<RecordError> getErrors() {return errors;}
+
+    /**
+     * Why a single record failed to import.
+     */
+    public static class RecordError {
+
+        /**
+         * Position of the failed record in the input, counting from 0.
+         */
+        private int index;
+
+        /**
+         * The ID of the failed record, if it got far enough along to have one.
+         */
+        private String id;
+
+        private String message;
+
+        public RecordError() {}
+
+        public RecordError(int index, String id, String message) {
+            this.index = index;
+            this.id = id;
+            this.message = message;
+        }
+
+        public void setIndex(int index) {this.index = index;}
+        public int getIndex() {return index;}
+
+        public void setId(String id) {this.id = id;}
+        public String getId() {return id;}
+
+        public void setMessage(String message) {this.message = message;}
+        public String getMessage() {return message;}
+    }
+}
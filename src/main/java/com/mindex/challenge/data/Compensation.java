@@ -33,4 +33,12 @@ public class Compensation {
 
     public void setEffectiveDate(LocalDate effectiveDate) {this.effectiveDate = effectiveDate;}
     public LocalDate getEffectiveDate() {return effectiveDate;}
+
+    /**
+     * Kept short for the logs, and leaves the salary out of them.
+     */
+    @Override
+    public String toString() {
+        return "Compensation{employeeId=" + employeeId + ", effectiveDate=" + effectiveDate + "}";
+    }
 }
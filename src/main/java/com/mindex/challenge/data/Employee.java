@@ -1,17 +1,31 @@
 package com.mindex.challenge.data;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.data.annotation.Id;
 
 import java.util.ArrayList;
 import java.util.List;
 
 public class Employee {
+    /**
+     * Stored as the document's <code>_id</code>, so it's unique and indexed for free, and saving an existing employee
+     * replaces their record rather than adding a second copy.
+     */
+    @Id
     private String employeeId;
     private String firstName;
     private String lastName;
     private String position;
     private String department;
     private List<Employee> directReports;
+    /**
+     * Goes up by one every time the employee is updated through the employee service, and is what their ETag is made
+     * from. Null for records that have never been through the service, which counts as version 0. Direct report stubs
+     * don't have one, so it's left out of the JSON when null.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long version;
 
     public Employee() {
         //Added this initialization of the reports to an empty list, as it's good practice to avoid those pesky NPEs on
@@ -100,4 +114,22 @@ public class Employee {
     public void setDirectReports(List<Employee> directReports) {
         this.directReports = directReports;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    /**
+     * Kept short for the logs: who they are and how many direct reports they have, never the reports themselves.
+     */
+    @Override
+    public String toString() {
+        return "Employee{employeeId=" + employeeId
+                + ", name=" + firstName + " " + lastName
+                + ", directReports=" + (null == directReports ? 0 : directReports.size()) + "}";
+    }
 }
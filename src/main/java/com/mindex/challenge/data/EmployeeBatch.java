@@ -0,0 +1,25 @@
+package com.mindex.challenge.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of reading a batch of employees by ID. Every employee found is in {@link #employees}, in the order they were
+ * asked for, and every ID with no employee behind it is in {@link #missingIds}, rather than failing the whole batch.
+ */
+public class EmployeeBatch {
+
+    private List<Employee> employees;
+    private List<String> missingIds;
+
+    public EmployeeBatch() {
+        employees = new ArrayList<>();
+        missingIds = new ArrayList<>();
+    }
+
+    public void setEmployees(List<Employee> employees) {this.employees = employees;}
+    public List<Employee> getEmployees() {return employees;}
+
+    public void setMissingIds(List<String> missingIds) {this.missingIds = missingIds;}
+    public List<String> getMissingIds() {return missingIds;}
+}
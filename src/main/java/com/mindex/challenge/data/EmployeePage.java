@@ -0,0 +1,32 @@
+package com.mindex.challenge.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One page of a listing of employees, in employeeId order. The page after this one is fetched by passing its
+ * {@link #nextCursor} back as the <code>after</code> of the next request, and there's no page after it if that's null.
+ *
+ * The cursor is just the last employeeId on the page, so paging stays as quick on the last page as on the first, and
+ * an employee added or changed mid-listing never makes anyone come up twice or get skipped.
+ */
+public class EmployeePage {
+
+    private List<Employee> employees;
+    private String nextCursor;
+
+    public EmployeePage() {
+        employees = new ArrayList<>();
+    }
+
+    public EmployeePage(List<Employee> employees, String nextCursor) {
+        this.employees = employees;
+        this.nextCursor = nextCursor;
+    }
+
+    public void setEmployees(List<Employee> employees) {this.employees = employees;}
+    public List<Employee> getEmployees() {return employees;}
+
+    public void setNextCursor(String nextCursor) {this.nextCursor = nextCursor;}
+    public String getNextCursor() {return nextCursor;}
+}
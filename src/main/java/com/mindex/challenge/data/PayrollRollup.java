@@ -0,0 +1,65 @@
+package com.mindex.challenge.data;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.math.BigDecimal;
+
+/**
+ * Salary figures for everyone reporting under a given employee, directly or otherwise, at any depth. Just like
+ * {@link ReportingStructure#getNumberOfReports()}, nobody is counted twice, and the employee themselves isn't counted.
+ *
+ * Only the compensation currently in effect counts for each report. Reports with no compensation at all still count
+ * towards the {@link #headcount}, but not towards any of the salary figures.
+ */
+public class PayrollRollup {
+
+    private String employeeId;
+
+    /**
+     * Number of distinct reports under the employee.
+     */
+    private int headcount;
+
+    /**
+     * How many of those reports have a salary, which is what the {@link #averageSalary} is taken over.
+     */
+    private int salariedCount;
+
+    @JsonFormat(shape = JsonFormat.Shape.NUMBER_FLOAT)
+    private BigDecimal totalSalary;
+
+    /**
+     * Rounded to the cent. Null, along with the min and max, if nobody under the employee has a salary.
+     */
+    @JsonFormat(shape = JsonFormat.Shape.NUMBER_FLOAT)
+    private BigDecimal averageSalary;
+
+    @JsonFormat(shape = JsonFormat.Shape.NUMBER_FLOAT)
+    private BigDecimal minSalary;
+
+    @JsonFormat(shape = JsonFormat.Shape.NUMBER_FLOAT)
+    private BigDecimal maxSalary;
+
+    public PayrollRollup() {}
+
+    public void setEmployeeId(String employeeId) {this.employeeId = employeeId;}
+    public String getEmployeeId() {return employeeId;}
+
+    public void setHeadcount(int headcount) {this.headcount = headcount;}
+    public int getHeadcount() {return headcount;}
+
+    public void setSalariedCount(int salariedCount) {this.salariedCount = salariedCount;}
+    public int getSalariedCount() {return salariedCount;}
+
+    public void setTotalSalary(BigDecimal totalSalary) {this.totalSalary = totalSalary;}
+    public BigDecimal getTotalSalary() {return totalSalary;}
+
+    public void setAverageSalary(BigDecimal averageSalary) {this.averageSalary = averageSalary;}
+    public BigDecimal getAverageSalary() {return averageSalary;}
+
+    public void setMinSalary(BigDecimal minSalary) {this.minSalary = minSalary;}
+    public BigDecimal getMinSalary() {return minSalary;}
+
+    public void setMaxSalary(BigDecimal maxSalary) {this.maxSalary = maxSalary;}
+    public BigDecimal getMaxSalary() {return maxSalary;}
+}
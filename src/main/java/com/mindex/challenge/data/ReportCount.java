@@ -0,0 +1,24 @@
+package com.mindex.challenge.data;
+
+/**
+ * Lightweight stand-in for a {@link ReportingStructure}, for when only the {@link ReportingStructure#getNumberOfReports()}
+ * is wanted and not the whole filled out structure. Counts follow exactly the same rules.
+ */
+public class ReportCount {
+
+    private String employeeId;
+    private int numberOfReports;
+
+    public ReportCount() {}
+
+    public ReportCount(String employeeId, int numberOfReports) {
+        this.employeeId = employeeId;
+        this.numberOfReports = numberOfReports;
+    }
+
+    public void setEmployeeId(String employeeId) {this.employeeId = employeeId;}
+    public String getEmployeeId() {return employeeId;}
+
+    public void setNumberOfReports(int numberOfReports) {this.numberOfReports = numberOfReports;}
+    public int getNumberOfReports() {return numberOfReports;}
+}
@@ -0,0 +1,58 @@
+package com.mindex.challenge.data;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+/**
+ * One employee's place in a {@link ReportingStructure}, on its own: who they are, who they were reached through, and
+ * how far below the root of the structure they sit. Used when streaming a structure out one employee at a time,
+ * rather than building the whole thing up in memory first.
+ */
+public class ReportEntry {
+
+    private String employeeId;
+    private String firstName;
+    private String lastName;
+    private String position;
+    private String department;
+
+    /**
+     * The manager under whom this employee was reached, or null for the root of the structure.
+     */
+    private String managerId;
+
+    /**
+     * How many levels below the root of the structure this employee sits, the root itself being at 0.
+     */
+    private int depth;
+
+    public ReportEntry() {}
+
+    /**
+     * @return String -- as, "firstName lastName", exactly like {@link Employee#getFullName()}.
+     */
+    @JsonIgnore
+    public String getFullName() {
+        return String.format("%s %s", firstName, lastName);
+    }
+
+    public void setEmployeeId(String employeeId) {this.employeeId = employeeId;}
+    public String getEmployeeId() {return employeeId;}
+
+    public void setFirstName(String firstName) {this.firstName = firstName;}
+    public String getFirstName() {return firstName;}
+
+    public void setLastName(String lastName) {this.lastName = lastName;}
+    public String getLastName() {return lastName;}
+
+    public void setPosition(String position) {this.position = position;}
+    public String getPosition() {return position;}
+
+    public void setDepartment(String department) {this.department = department;}
+    public String getDepartment() {return department;}
+
+    public void setManagerId(String managerId) {this.managerId = managerId;}
+    public String getManagerId() {return managerId;}
+
+    public void setDepth(int depth) {this.depth = depth;}
+    public int getDepth() {return depth;}
+}
@@ -1,10 +1,20 @@
 package com.mindex.challenge.data;
 
-import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.mindex.challenge.ex.MissingEmployeeException;
+import com.mindex.challenge.graph.CompactHierarchy;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Class representing a given {@link Employee} and their <em>distinct</em> {@link Employee#directReports}. So, this
@@ -14,10 +24,11 @@ import java.util.List;
  */
 public class ReportingStructure {
 
-    //Some basic string constants for the tree-like representation of the structure.
+    //Some basic string constants for the tree-like representation of the structure. A report's marker is the bar
+    //followed by one more dash than the level above it, i.e. "|--" for direct reports, "|---" under those, and so on.
     private static final String EMPLOYEE_ROOT_SYMBOL = "+";
-    private static final String DIRECT_REPORT_SYMBOL = "|--";
-    private static final String SUB_DIRECT_REPORT_SYMBOL = "|---";
+    private static final String REPORT_SYMBOL_BAR = "|";
+    private static final String REPORT_SYMBOL_DASH = "-";
 
     /**
      * The employee to which this reporting structure pertains.
@@ -25,8 +36,8 @@ public class ReportingStructure {
     private Employee employee;
 
     /**
-     * The number of employees directly reporting to the {@link #employee} and the number of distinct reports under each
-     * one of them.
+     * The number of distinct employees reporting to the {@link #employee}, directly or otherwise, at any depth (down to
+     * {@link #maxDepth}, if set).
      */
     private int numberOfReports;
 
@@ -35,13 +46,26 @@ public class ReportingStructure {
      */
     private String title;
 
+    /**
+     * How many levels below the {@link #employee} the structure covers, or null for no limit at all.
+     */
+    private Integer maxDepth;
+
+    /**
+     * Whether the directReports were found to loop back around on themselves somewhere in the structure. Bad data, but
+     * it happens. The loop is cut wherever it's found, and nobody is counted twice.
+     */
+    private boolean cycleDetected;
+
     /**
      * A basic tree-like rendering of a fully filled out reporting structure where...
      * "+" denotes the root employee for which the structure applies,
-     *  "|--" denotes a direct report under that root, and
-     *  "|---" denotes a direct report's distinct report.
+     *  "|--" denotes a direct report under that root,
+     *  "|---" denotes a direct report's distinct report, and
+     *  each level further down gets one more "-" than the last.
      *
-     *  Given all that, an example of a filled out report could look like...
+     *  Each marker is indented to line up with the start of its parent's name. Given all that, an example of a filled
+     *  out report could look like...
      *  +John Lennon
      *  |--Paul McCartney
      *  |--Ringo Starr
@@ -55,6 +79,13 @@ public class ReportingStructure {
 
     public ReportingStructure(Employee employee) {this.employee = employee;}
 
+    /**
+     * Same as {@link #calculateStructure(Integer)}, with no limit on depth.
+     */
+    public void calculateStructure() {
+        calculateStructure(null);
+    }
+
     /**
      * Performs one bit of light validation, then fills out the reporting structure if it's satisfied, based on the
      * given, {@link #employee}.
@@ -64,63 +95,323 @@ public class ReportingStructure {
      *
      * Note that because of the way {@link com.mindex.challenge.service.impl.ReportingStructureServiceImpl#read(String)}
      * handles fetching the employee with the given ID, we're sure that we have full employee records when we get here.
+     * That said, an ID-only stub is fine so long as the full record for that ID turns up somewhere else in the tree.
+     *
+     * @param maxDepth -- how many levels of reports to include below the employee, or null for all of them. With a
+     * limit, anyone listed in several places is shown where they sit highest up, so nobody within it is cut off.
      */
-    public void calculateStructure() {
+    public void calculateStructure(Integer maxDepth) {
         //If there isn't an employee specified, throw custom exception for it because there is no applicable structure.
         if(null == employee) {
             throw new MissingEmployeeException();
         }
 
+        this.maxDepth = maxDepth;
+        numberOfReports = 0;
+        cycleDetected = false;
         title = "Reporting structure prepared for: " + employee.getLastFirst();
 
-        //If there is an employee, then we're all set, let's build out their structure. Filling out the direct reports
-        //is a straightforward read off of an Employee instance. However, under each of those
-        //direct reports we need DISTINCT reports. So, we should keep track of all the sub-direct reports we've
-        //processed, just in case of duplicates in the structure. We use employee IDs, since there could technically be
-        //duplicate names.
-        List<String> knownReportingIds = new ArrayList<>();
+        //The same employee may be listed in several places, sometimes as a full record and sometimes as a stub. Index
+        //the full records by ID first, so wherever we run into someone we can carry on with everything we know of them.
+        Map<String, Employee> fullRecords = indexFullRecords(employee);
+
+        //With a max depth, someone listed in several places is only taken in where they sit highest up. Otherwise, if
+        //they were first run into right at the limit, they'd be skipped as a duplicate when run into higher up later
+        //on, and everyone under them who's still in reach from there would be lost.
+        Map<String, Integer> shallowestDepths = null == maxDepth
+                ? null
+                : findShallowestDepths(employee, fullRecords, maxDepth);
+
+        //We need DISTINCT reports, so keep track of all the IDs we've already processed, just in case of duplicates in
+        //the structure. We use employee IDs, since there could technically be duplicate names. The root counts as
+        //processed from the start, since they can't report to themselves.
+        Set<String> knownReportingIds = new HashSet<>();
+        knownReportingIds.add(employee.getEmployeeId());
 
         //We'll also build the tree-like representation as we go. Mark the root as our employee
-        StringBuilder sb = new StringBuilder(EMPLOYEE_ROOT_SYMBOL).append(employee.getFullName()).append("\n");
+        StringBuilder sb = new StringBuilder(linePrefix(0)).append(employee.getFullName()).append("\n");
 
-        //Let's get started by running through the directReports
-        for(Employee directReport : employee.getDirectReports()) {
+        //Walk the structure depth-first with our own stack, rather than recursing, so there's no limit on how deep it
+        //can go. Alongside, keep the chain of IDs from the root down to wherever we currently are, which is how we spot
+        //reports that loop back around to one of their own managers.
+        Deque<Node> stack = new ArrayDeque<>();
+        List<String> path = new ArrayList<>();
+        Set<String> pathIds = new HashSet<>();
+        path.add(employee.getEmployeeId());
+        pathIds.add(employee.getEmployeeId());
+        pushDirectReports(stack, employee, 1, maxDepth);
 
-            //First, increment the number of reports
+        while(!stack.isEmpty()) {
+            Node node = stack.pop();
+
+            //Back up the path to this report's manager
+            while(path.size() > node.depth) {
+                pathIds.remove(path.remove(path.size() - 1));
+            }
+
+            String reportId = node.employee.getEmployeeId();
+            if(pathIds.contains(reportId)) {
+                //This report is one of their own managers, so there's nothing more to see down here
+                cycleDetected = true;
+                continue;
+            }
+
+            //Leave anyone who sits higher up somewhere else to be taken in there
+            if(null != shallowestDepths && node.depth > shallowestDepths.getOrDefault(reportId, node.depth)) {
+                continue;
+            }
+
+            //Only process if we know this isn't a duplicate
+            if(!knownReportingIds.add(reportId)) {
+                continue;
+            }
+
+            Employee report = fullRecords.getOrDefault(reportId, node.employee);
+
+            //Increment our counter, and add the report's line to the tree-like display
             numberOfReports++;
+            sb.append(linePrefix(node.depth)).append(report.getFullName()).append("\n");
 
-            //Next, build the directReport's node in the tree-like string for display
-            sb.append(DIRECT_REPORT_SYMBOL).append(directReport.getFullName()).append("\n");
+            //Then queue up their own reports, in order, to be processed next
+            path.add(reportId);
+            pathIds.add(reportId);
+            pushDirectReports(stack, report, node.depth + 1, maxDepth);
+        }
 
-            //Add their ID to the known list, as they could potentially appear in other directReport reports
-            knownReportingIds.add(directReport.getEmployeeId());
+        //At this point, we should have incremented for everyone in the structure. Just finally build the detail string
+        treeLikeDisplay = sb.toString();
+    }
 
-            //Now, let's process distinct sub-direct reports, if there are any.
-            for(Employee subDirectReport : directReport.getDirectReports()) {
+    /**
+     * Same as {@link #calculateStructure(Integer)}, by the very same rules, but walking the given compact hierarchy
+     * rather than the {@link #employee}'s own directReports. So the {@link #employee} here only needs to be the root
+     * record, no need for anyone under them to be filled out at all.
+     *
+     * Nothing is created per report along the way except their line in the display: the walk's stack, the path down
+     * to the current report, and the note of who's been seen are all ints and bits.
+     *
+     * @param hierarchy -- must hold the {@link #employee}.
+     * @param maxDepth -- how many levels of reports to include below the employee, or null for all of them.
+     */
+    public void calculateStructure(CompactHierarchy hierarchy, Integer maxDepth) {
+        if(null == employee) {
+            throw new MissingEmployeeException();
+        }
+
+        int root = hierarchy.ordinalOf(employee.getEmployeeId());
+        if(root < 0) {
+            throw new IllegalArgumentException("Employee not in hierarchy: " + employee.getEmployeeId());
+        }
+
+        this.maxDepth = maxDepth;
+        numberOfReports = 0;
+        cycleDetected = false;
+        title = "Reporting structure prepared for: " + employee.getLastFirst();
+
+        BitSet seen = new BitSet(hierarchy.size());
+        seen.set(root);
+
+        //Same as above, with a max depth, everyone is only taken in where they sit highest up
+        int[] shallowestDepths = null == maxDepth ? null : findShallowestDepths(hierarchy, root, maxDepth);
+        StringBuilder sb = new StringBuilder(linePrefix(0)).append(employee.getFullName()).append("\n");
+
+        //The chain of ordinals from the root down to where we are, and the same as a set for quick checks
+        int[] path = new int[16];
+        int pathSize = 0;
+        BitSet onPath = new BitSet(hierarchy.size());
+        path[pathSize++] = root;
+        onPath.set(root);
 
-                //Only process if we know this isn't a duplicate
-                if(!knownReportingIds.contains(subDirectReport.getEmployeeId())) {
-                    //Increment our counter
-                    numberOfReports++;
+        //The stack, as parallel arrays of ordinals and their depths
+        int[] stackOrdinals = new int[16];
+        int[] stackDepths = new int[16];
+        int stackSize = 0;
 
-                    //Add to string representation, taking correct indentation into account. We know that the "|---"
-                    //marker should account for indentation, meaning it should align with the start of the parent's
-                    //name. Pad the string with spaces up to appropriate index
-                    sb.append(" ".repeat(DIRECT_REPORT_SYMBOL.length()))
-                            .append(SUB_DIRECT_REPORT_SYMBOL)
-                            .append(subDirectReport.getFullName())
-                            .append("\n");
+        int ordinal = root;
+        int depth = 0;
+        while(true) {
+            //Queue up the current employee's reports so they pop off in their listed order, unless that's too deep
+            int reportCount = hierarchy.getReportCount(ordinal);
+            if(null == maxDepth || depth + 1 <= maxDepth) {
+                if(stackSize + reportCount > stackOrdinals.length) {
+                    int capacity = Math.max(stackOrdinals.length * 2, stackSize + reportCount);
+                    stackOrdinals = Arrays.copyOf(stackOrdinals, capacity);
+                    stackDepths = Arrays.copyOf(stackDepths, capacity);
+                }
+                for(int i = reportCount - 1; i >= 0; i--) {
+                    stackOrdinals[stackSize] = hierarchy.getReport(ordinal, i);
+                    stackDepths[stackSize++] = depth + 1;
+                }
+            }
+
+            //Then find the next report to process
+            ordinal = -1;
+            while(stackSize > 0 && ordinal < 0) {
+                int next = stackOrdinals[--stackSize];
+                depth = stackDepths[stackSize];
 
-                    //Make sure to add the employee ID to our known list so we can detect later dupes
-                    knownReportingIds.add(subDirectReport.getEmployeeId());
+                //Back up the path to this report's manager
+                while(pathSize > depth) {
+                    onPath.clear(path[--pathSize]);
                 }
+
+                if(onPath.get(next)) {
+                    //This report is one of their own managers, so there's nothing more to see down here
+                    cycleDetected = true;
+                } else if(!seen.get(next) && (null == shallowestDepths || depth <= shallowestDepths[next])) {
+                    ordinal = next;
+                }
+            }
+            if(ordinal < 0) {
+                break;
             }
+
+            seen.set(ordinal);
+            numberOfReports++;
+            sb.append(linePrefix(depth)).append(hierarchy.getFullName(ordinal)).append("\n");
+
+            if(pathSize == path.length) {
+                path = Arrays.copyOf(path, pathSize * 2);
+            }
+            path[pathSize++] = ordinal;
+            onPath.set(ordinal);
         }
 
-        //At this point, we should have incremented for everyone in the structure. Just finally build the detail string
         treeLikeDisplay = sb.toString();
     }
 
+    /**
+     * Pushes the given employee's direct reports onto the stack so that they pop off in their listed order, unless
+     * that would take us past the max depth.
+     */
+    private static void pushDirectReports(Deque<Node> stack, Employee manager, int depth, Integer maxDepth) {
+        if(null != maxDepth && depth > maxDepth) {
+            return;
+        }
+
+        List<Employee> directReports = manager.getDirectReports();
+        if(null == directReports) {
+            return;
+        }
+
+        for(int i = directReports.size() - 1; i >= 0; i--) {
+            stack.push(new Node(directReports.get(i), depth));
+        }
+    }
+
+    /**
+     * Walks the structure under the given employee a level at a time, down to the max depth, following the same
+     * records the depth-first walk does.
+     *
+     * @return Map -- each ID within reach, the root's included, to the fewest levels below the root it's found at.
+     */
+    private static Map<String, Integer> findShallowestDepths(Employee root, Map<String, Employee> fullRecords,
+                                                             int maxDepth) {
+        Map<String, Integer> depths = new HashMap<>();
+        depths.put(root.getEmployeeId(), 0);
+
+        List<Employee> level = Collections.singletonList(root);
+        for(int depth = 1; depth <= maxDepth && !level.isEmpty(); depth++) {
+            List<Employee> nextLevel = new ArrayList<>();
+            for(Employee manager : level) {
+                if(null == manager.getDirectReports()) {
+                    continue;
+                }
+                for(Employee directReport : manager.getDirectReports()) {
+                    if(null == depths.putIfAbsent(directReport.getEmployeeId(), depth)) {
+                        nextLevel.add(fullRecords.getOrDefault(directReport.getEmployeeId(), directReport));
+                    }
+                }
+            }
+            level = nextLevel;
+        }
+
+        return depths;
+    }
+
+    /**
+     * Same as above, over the compact hierarchy.
+     *
+     * @return int[] -- the fewest levels below the root each ordinal is found at, or {@link Integer#MAX_VALUE} for
+     * those out of reach.
+     */
+    private static int[] findShallowestDepths(CompactHierarchy hierarchy, int root, int maxDepth) {
+        int[] depths = new int[hierarchy.size()];
+        Arrays.fill(depths, Integer.MAX_VALUE);
+        depths[root] = 0;
+
+        int[] level = {root};
+        int levelSize = 1;
+        for(int depth = 1; depth <= maxDepth && levelSize > 0; depth++) {
+            int[] nextLevel = new int[16];
+            int nextLevelSize = 0;
+            for(int i = 0; i < levelSize; i++) {
+                int manager = level[i];
+                for(int r = 0; r < hierarchy.getReportCount(manager); r++) {
+                    int report = hierarchy.getReport(manager, r);
+                    if(depths[report] == Integer.MAX_VALUE) {
+                        depths[report] = depth;
+                        if(nextLevelSize == nextLevel.length) {
+                            nextLevel = Arrays.copyOf(nextLevel, nextLevelSize * 2);
+                        }
+                        nextLevel[nextLevelSize++] = report;
+                    }
+                }
+            }
+            level = nextLevel;
+            levelSize = nextLevelSize;
+        }
+
+        return depths;
+    }
+
+    /**
+     * Gathers up every full (i.e. not just an ID stub) employee record in the tree under, and including, the given
+     * employee. Visits each object once, so even a structure whose objects refer back to each other is fine here.
+     */
+    private static Map<String, Employee> indexFullRecords(Employee root) {
+        Map<String, Employee> fullRecords = new HashMap<>();
+        Set<Employee> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        Deque<Employee> stack = new ArrayDeque<>();
+        stack.push(root);
+        while(!stack.isEmpty()) {
+            Employee employee = stack.pop();
+            if(!visited.add(employee)) {
+                continue;
+            }
+
+            if(!employee.isOnlyEmployeeIdSet()) {
+                fullRecords.putIfAbsent(employee.getEmployeeId(), employee);
+            }
+            if(null != employee.getDirectReports()) {
+                for(Employee directReport : employee.getDirectReports()) {
+                    stack.push(directReport);
+                }
+            }
+        }
+
+        return fullRecords;
+    }
+
+    /**
+     * Gets the marker for an employee at the given depth in the tree-like display, where the root is at depth 0,
+     * taking correct indentation into account. The marker is indented to align with the start of the parent's name,
+     * so we pad with spaces up to the appropriate index.
+     *
+     * @return String -- to be followed directly by the employee's full name, to make up their line in the display.
+     */
+    public static String linePrefix(int depth) {
+        if(depth == 0) {
+            return EMPLOYEE_ROOT_SYMBOL;
+        }
+
+        //Each level's marker is one character longer than the last, starting from the 3 of "|--", and the parent's
+        //name starts right where their whole marker ends. Adding those up for every level above gives our indent.
+        int indent = (depth - 1) * (depth + 4) / 2;
+        return " ".repeat(indent) + REPORT_SYMBOL_BAR + REPORT_SYMBOL_DASH.repeat(depth + 1);
+    }
+
     /**
      * @return String describing the fully filled out reporting structure for given employee.
      */
@@ -129,6 +420,19 @@ public class ReportingStructure {
         return String.format("%s (%d).%n%n%s", title, numberOfReports, treeLikeDisplay);
     }
 
+    /**
+     * An employee waiting on the stack, and how far below the root they sit.
+     */
+    private static class Node {
+        private final Employee employee;
+        private final int depth;
+
+        private Node(Employee employee, int depth) {
+            this.employee = employee;
+            this.depth = depth;
+        }
+    }
+
     //STANDARD GETTERS/SETTERS AT THE BOTTOM TO DECREASE THE CLUTTER... logic stuff is all above.
 
     public void setEmployee(Employee employee) {this.employee = employee;}
@@ -153,4 +457,13 @@ public class ReportingStructure {
     private void setTitle(String title) {this.title = title;}
     public String getTitle() {return title;}
 
+    /**
+     * Same as above, these are only ever set by the calc method.
+     */
+    private void setMaxDepth(Integer maxDepth) {this.maxDepth = maxDepth;}
+    public Integer getMaxDepth() {return maxDepth;}
+
+    private void setCycleDetected(boolean cycleDetected) {this.cycleDetected = cycleDetected;}
+    public boolean isCycleDetected() {return cycleDetected;}
+
 }
@@ -0,0 +1,412 @@
+package com.mindex.challenge.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, primitive-backed snapshot of the {@link OrgGraph}, for walking big reporting structures without creating
+ * any objects per employee.
+ *
+ * Every employee ID, including the IDs of reports with no record behind them, is given an int ordinal. Reports and
+ * managers are then held CSR-style: all of everyone's direct reports in one int[], in order, with a second int[]
+ * marking where each employee's run starts, and likewise for managers. Names, positions and departments go into one
+ * shared table of distinct strings, which each employee refers to by index, as those repeat a lot across an org.
+ *
+ * Built in one pass from the graph's nodes. Changes after that don't mean starting over: {@link #patch} hands back a
+ * copy with the changed employees laid over the top, in a small overlay of their own, sharing the arrays underneath.
+ * New IDs get ordinals after the built ones. The overlay is only meant to stay small, so once it isn't, the graph
+ * builds a fresh one in the background and hands out patched copies in the meantime.
+ */
+public final class CompactHierarchy {
+
+    private static final int NONE = -1;
+    private static final int[] NO_ORDINALS = new int[0];
+
+    /**
+     * Ordinal to employee ID. Sorted, so an ID's ordinal is found by binary search without needing a map.
+     */
+    private final String[] ids;
+
+    /**
+     * Which ordinals have an employee record behind them, rather than just being listed as someone's report.
+     */
+    private final BitSet records;
+
+    /**
+     * The direct reports of ordinal o are reports[reportStart[o]] up to, not including, reports[reportStart[o + 1]].
+     */
+    private final int[] reportStart;
+    private final int[] reports;
+
+    /**
+     * Same again for managers, i.e. everyone listing ordinal o as a direct report.
+     */
+    private final int[] managerStart;
+    private final int[] managers;
+
+    /**
+     * Indexes into the string table, or {@link #NONE}.
+     */
+    private final int[] firstNames;
+    private final int[] lastNames;
+    private final int[] positions;
+    private final int[] departments;
+    private final String[] strings;
+
+    /**
+     * The overlay. IDs first seen since the build, whose ordinals follow on from {@link #ids}, and the employees
+     * changed since, by ordinal, along with their reports. Anyone whose managers have changed since has those here
+     * too, whether they've been changed themselves or not. Never modified once handed out, only copied.
+     */
+    private final String[] addedIds;
+    private final Map<String, Integer> addedOrdinals;
+    private final BitSet patched;
+    private final Map<Integer, OrgGraph.Node> patchedNodes;
+    private final Map<Integer, int[]> patchedReports;
+    private final Map<Integer, int[]> patchedManagers;
+
+    private CompactHierarchy(String[] ids, BitSet records, int[] reportStart, int[] reports, int[] managerStart,
+                             int[] managers, int[] firstNames, int[] lastNames, int[] positions, int[] departments,
+                             String[] strings) {
+        this(ids, records, reportStart, reports, managerStart, managers, firstNames, lastNames, positions, departments,
+                strings, new String[0], Map.of(), new BitSet(), Map.of(), Map.of(), Map.of());
+    }
+
+    private CompactHierarchy(String[] ids, BitSet records, int[] reportStart, int[] reports, int[] managerStart,
+                             int[] managers, int[] firstNames, int[] lastNames, int[] positions, int[] departments,
+                             String[] strings, String[] addedIds, Map<String, Integer> addedOrdinals, BitSet patched,
+                             Map<Integer, OrgGraph.Node> patchedNodes, Map<Integer, int[]> patchedReports,
+                             Map<Integer, int[]> patchedManagers) {
+        this.ids = ids;
+        this.records = records;
+        this.reportStart = reportStart;
+        this.reports = reports;
+        this.managerStart = managerStart;
+        this.managers = managers;
+        this.firstNames = firstNames;
+        this.lastNames = lastNames;
+        this.positions = positions;
+        this.departments = departments;
+        this.strings = strings;
+        this.addedIds = addedIds;
+        this.addedOrdinals = addedOrdinals;
+        this.patched = patched;
+        this.patchedNodes = patchedNodes;
+        this.patchedReports = patchedReports;
+        this.patchedManagers = patchedManagers;
+    }
+
+    /**
+     * Builds the hierarchy for the given nodes.
+     */
+    public static CompactHierarchy build(Collection<OrgGraph.Node> nodes) {
+        //Hold on to the nodes we were given, in case the collection is a live view that moves under us
+        List<OrgGraph.Node> snapshot = new ArrayList<>(nodes);
+
+        Set<String> allIds = new HashSet<>();
+        int edgeCount = 0;
+        for(OrgGraph.Node node : snapshot) {
+            allIds.add(node.getEmployeeId());
+            allIds.addAll(node.getDirectReportIds());
+            edgeCount += node.getDirectReportIds().size();
+        }
+
+        String[] ids = allIds.toArray(new String[0]);
+        Arrays.sort(ids);
+        int size = ids.length;
+
+        OrgGraph.Node[] byOrdinal = new OrgGraph.Node[size];
+        for(OrgGraph.Node node : snapshot) {
+            byOrdinal[Arrays.binarySearch(ids, node.getEmployeeId())] = node;
+        }
+
+        BitSet records = new BitSet(size);
+        int[] firstNames = new int[size];
+        int[] lastNames = new int[size];
+        int[] positions = new int[size];
+        int[] departments = new int[size];
+        Map<String, Integer> stringIndexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+
+        int[] reportStart = new int[size + 1];
+        int[] reports = new int[edgeCount];
+        int[] managerCounts = new int[size];
+
+        int edge = 0;
+        for(int ordinal = 0; ordinal < size; ordinal++) {
+            reportStart[ordinal] = edge;
+            OrgGraph.Node node = byOrdinal[ordinal];
+            if(null == node) {
+                firstNames[ordinal] = lastNames[ordinal] = positions[ordinal] = departments[ordinal] = NONE;
+                continue;
+            }
+
+            records.set(ordinal);
+            firstNames[ordinal] = intern(node.getFirstName(), stringIndexes, strings);
+            lastNames[ordinal] = intern(node.getLastName(), stringIndexes, strings);
+            positions[ordinal] = intern(node.getPosition(), stringIndexes, strings);
+            departments[ordinal] = intern(node.getDepartment(), stringIndexes, strings);
+
+            for(String reportId : node.getDirectReportIds()) {
+                int report = Arrays.binarySearch(ids, reportId);
+                reports[edge++] = report;
+                managerCounts[report]++;
+            }
+        }
+        reportStart[size] = edge;
+
+        //Flip the reports around for the managers, counting first so each run knows where it starts
+        int[] managerStart = new int[size + 1];
+        for(int ordinal = 0; ordinal < size; ordinal++) {
+            managerStart[ordinal + 1] = managerStart[ordinal] + managerCounts[ordinal];
+        }
+        int[] managers = new int[edgeCount];
+        int[] filled = new int[size];
+        for(int ordinal = 0; ordinal < size; ordinal++) {
+            for(int i = reportStart[ordinal]; i < reportStart[ordinal + 1]; i++) {
+                int report = reports[i];
+                managers[managerStart[report] + filled[report]++] = ordinal;
+            }
+        }
+
+        return new CompactHierarchy(ids, records, reportStart, reports, managerStart, managers, firstNames, lastNames,
+                positions, departments, strings.toArray(new String[0]));
+    }
+
+    /**
+     * Lays the given nodes over a copy of this hierarchy, each replacing whatever was there for them, and rewires the
+     * managers of any reports they've gained or dropped. This one is left as it was. Patching with a node that's
+     * already in there just leaves it as it is, so it's safe to patch with the same change twice.
+     *
+     * @return CompactHierarchy -- the copy, sharing everything built with this one, so it costs the overlay and no
+     * more.
+     */
+    public CompactHierarchy patch(Collection<OrgGraph.Node> nodes) {
+        List<String> newIds = new ArrayList<>(Arrays.asList(addedIds));
+        Map<String, Integer> newOrdinals = new HashMap<>(addedOrdinals);
+        BitSet newPatched = (BitSet) patched.clone();
+        Map<Integer, OrgGraph.Node> newNodes = new HashMap<>(patchedNodes);
+        Map<Integer, int[]> newReports = new HashMap<>(patchedReports);
+        Map<Integer, int[]> newManagers = new HashMap<>(patchedManagers);
+
+        for(OrgGraph.Node node : nodes) {
+            int ordinal = ordinalOf(node.getEmployeeId(), newIds, newOrdinals);
+            int[] oldReports = newPatched.get(ordinal) ? newReports.get(ordinal) : builtReports(ordinal);
+
+            List<String> reportIds = node.getDirectReportIds();
+            int[] reports = new int[reportIds.size()];
+            for(int i = 0; i < reports.length; i++) {
+                reports[i] = ordinalOf(reportIds.get(i), newIds, newOrdinals);
+            }
+
+            newPatched.set(ordinal);
+            newNodes.put(ordinal, node);
+            newReports.put(ordinal, reports);
+
+            Set<Integer> kept = new HashSet<>();
+            for(int report : reports) {
+                kept.add(report);
+            }
+            Set<Integer> dropped = new HashSet<>();
+            for(int report : oldReports) {
+                if(!kept.contains(report)) {
+                    dropped.add(report);
+                }
+            }
+            for(int report : oldReports) {
+                kept.remove(report);
+            }
+
+            //What's left in kept is everyone newly reporting to them
+            for(int report : dropped) {
+                int[] managers = newManagers.containsKey(report) ? newManagers.get(report) : builtManagers(report);
+                newManagers.put(report, Arrays.stream(managers).filter(manager -> manager != ordinal).toArray());
+            }
+            for(int report : kept) {
+                int[] managers = newManagers.containsKey(report) ? newManagers.get(report) : builtManagers(report);
+                int[] added = Arrays.copyOf(managers, managers.length + 1);
+                added[managers.length] = ordinal;
+                newManagers.put(report, added);
+            }
+        }
+
+        return new CompactHierarchy(ids, records, reportStart, this.reports, managerStart, managers, firstNames,
+                lastNames, positions, departments, strings, newIds.toArray(new String[0]), newOrdinals, newPatched,
+                newNodes, newReports, newManagers);
+    }
+
+    /**
+     * @return int -- the ordinal of the given ID, given a fresh one after the rest if it's new.
+     */
+    private int ordinalOf(String employeeId, List<String> newIds, Map<String, Integer> newOrdinals) {
+        int ordinal = Arrays.binarySearch(ids, employeeId);
+        if(ordinal >= 0) {
+            return ordinal;
+        }
+        return newOrdinals.computeIfAbsent(employeeId, id -> {
+            newIds.add(id);
+            return ids.length + newIds.size() - 1;
+        });
+    }
+
+    private int[] builtReports(int ordinal) {
+        return ordinal < ids.length ? Arrays.copyOfRange(reports, reportStart[ordinal], reportStart[ordinal + 1])
+                : NO_ORDINALS;
+    }
+
+    private int[] builtManagers(int ordinal) {
+        return ordinal < ids.length ? Arrays.copyOfRange(managers, managerStart[ordinal], managerStart[ordinal + 1])
+                : NO_ORDINALS;
+    }
+
+    /**
+     * @return int -- how many IDs are in the overlay, as new or changed or with new managers, rather than built in.
+     */
+    public int getOverlaySize() {
+        return addedIds.length + patchedNodes.size() + patchedManagers.size();
+    }
+
+    private static int intern(String value, Map<String, Integer> stringIndexes, List<String> strings) {
+        if(null == value) {
+            return NONE;
+        }
+        return stringIndexes.computeIfAbsent(value, v -> {
+            strings.add(v);
+            return strings.size() - 1;
+        });
+    }
+
+    /**
+     * @return int -- the ordinal of the given employee ID, or -1 if it isn't in the hierarchy at all.
+     */
+    public int ordinalOf(String employeeId) {
+        int ordinal = Arrays.binarySearch(ids, employeeId);
+        if(ordinal >= 0) {
+            return ordinal;
+        }
+        return addedOrdinals.getOrDefault(employeeId, NONE);
+    }
+
+    /**
+     * Collects the IDs under the given employee, down to the given depth, which are listed as someone's report but have
+     * no record in the hierarchy. Those may well be in the repo, just not loaded into the graph yet.
+     */
+    public List<String> findMissingUnder(int ordinal, Integer maxDepth) {
+        List<String> missing = new ArrayList<>();
+        BitSet seen = new BitSet(size());
+        seen.set(ordinal);
+
+        int[] level = {ordinal};
+        for(int depth = 1; level.length > 0 && (null == maxDepth || depth <= maxDepth); depth++) {
+            int[] nextLevel = new int[0];
+            int next = 0;
+            for(int manager : level) {
+                int reportCount = getReportCount(manager);
+                for(int i = 0; i < reportCount; i++) {
+                    int report = getReport(manager, i);
+                    if(seen.get(report)) {
+                        continue;
+                    }
+                    seen.set(report);
+
+                    if(!hasRecord(report)) {
+                        missing.add(getEmployeeId(report));
+                    } else {
+                        if(next == nextLevel.length) {
+                            nextLevel = Arrays.copyOf(nextLevel, Math.max(16, next * 2));
+                        }
+                        nextLevel[next++] = report;
+                    }
+                }
+            }
+            level = Arrays.copyOf(nextLevel, next);
+        }
+        return missing;
+    }
+
+    /**
+     * @return long -- roughly how many bytes of heap the hierarchy takes up, counting its arrays and the strings in its
+     * table but not the ID strings, which are shared with the rest of the app. The overlay goes in at a rough guess per
+     * entry.
+     */
+    public long estimateBytes() {
+        long bytes = 16L + 8L * ids.length + records.size() / 8 + 64L * getOverlaySize();
+        bytes += 4L * (reportStart.length + reports.length + managerStart.length + managers.length);
+        bytes += 4L * (firstNames.length + lastNames.length + positions.length + departments.length);
+        for(String string : strings) {
+            bytes += 8L + 40L + string.length();
+        }
+        return bytes;
+    }
+
+    public int size() {return ids.length + addedIds.length;}
+
+    public boolean hasRecord(int ordinal) {return patched.get(ordinal) || records.get(ordinal);}
+
+    public String getEmployeeId(int ordinal) {
+        return ordinal < ids.length ? ids[ordinal] : addedIds[ordinal - ids.length];
+    }
+
+    public String getFirstName(int ordinal) {
+        return patched.get(ordinal) ? patchedNodes.get(ordinal).getFirstName() : string(firstNames, ordinal);
+    }
+
+    public String getLastName(int ordinal) {
+        return patched.get(ordinal) ? patchedNodes.get(ordinal).getLastName() : string(lastNames, ordinal);
+    }
+
+    public String getPosition(int ordinal) {
+        return patched.get(ordinal) ? patchedNodes.get(ordinal).getPosition() : string(positions, ordinal);
+    }
+
+    public String getDepartment(int ordinal) {
+        return patched.get(ordinal) ? patchedNodes.get(ordinal).getDepartment() : string(departments, ordinal);
+    }
+
+    /**
+     * @return String -- as, "firstName lastName", same as {@link com.mindex.challenge.data.Employee#getFullName()}.
+     */
+    public String getFullName(int ordinal) {
+        return getFirstName(ordinal) + " " + getLastName(ordinal);
+    }
+
+    public int getReportCount(int ordinal) {
+        if(patched.get(ordinal)) {
+            return patchedReports.get(ordinal).length;
+        }
+        return ordinal < ids.length ? reportStart[ordinal + 1] - reportStart[ordinal] : 0;
+    }
+
+    public int getReport(int ordinal, int index) {
+        return patched.get(ordinal) ? patchedReports.get(ordinal)[index] : reports[reportStart[ordinal] + index];
+    }
+
+    public int getManagerCount(int ordinal) {
+        int[] patchedManagerOrdinals = patchedManagers.get(ordinal);
+        if(null != patchedManagerOrdinals) {
+            return patchedManagerOrdinals.length;
+        }
+        return ordinal < ids.length ? managerStart[ordinal + 1] - managerStart[ordinal] : 0;
+    }
+
+    public int getManager(int ordinal, int index) {
+        int[] patchedManagerOrdinals = patchedManagers.get(ordinal);
+        return null != patchedManagerOrdinals ? patchedManagerOrdinals[index] : managers[managerStart[ordinal] + index];
+    }
+
+    /**
+     * @return String -- the given ordinal's entry in the given column of the string table, or null if they have none,
+     * including if they're new since the build.
+     */
+    private String string(int[] column, int ordinal) {
+        int index = ordinal < ids.length ? column[ordinal] : NONE;
+        return index == NONE ? null : strings[index];
+    }
+}
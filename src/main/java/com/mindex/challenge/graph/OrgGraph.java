@@ -0,0 +1,791 @@
+package com.mindex.challenge.graph;
+
+import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.Employee;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process index of the org: who reports to whom, plus enough of each employee's details to render them. It's built
+ * once from the {@link EmployeeRepository} at startup and kept in sync by the employee service on every create and
+ * update, so reporting structure reads can be served as in-memory traversals.
+ *
+ * Readers never lock. Every {@link Node} is immutable, and a write swaps whole nodes in and out of concurrent maps, so
+ * a reader walking the graph while someone's directReports are being rewired will see either the old or the new list
+ * for that employee, never half of one. Writers are serialized amongst themselves.
+ *
+ * Employees written straight to the repo, bypassing the service, are picked up lazily: any ID missing from the graph is
+ * read through from the repo (in batches) the first time someone asks for it. An ID the repo doesn't have either, like
+ * a report left listed after their record is gone, is remembered as missing, so it isn't asked after again on every
+ * read. That's forgotten on the next write, or rebuild, in case it's them being written.
+ *
+ * The graph also remembers each employee's number of reports once it has been counted, following the same rules as
+ * {@link com.mindex.challenge.data.ReportingStructure}, so repeat lookups need no traversal at all. From then on the
+ * count is kept up to date on write: a change to someone's direct reports adds the size of the structure under each
+ * new report, and takes away that under each one dropped, from the counts of that employee and everyone above them.
+ * Only a change tangled up with someone listed under several managers, or a loop, can't be worked out that way, and
+ * that forgets the counts above it instead, to be counted again when next asked for.
+ *
+ * The tag made from the versions of everyone under each employee is remembered too. Every change forgets the tags of
+ * the employee changed and everyone above them, as those are the only ones it can change.
+ *
+ * The {@link CompactHierarchy} is built the once, and then patched with each change, read throughs included, rather
+ * than built over. Once enough has been patched in, a fresh one is built in the background, and the patched one is
+ * handed out until it's ready.
+ */
+@Component
+public class OrgGraph {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OrgGraph.class);
+
+    /**
+     * The compact hierarchy is built afresh once its overlay holds more than this many IDs, or a sixteenth of the
+     * hierarchy, whichever is more.
+     */
+    private static final int MIN_COMPACT_OVERLAY = 1024;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    /**
+     * Every known employee, by ID.
+     */
+    private final Map<String, Node> nodes = new ConcurrentHashMap<>();
+
+    /**
+     * Reverse of the directReports relation: employee ID to the IDs of everyone listing them as a direct report. The
+     * sets are never modified in place, only replaced.
+     */
+    private final Map<String, Set<String>> managerIds = new ConcurrentHashMap<>();
+
+    /**
+     * IDs read through from the repo and found not to be there, since the last write.
+     */
+    private final Set<String> missingIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Number of distinct reports under each employee, at any depth, for those who have been counted. Kept current on
+     * every change from then on, see {@link #updateReportCounts}.
+     */
+    private final Map<String, Integer> reportCounts = new ConcurrentHashMap<>();
+
+    /**
+     * Tag of the structure under each employee, for those who have been tagged since their part of the org last
+     * changed. See {@link #getStructureTag}.
+     */
+    private final Map<String, String> structureTags = new ConcurrentHashMap<>();
+
+    /**
+     * Bumped on every write, as opposed to read through, so a count or tag worked out while a write was going on can
+     * be told apart from one that's still current. Read throughs don't matter there: working out a count or a tag
+     * reads through everyone under the employee itself, so it always takes in anyone read through meanwhile.
+     */
+    private final AtomicLong writes = new AtomicLong();
+
+    /**
+     * The compact copy of the graph, patched with every change, or null if there isn't one yet. Then a lock so only
+     * one gets built at a time, which writers never wait on.
+     */
+    private volatile CompactHierarchy compactHierarchy;
+    private final Object compactHierarchyLock = new Object();
+
+    /**
+     * While a compact hierarchy is being built, everyone linked since it started, to be patched in once it's done, as
+     * the build may or may not have seen them. Null otherwise. Guarded by the graph's lock, as is the count of
+     * rebuilds, which tells a build that started before a rebuild to throw itself away.
+     */
+    private List<Node> linkedSinceCompacting;
+    private long rebuilds;
+
+    /**
+     * Set while a fresh compact hierarchy is being built in the background, so there's only ever one on the go.
+     */
+    private final AtomicBoolean compacting = new AtomicBoolean();
+
+    /**
+     * Set once the graph has been built from everything in the repo, from when the reverse index of managers can be
+     * trusted to hold everyone's managers. Until then, someone with no managers in it may just have managers who
+     * haven't been read in yet.
+     */
+    private volatile boolean complete;
+
+    /**
+     * Everyone keeping something of their own worked out from the graph, to be told as it changes.
+     */
+    private final List<ChangeListener> changeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Throws away whatever is in the graph and reloads it all from the repo.
+     */
+    public synchronized void rebuild() {
+        complete = false;
+        nodes.clear();
+        managerIds.clear();
+        missingIds.clear();
+        reportCounts.clear();
+        structureTags.clear();
+        writes.incrementAndGet();
+        compactHierarchy = null;
+        rebuilds++;
+
+        //Nothing's been counted or tagged yet, so there's nothing to keep up to date until everyone's in
+        for(Employee employee : employeeRepository.findAll()) {
+            wire(new Node(employee));
+        }
+
+        //Everyone's been replaced, so there's no point telling listeners about each one
+        changeListeners.forEach(ChangeListener::rebuilt);
+        complete = true;
+
+        LOG.debug("Built org graph of [{}] employees", nodes.size());
+    }
+
+    /**
+     * Adds the given employee to the graph, or replaces the existing entry for them, rewiring their direct reports.
+     * Should be called after the employee has been persisted. An entry of a later version than the one given is left
+     * as it is, as that's a later update whose put just got here first.
+     */
+    public synchronized void put(Employee employee) {
+        Node current = nodes.get(employee.getEmployeeId());
+        if(null != current && null != employee.getVersion() && current.getVersion() > employee.getVersion()) {
+            return;
+        }
+
+        writes.incrementAndGet();
+        missingIds.clear();
+        Node node = link(employee);
+        changeListeners.forEach(listener -> listener.linked(node));
+        patchCompactHierarchy(List.of(node));
+    }
+
+    /**
+     * Has the given listener told of every change to the graph from now on.
+     */
+    public void addChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+    }
+
+    /**
+     * @return Node -- the employee with the given ID, read through from the repo if not yet in the graph, or null if
+     * there is no such employee.
+     */
+    public Node get(String employeeId) {
+        return getAll(Collections.singleton(employeeId)).get(employeeId);
+    }
+
+    /**
+     * Looks up all of the given employees, reading any that aren't in the graph yet through from the repo with a
+     * single query. IDs which don't exist anywhere are left out of the result, and those already known not to be in
+     * the repo aren't asked after.
+     */
+    public Map<String, Node> getAll(Collection<String> employeeIds) {
+        Map<String, Node> found = new HashMap<>();
+        List<String> unloadedIds = new ArrayList<>();
+
+        for(String employeeId : employeeIds) {
+            Node node = nodes.get(employeeId);
+            if(null != node) {
+                found.put(employeeId, node);
+            } else if(!missingIds.contains(employeeId)) {
+                unloadedIds.add(employeeId);
+            }
+        }
+
+        if(!unloadedIds.isEmpty()) {
+            found.putAll(load(unloadedIds));
+        }
+
+        return found;
+    }
+
+    /**
+     * @return Set -- IDs of everyone listing the given employee as a direct report. Usually just the one manager.
+     */
+    public Set<String> getManagerIds(String employeeId) {
+        return managerIds.getOrDefault(employeeId, Collections.emptySet());
+    }
+
+    /**
+     * Follows the reverse index up from the given employee, a manager at a time, so it costs one map lookup per level
+     * above them and never a scan of anything. The index is kept up to date by every write through the graph, so
+     * it's complete once the graph holds the org, which is always after start-up. Before then, anyone with no
+     * managers in the index has their managers looked up in the repo, by who lists them as a report, and read in, so
+     * the chain is never cut short by someone just not having been read in yet.
+     *
+     * Anyone listed under more than one manager (bad data) is followed up through whoever listed them first. A chain
+     * looping back around on itself (also bad data) stops at the last employee before the loop comes back round.
+     *
+     * @return List -- the given employee, then their manager, then that manager's manager, and so on up to someone who
+     * reports to nobody. Null if there is no such employee.
+     */
+    public List<Node> getManagementChain(String employeeId) {
+        Node node = get(employeeId);
+        if(null == node) {
+            return null;
+        }
+
+        List<Node> chain = new ArrayList<>();
+        Set<String> chainIds = new HashSet<>();
+        while(null != node && chainIds.add(node.getEmployeeId())) {
+            chain.add(node);
+
+            Set<String> managerIds = getManagerIds(node.getEmployeeId());
+            if(managerIds.isEmpty() && !complete) {
+                linkLoaded(employeeRepository.findByDirectReportsEmployeeId(node.getEmployeeId()));
+                managerIds = getManagerIds(node.getEmployeeId());
+            }
+
+            Iterator<String> managers = managerIds.iterator();
+            node = managers.hasNext() ? nodes.get(managers.next()) : null;
+        }
+
+        return chain;
+    }
+
+    /**
+     * @return Integer -- the number of distinct reports under the given employee, at any depth, never counting anyone
+     * (including the employee themselves) more than once. Null if there is no such employee.
+     */
+    public Integer getReportCount(String employeeId) {
+        Integer reportCount = reportCounts.get(employeeId);
+        if(null != reportCount) {
+            return reportCount;
+        }
+
+        long countedAt = writes.get();
+        Node node = get(employeeId);
+        if(null == node) {
+            return null;
+        }
+        reportCount = countReports(node);
+
+        //Only remember the count if nothing was written while we were counting, otherwise it may already be stale.
+        //Once remembered, every change keeps it up to date.
+        synchronized(this) {
+            if(writes.get() == countedAt) {
+                reportCounts.put(employeeId, reportCount);
+            }
+        }
+
+        return reportCount;
+    }
+
+    /**
+     * @return String -- a tag which stays the same for as long as nobody in the structure under the given employee,
+     * themselves included, is updated or added, and changes as soon as anyone is. It's a digest of everyone's IDs and
+     * versions, so it's just as good across restarts. Null if there is no such employee.
+     */
+    public String getStructureTag(String employeeId) {
+        String structureTag = structureTags.get(employeeId);
+        if(null != structureTag) {
+            return structureTag;
+        }
+
+        long taggedAt = writes.get();
+        Node node = get(employeeId);
+        if(null == node) {
+            return null;
+        }
+        structureTag = tagStructure(node);
+
+        //Same as with the counts, only remember the tag if nothing was written while we were working it out
+        synchronized(this) {
+            if(writes.get() == taggedAt) {
+                structureTags.put(employeeId, structureTag);
+            }
+        }
+
+        return structureTag;
+    }
+
+    /**
+     * @return int -- the number of employees currently held in the graph.
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * @return Collection -- live, read-only view of every employee currently held in the graph.
+     */
+    public Collection<Node> getNodes() {
+        return Collections.unmodifiableCollection(nodes.values());
+    }
+
+    /**
+     * @return CompactHierarchy -- a compact copy of everything currently in the graph. Only the first call, and the
+     * first after a rebuild, builds one, every change after that is patched into it as it happens.
+     */
+    public CompactHierarchy getCompactHierarchy() {
+        CompactHierarchy current = compactHierarchy;
+        if(null != current) {
+            return current;
+        }
+
+        synchronized(compactHierarchyLock) {
+            current = compactHierarchy;
+            return null != current ? current : buildCompactHierarchy();
+        }
+    }
+
+    /**
+     * Builds a fresh compact hierarchy from the nodes, without holding up the writers, patches in anyone linked while
+     * it was at it, and hands it out from then on, unless the graph was rebuilt in the meantime. Callers must hold the
+     * compact hierarchy lock.
+     */
+    private CompactHierarchy buildCompactHierarchy() {
+        long startedAt;
+        synchronized(this) {
+            startedAt = rebuilds;
+            linkedSinceCompacting = new ArrayList<>();
+        }
+
+        CompactHierarchy built = CompactHierarchy.build(nodes.values());
+
+        synchronized(this) {
+            built = built.patch(linkedSinceCompacting);
+            linkedSinceCompacting = null;
+            if(rebuilds == startedAt) {
+                compactHierarchy = built;
+            }
+        }
+
+        LOG.debug("Built compact hierarchy of [{}] IDs, roughly [{}] bytes", built.size(), built.estimateBytes());
+        return built;
+    }
+
+    /**
+     * Patches the given nodes, just linked, into the compact hierarchy, if there is one, and starts building a fresh
+     * one in the background once the patches have piled up. Callers must hold the lock.
+     */
+    private void patchCompactHierarchy(Collection<Node> linked) {
+        if(null != linkedSinceCompacting) {
+            linkedSinceCompacting.addAll(linked);
+        }
+
+        CompactHierarchy current = compactHierarchy;
+        if(null == current || linked.isEmpty()) {
+            return;
+        }
+        current = current.patch(linked);
+        compactHierarchy = current;
+
+        if(current.getOverlaySize() > Math.max(MIN_COMPACT_OVERLAY, current.size() / 16)
+                && compacting.compareAndSet(false, true)) {
+            CompletableFuture.runAsync(() -> {
+                try {
+                    synchronized(compactHierarchyLock) {
+                        buildCompactHierarchy();
+                    }
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Reads the given employees through from the repo. A writer may have beaten us to some of them while the query
+     * was in flight, in which case the writer's version is the fresher one and is kept.
+     *
+     * Only the linking takes the lock, not the query, so several loads can be waiting on the DB at once, and a thread
+     * waiting on the DB never holds up the writers.
+     *
+     * Any the repo doesn't have are remembered as missing, unless there was a write while the query was in flight,
+     * which may have been one of them.
+     */
+    private Map<String, Node> load(Collection<String> employeeIds) {
+        long loadedAt = writes.get();
+        Map<String, Node> loaded = linkLoaded(employeeRepository.findByEmployeeIdIn(employeeIds));
+
+        if(loaded.size() < employeeIds.size()) {
+            synchronized(this) {
+                if(writes.get() == loadedAt) {
+                    for(String employeeId : employeeIds) {
+                        if(!loaded.containsKey(employeeId) && !nodes.containsKey(employeeId)) {
+                            missingIds.add(employeeId);
+                        }
+                    }
+                }
+            }
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Links the given employees, just read from the repo, into the graph, same as {@link #load}, keeping any a writer
+     * has beaten us to.
+     *
+     * @return Map -- each employee's ID to their node in the graph.
+     */
+    private Map<String, Node> linkLoaded(List<Employee> employees) {
+        Map<String, Node> loaded = new HashMap<>();
+        synchronized(this) {
+            List<Node> linkedNodes = new ArrayList<>();
+            for(Employee employee : employees) {
+                Node node = nodes.get(employee.getEmployeeId());
+                if(null == node) {
+                    Node linked = link(employee);
+                    changeListeners.forEach(listener -> listener.linked(linked));
+                    linkedNodes.add(linked);
+                    node = linked;
+                }
+                loaded.put(node.getEmployeeId(), node);
+            }
+
+            //The whole batch in one go, so the overlay's only copied the once
+            patchCompactHierarchy(linkedNodes);
+        }
+
+        return loaded;
+    }
+
+    /**
+     * Swaps the node for the given employee into the graph, along with everything kept alongside it. Callers must hold
+     * the lock.
+     */
+    private Node link(Employee employee) {
+        Node node = new Node(employee);
+        Node previous = wire(node);
+        updateReportCounts(previous, node);
+        forgetStructureTags(node.getEmployeeId());
+        return node;
+    }
+
+    /**
+     * Swaps the given node into the graph and brings the reverse index in line with their current direct reports.
+     * Callers must hold the lock.
+     *
+     * @return Node -- the node replaced, or null if the employee is new to the graph.
+     */
+    private Node wire(Node node) {
+        Node previous = nodes.put(node.getEmployeeId(), node);
+
+        Set<String> oldReportIds = null == previous
+                ? Collections.emptySet()
+                : new HashSet<>(previous.getDirectReportIds());
+        Set<String> newReportIds = new HashSet<>(node.getDirectReportIds());
+
+        for(String reportId : oldReportIds) {
+            if(!newReportIds.contains(reportId)) {
+                managerIds.computeIfPresent(reportId, (id, managers) -> {
+                    Set<String> remaining = new LinkedHashSet<>(managers);
+                    remaining.remove(node.getEmployeeId());
+                    return remaining.isEmpty() ? null : Collections.unmodifiableSet(remaining);
+                });
+            }
+        }
+
+        for(String reportId : newReportIds) {
+            if(!oldReportIds.contains(reportId)) {
+                managerIds.compute(reportId, (id, managers) -> {
+                    Set<String> updated = null == managers ? new LinkedHashSet<>() : new LinkedHashSet<>(managers);
+                    updated.add(node.getEmployeeId());
+                    return Collections.unmodifiableSet(updated);
+                });
+            }
+        }
+
+        return previous;
+    }
+
+    /**
+     * Brings the remembered report counts in line with a change to the given employee's direct reports, which can only
+     * have moved the counts of the employee and everyone above them.
+     *
+     * Where the change, and everyone above it, is all plain tree, that's just adding the size of the structure under
+     * each new report to each of those counts, and taking away the size under each report dropped. It's plain tree so
+     * long as everyone above the employee has the one manager, a report added has nobody else over them and a report
+     * dropped is left with nobody at all, everyone under them has the one manager, and none of them loop back round.
+     * Then nobody under those reports can be reached any other way, so they're sure to be counted exactly once more, or
+     * once less. Otherwise, the counts above are forgotten, to be counted afresh.
+     *
+     * Either way, it only ever looks at who's in the graph, never reads through, so anyone under those reports who
+     * isn't in the graph yet makes for counting afresh too. Callers must hold the lock.
+     */
+    private void updateReportCounts(Node previous, Node node) {
+        String employeeId = node.getEmployeeId();
+        Set<String> oldReportIds = null == previous
+                ? Collections.emptySet()
+                : new HashSet<>(previous.getDirectReportIds());
+        Set<String> newReportIds = new HashSet<>(node.getDirectReportIds());
+        if(null != previous && oldReportIds.equals(newReportIds)) {
+            return;
+        }
+
+        //The employee and everyone above them, a single manager at a time
+        Set<String> chainIds = new LinkedHashSet<>();
+        String id = employeeId;
+        while(null != id) {
+            Set<String> managers = getManagerIds(id);
+            if(!chainIds.add(id) || managers.size() > 1) {
+                forgetReportCounts(employeeId);
+                return;
+            }
+            id = managers.isEmpty() ? null : managers.iterator().next();
+        }
+
+        int delta = 0;
+        for(String reportId : newReportIds) {
+            if(!oldReportIds.contains(reportId)) {
+                int size = treeSize(reportId, 1, chainIds);
+                if(size < 0) {
+                    forgetReportCounts(employeeId);
+                    return;
+                }
+                delta += size;
+            }
+        }
+        for(String reportId : oldReportIds) {
+            if(!newReportIds.contains(reportId)) {
+                int size = treeSize(reportId, 0, chainIds);
+                if(size < 0) {
+                    forgetReportCounts(employeeId);
+                    return;
+                }
+                delta -= size;
+            }
+        }
+
+        //Someone new to the graph had nobody under them before, so they start from nothing and take the change along
+        //with everyone above them
+        if(null == previous) {
+            reportCounts.put(employeeId, 0);
+        }
+        for(String chainId : chainIds) {
+            int change = delta;
+            reportCounts.computeIfPresent(chainId, (countedId, reportCount) -> reportCount + change);
+        }
+    }
+
+    /**
+     * @return int -- the number of IDs under, and including, the given report, going by who's in the graph, or -1 if
+     * that isn't a plain tree all held in the graph: the report has other than the given number of managers, someone
+     * under them has other managers than the one above them in it, loops back round, is in the given chain of managers
+     * above the change, or hasn't been read in.
+     */
+    private int treeSize(String reportId, int reportManagers, Set<String> chainIds) {
+        if(getManagerIds(reportId).size() != reportManagers) {
+            return -1;
+        }
+
+        Set<String> treeIds = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.push(reportId);
+
+        while(!pending.isEmpty()) {
+            String id = pending.pop();
+            if(chainIds.contains(id) || !treeIds.add(id) || (!id.equals(reportId) && getManagerIds(id).size() > 1)) {
+                return -1;
+            }
+
+            //Anyone not read in yet may well have reports of their own, which we can't go and read with the lock held
+            Node report = nodes.get(id);
+            if(null == report) {
+                return -1;
+            }
+            pending.addAll(report.getDirectReportIds());
+        }
+        return treeIds.size();
+    }
+
+    /**
+     * Forgets the report counts of the given employee and of everyone above them, following the managers all the way
+     * up. Callers must hold the lock.
+     */
+    private void forgetReportCounts(String employeeId) {
+        forgetAbove(employeeId, reportCounts);
+    }
+
+    /**
+     * Forgets the structure tags of the given employee and of everyone above them, following the managers all the way
+     * up, as those are the only ones a change to this employee can affect. Callers must hold the lock.
+     */
+    private void forgetStructureTags(String employeeId) {
+        forgetAbove(employeeId, structureTags);
+    }
+
+    private void forgetAbove(String employeeId, Map<String, ?> values) {
+        Set<String> visited = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.push(employeeId);
+
+        while(!pending.isEmpty()) {
+            String id = pending.pop();
+            if(visited.add(id)) {
+                values.remove(id);
+                pending.addAll(getManagerIds(id));
+            }
+        }
+    }
+
+    /**
+     * Counts the distinct reports under the given employee. Report IDs with no record anywhere still count, as they do
+     * in {@link com.mindex.challenge.data.ReportingStructure}, they just have no reports of their own.
+     */
+    private int countReports(Node node) {
+        //The employee themselves is only in there to keep any loops from counting them
+        return collectSubtree(node).size() - 1;
+    }
+
+    /**
+     * MD5s everyone under the given employee, and the employee themselves, by ID and version, in ID order. Report IDs
+     * with no record anywhere go in with a version of -1, so one turning up makes for a new tag.
+     */
+    private String tagStructure(Node node) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("MD5");
+        } catch(NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+
+        for(Map.Entry<String, Node> entry : new TreeMap<>(collectSubtree(node)).entrySet()) {
+            long nodeVersion = null == entry.getValue() ? -1 : entry.getValue().getVersion();
+            digest.update((entry.getKey() + ':' + nodeVersion + '\n').getBytes(StandardCharsets.UTF_8));
+        }
+
+        StringBuilder tag = new StringBuilder();
+        for(byte b : digest.digest()) {
+            tag.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return tag.toString();
+    }
+
+    /**
+     * Gathers everyone under the given employee, at any depth, plus the employee themselves, a level at a time, so
+     * that anyone not yet in the graph is read through with a single query per level.
+     *
+     * @return Map -- each distinct ID in the structure, once, to its node. Report IDs with no record anywhere map to
+     * null.
+     */
+    private Map<String, Node> collectSubtree(Node node) {
+        Map<String, Node> subtree = new HashMap<>();
+        subtree.put(node.getEmployeeId(), node);
+
+        List<String> level = node.getDirectReportIds();
+        while(!level.isEmpty()) {
+            List<String> newIds = new ArrayList<>();
+            for(String reportId : level) {
+                if(!subtree.containsKey(reportId)) {
+                    subtree.put(reportId, null);
+                    newIds.add(reportId);
+                }
+            }
+
+            List<String> nextLevel = new ArrayList<>();
+            if(!newIds.isEmpty()) {
+                for(Node report : getAll(newIds).values()) {
+                    subtree.put(report.getEmployeeId(), report);
+                    nextLevel.addAll(report.getDirectReportIds());
+                }
+            }
+            level = nextLevel;
+        }
+
+        return subtree;
+    }
+
+    /**
+     * Something worked out from the graph, which needs to hear about changes to it as they happen, rather than
+     * finding out later and starting over. Both calls are made with the graph's lock held, so no other change can
+     * come in until they're done, and they should be quick about it.
+     */
+    public interface ChangeListener {
+
+        /**
+         * The given employee has just been added to the graph, or has replaced the entry for them, whether written
+         * through the graph or read through from the repo. Their managers are already wired up.
+         */
+        void linked(Node node);
+
+        /**
+         * Everything in the graph has just been thrown away and reloaded.
+         */
+        void rebuilt();
+    }
+
+    /**
+     * Immutable snapshot of one employee in the graph. Direct reports are held by ID only.
+     */
+    public static class Node {
+        private final String employeeId;
+        private final String firstName;
+        private final String lastName;
+        private final String position;
+        private final String department;
+        private final long version;
+        private final List<String> directReportIds;
+
+        Node(Employee employee) {
+            employeeId = employee.getEmployeeId();
+            firstName = employee.getFirstName();
+            lastName = employee.getLastName();
+            position = employee.getPosition();
+            department = employee.getDepartment();
+            version = null == employee.getVersion() ? 0 : employee.getVersion();
+
+            List<String> reportIds = new ArrayList<>();
+            if(null != employee.getDirectReports()) {
+                for(Employee directReport : employee.getDirectReports()) {
+                    reportIds.add(directReport.getEmployeeId());
+                }
+            }
+            directReportIds = Collections.unmodifiableList(reportIds);
+        }
+
+        /**
+         * @return Employee -- a fresh record for this node, with its direct reports as ID-only stubs, just like the
+         * records stored in the repo.
+         */
+        public Employee toEmployee() {
+            Employee employee = new Employee();
+            employee.setEmployeeId(employeeId);
+            employee.setFirstName(firstName);
+            employee.setLastName(lastName);
+            employee.setPosition(position);
+            employee.setDepartment(department);
+            employee.setVersion(0 == version ? null : version);
+
+            for(String reportId : directReportIds) {
+                Employee stub = new Employee();
+                stub.setEmployeeId(reportId);
+                employee.addDirectReport(stub);
+            }
+            return employee;
+        }
+
+        public String getEmployeeId() {return employeeId;}
+        public String getFirstName() {return firstName;}
+        public String getLastName() {return lastName;}
+        public String getPosition() {return position;}
+        public String getDepartment() {return department;}
+        public long getVersion() {return version;}
+        public List<String> getDirectReportIds() {return directReportIds;}
+    }
+}
@@ -0,0 +1,33 @@
+package com.mindex.challenge.logging;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Reads and changes the {@link DebugSamplingFilter}'s rate at runtime, at <code>/actuator/debugsampling</code>. POST
+ * <code>{"rate": 0.05}</code> to sample one request in twenty, or 0 to stop. Levels themselves are switched through
+ * Actuator's own <code>/actuator/loggers</code>.
+ */
+@Component
+@Endpoint(id = "debugsampling")
+public class DebugSamplingEndpoint {
+
+    @Autowired
+    private DebugSamplingFilter debugSamplingFilter;
+
+    @ReadOperation
+    public Map<String, Double> rate() {
+        return Map.of("rate", debugSamplingFilter.getRate());
+    }
+
+    @WriteOperation
+    public Map<String, Double> setRate(double rate) {
+        debugSamplingFilter.setRate(rate);
+        return rate();
+    }
+}
@@ -0,0 +1,63 @@
+package com.mindex.challenge.logging;
+
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks out a random share of requests, <code>logging.debug-sampling.rate</code> of them, to have their DEBUG lines
+ * logged in full even when the app is logging at INFO, by marking them in the MDC for the
+ * {@link SampledDebugTurboFilter}. The rate can be changed at runtime through the {@link DebugSamplingEndpoint}.
+ *
+ * That way production can run at INFO, with debug logging off the hot path, and still have the odd request to look
+ * at in detail.
+ */
+@Component
+public class DebugSamplingFilter extends OncePerRequestFilter {
+
+    public static final String MDC_KEY = "debugSampled";
+
+    private volatile double rate;
+
+    public DebugSamplingFilter(@Value("${logging.debug-sampling.rate:0}") double rate) {
+        setRate(rate);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if(rate <= 0 || ThreadLocalRandom.current().nextDouble() >= rate) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        MDC.put(MDC_KEY, "true");
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            MDC.remove(MDC_KEY);
+        }
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * @param rate -- the share of requests to sample, from 0 for none up to 1 for all of them.
+     */
+    public void setRate(double rate) {
+        if(rate < 0 || rate > 1) {
+            throw new IllegalArgumentException("Invalid debug sampling rate: " + rate);
+        }
+        this.rate = rate;
+    }
+}
@@ -0,0 +1,35 @@
+package com.mindex.challenge.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.MDC;
+import org.slf4j.Marker;
+
+/**
+ * Lets the app's own DEBUG lines through, whatever the level is set to, for requests that {@link DebugSamplingFilter}
+ * picked for debug logging. Everything else is left to the usual levels.
+ *
+ * Turbo filters are asked about every log call before the level is checked, so this keeps to a string compare and an
+ * MDC lookup, and decides nothing for any other level.
+ */
+public class SampledDebugTurboFilter extends TurboFilter {
+
+    private String prefix = "com.mindex";
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if(level != Level.DEBUG || !logger.getName().startsWith(prefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        return null != MDC.get(DebugSamplingFilter.MDC_KEY) ? FilterReply.ACCEPT : FilterReply.NEUTRAL;
+    }
+
+    /**
+     * @param prefix -- only loggers whose names start with this are sampled. Set from the logback config.
+     */
+    public void setPrefix(String prefix) {
+        this.prefix = prefix;
+    }
+}
@@ -0,0 +1,93 @@
+package com.mindex.challenge.metrics;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.bson.BsonValue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts every command sent to Mongo, i.e. every round trip, by command and collection, as the
+ * <code>mongo.commands</code> counter.
+ *
+ * It also keeps a tally per thread, for whoever wants to know how many round trips one piece of work took, like
+ * {@link MongoCommandInterceptor} does for each request. The sync driver sends commands on the caller's own thread, so
+ * anything the work hands off to other threads, like a parallel stream, isn't in its tally.
+ */
+@Component
+public class MongoCommandCounter implements CommandListener {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<Tags, Counter> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Round trips on the current thread since {@link #begin()}, by command and collection. Null when not tallying.
+     */
+    private final ThreadLocal<Map<Tags, int[]>> tally = new ThreadLocal<>();
+
+    /**
+     * Starts tallying the round trips made on the current thread, throwing away any tally already going.
+     */
+    public void begin() {
+        tally.set(new HashMap<>());
+    }
+
+    /**
+     * Stops tallying on the current thread.
+     *
+     * @return Map -- the number of round trips made since {@link #begin()}, tagged by command and collection, or null
+     * if there was no tally going.
+     */
+    public Map<Tags, Integer> end() {
+        Map<Tags, int[]> counts = tally.get();
+        tally.remove();
+        if(null == counts) {
+            return null;
+        }
+
+        Map<Tags, Integer> result = new HashMap<>();
+        counts.forEach((tags, count) -> result.put(tags, count[0]));
+        return result;
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        Tags tags = Tags.of("command", event.getCommandName(), "collection", collectionOf(event));
+
+        counters.computeIfAbsent(tags, t -> Counter.builder("mongo.commands")
+                .description("Commands sent to Mongo")
+                .tags(t)
+                .register(meterRegistry))
+                .increment();
+
+        Map<Tags, int[]> counts = tally.get();
+        if(null != counts) {
+            counts.computeIfAbsent(tags, t -> new int[1])[0]++;
+        }
+    }
+
+    @Override
+    public void commandSucceeded(CommandSucceededEvent event) {}
+
+    @Override
+    public void commandFailed(CommandFailedEvent event) {}
+
+    /**
+     * Commands on a collection name it as the value of the command itself, as in <code>{find: "employee", ...}</code>.
+     */
+    private static String collectionOf(CommandStartedEvent event) {
+        BsonValue value = event.getCommand().get(event.getCommandName());
+        return null != value && value.isString() ? value.asString().getValue() : "none";
+    }
+}
@@ -0,0 +1,85 @@
+package com.mindex.challenge.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.Map;
+
+/**
+ * Records how many round trips to Mongo each request took, per endpoint:
+ *  <code>mongo.request.round.trips</code>, all of them together, recorded for every request, and
+ *  <code>mongo.request.commands</code>, by command and collection, for each kind the request made at least one of.
+ * So e.g. <code>mongo.request.commands</code> tagged with the reporting structure URI, command "find" and collection
+ * "employee" is how many employee lookups a reporting structure read takes, when it makes any.
+ *
+ * Only the round trips made on the request's own thread count, so a streamed response's are left out, those being
+ * written from another thread once the request has been handed off.
+ */
+@Component
+public class MongoCommandInterceptor implements AsyncHandlerInterceptor {
+
+    @Autowired
+    private MongoCommandCounter mongoCommandCounter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        //An async request comes through a second time once it's done, which isn't a request of its own
+        if(request.getDispatcherType() != DispatcherType.ASYNC) {
+            mongoCommandCounter.begin();
+        }
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response,
+                                               Object handler) {
+        record(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        record(request);
+    }
+
+    private void record(HttpServletRequest request) {
+        Map<Tags, Integer> counts = mongoCommandCounter.end();
+        if(null == counts) {
+            return;
+        }
+
+        Tags requestTags = Tags.of("uri", uriOf(request), "method", request.getMethod());
+
+        DistributionSummary.builder("mongo.request.round.trips")
+                .description("Round trips to Mongo per request")
+                .tags(requestTags)
+                .register(meterRegistry)
+                .record(counts.values().stream().mapToInt(Integer::intValue).sum());
+
+        counts.forEach((commandTags, count) -> DistributionSummary.builder("mongo.request.commands")
+                .description("Commands sent to Mongo per request, for requests sending any")
+                .tags(requestTags.and(commandTags))
+                .register(meterRegistry)
+                .record(count));
+    }
+
+    /**
+     * @return String -- the matched URI template, same as <code>http.server.requests</code> tags by, so a tag isn't
+     * made for every employee ID.
+     */
+    private static String uriOf(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return null != pattern ? pattern.toString() : "UNKNOWN";
+    }
+}
@@ -1,8 +1,17 @@
 package com.mindex.challenge.service;
 
 import com.mindex.challenge.data.Compensation;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 
 public interface CompensationService {
     Compensation create(Compensation compensation);
     Compensation read(String employeeId);
+    Compensation read(String employeeId, LocalDate asOf);
+    List<Compensation> readAll(Collection<String> employeeIds, LocalDate asOf);
+    Page<Compensation> readHistory(String employeeId, Pageable pageable);
 }
@@ -1,9 +1,25 @@
 package com.mindex.challenge.service;
 
+import com.mindex.challenge.data.BulkImportResult;
 import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeeBatch;
+import com.mindex.challenge.data.EmployeePage;
+import com.mindex.challenge.data.ReportEntry;
+import org.springframework.data.util.CloseableIterator;
+
+import java.io.InputStream;
+import java.util.Collection;
+import java.util.List;
 
 public interface EmployeeService {
     Employee create(Employee employee);
     Employee read(String id);
+    Employee read(String id, boolean hydrate);
+    Employee read(String id, boolean hydrate, Collection<String> fields);
+    EmployeeBatch readAll(Collection<String> ids);
+    List<ReportEntry> readChain(String id);
     Employee update(Employee employee);
+    EmployeePage list(String department, String position, String after, Integer limit);
+    CloseableIterator<Employee> stream(String department, String position, String after);
+    BulkImportResult importEmployees(InputStream inputStream);
 }
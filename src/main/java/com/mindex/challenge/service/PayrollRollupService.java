@@ -0,0 +1,16 @@
+package com.mindex.challenge.service;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.PayrollRollup;
+
+import java.util.List;
+
+public interface PayrollRollupService {
+
+    PayrollRollup read(String employeeId);
+
+    List<PayrollRollup> readAll();
+
+    void compensationCreated(Compensation compensation);
+
+}
@@ -0,0 +1,11 @@
+package com.mindex.challenge.service;
+
+import com.mindex.challenge.data.Compensation;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+
+public interface ReactiveCompensationService {
+    Mono<Compensation> create(Compensation compensation);
+    Mono<Compensation> read(String employeeId, LocalDate asOf);
+}
@@ -0,0 +1,11 @@
+package com.mindex.challenge.service;
+
+import com.mindex.challenge.data.Employee;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveEmployeeService {
+    Mono<Employee> create(Employee employee);
+    Mono<Employee> read(String id);
+    Mono<Employee> find(String id);
+    Mono<Employee> update(Employee employee);
+}
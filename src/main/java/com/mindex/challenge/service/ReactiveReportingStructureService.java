@@ -0,0 +1,8 @@
+package com.mindex.challenge.service;
+
+import com.mindex.challenge.data.ReportingStructure;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveReportingStructureService {
+    Mono<ReportingStructure> read(String employeeId, Integer maxDepth, boolean hydrate);
+}
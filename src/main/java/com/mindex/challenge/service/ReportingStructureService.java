@@ -1,9 +1,27 @@
 package com.mindex.challenge.service;
 
+import com.mindex.challenge.data.ReportCount;
+import com.mindex.challenge.data.ReportEntry;
 import com.mindex.challenge.data.ReportingStructure;
 
+import java.util.Iterator;
+
 public interface ReportingStructureService {
 
     ReportingStructure read(String employeeId);
 
+    ReportingStructure read(String employeeId, Integer maxDepth);
+
+    ReportingStructure read(String employeeId, Integer maxDepth, boolean hydrate);
+
+    ReportCount count(String employeeId);
+
+    /**
+     * @return String -- strong ETag for {@link #read(String, Integer, boolean)} of the same arguments, which only
+     * changes when the structure it'd read does. Worked out without building the structure.
+     */
+    String etag(String employeeId, Integer maxDepth, boolean hydrate);
+
+    Iterator<ReportEntry> walk(String employeeId, Integer maxDepth);
+
 }
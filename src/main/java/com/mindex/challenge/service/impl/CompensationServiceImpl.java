@@ -1,14 +1,25 @@
 package com.mindex.challenge.service.impl;
 
 import com.mindex.challenge.dao.CompensationRepository;
-import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.dao.EmployeeCache;
 import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
 import com.mindex.challenge.service.CompensationService;
+import com.mindex.challenge.service.PayrollRollupService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Service
 public class CompensationServiceImpl implements CompensationService {
 
@@ -18,29 +29,116 @@ public class CompensationServiceImpl implements CompensationService {
     private CompensationRepository compensationRepository;
 
     @Autowired
-    private EmployeeRepository employeeRepository;
+    private EmployeeCache employeeCache;
+
+    @Autowired
+    private PayrollRollupService payrollRollupService;
 
     @Override
     public Compensation create(Compensation compensation) {
         LOG.debug("Creating compensation [{}]", compensation);
 
-        if(compensation.getEmployee().isOnlyEmployeeIdSet()) {
-            compensation.setEmployee(employeeRepository.findByEmployeeId(compensation.getEmployee().getEmployeeId()));
+        //Follow the lead of EmployeeServiceImpl regarding nonexistent IDs, and store nothing against them
+        String employeeId = null == compensation.getEmployee()
+                ? compensation.getEmployeeId()
+                : compensation.getEmployee().getEmployeeId();
+        Employee employee = null == employeeId ? null : employeeCache.find(employeeId);
+        if(null == employee) {
+            throw new RuntimeException("Invalid employeeId: " + employeeId);
+        }
+        if(null == compensation.getEmployee() || isStub(compensation.getEmployee())) {
+            compensation.setEmployee(employee);
         }
 
-        return compensationRepository.insert(compensation);
+        Compensation created = compensationRepository.insert(compensation);
+        payrollRollupService.compensationCreated(created);
+
+        return created;
     }
 
     @Override
     public Compensation read(String employeeId) {
-        LOG.debug("Attempting to read compensation for employee with ID [{}]", employeeId);
+        return read(employeeId, LocalDate.now());
+    }
+
+    @Override
+    public Compensation read(String employeeId, LocalDate asOf) {
+        LOG.debug("Attempting to read compensation for employee with ID [{}] as of [{}]", employeeId, asOf);
 
-        Compensation compensation = compensationRepository.findByEmployeeId(employeeId);
+        //An employee can have a whole history of compensations, so we want whichever one was in effect on the day
+        Compensation compensation = compensationRepository
+                .findFirstByEmployeeIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(employeeId, asOf);
 
-        if(compensation.getEmployee().isOnlyEmployeeIdSet()) {
-            compensation.setEmployee(employeeRepository.findByEmployeeId(compensation.getEmployee().getEmployeeId()));
+        //Follow the lead of EmployeeServiceImpl regarding nonexistent IDs.
+        if(null == compensation) {
+            throw new RuntimeException("No compensation for employeeID: " + employeeId + " as of " + asOf);
         }
 
+        hydrateEmployees(List.of(compensation));
+
         return compensation;
     }
+
+    @Override
+    public List<Compensation> readAll(Collection<String> employeeIds, LocalDate asOf) {
+        LOG.debug("Attempting to read compensations for employees with IDs [{}] as of [{}]", employeeIds, asOf);
+
+        //One aggregation, which hands back just the compensation in effect for each employee, rather than their whole
+        //history up to the date
+        List<Compensation> compensations = compensationRepository.findInEffectiveByEmployeeIdIn(employeeIds, asOf);
+
+        hydrateEmployees(compensations);
+
+        return compensations;
+    }
+
+    @Override
+    public Page<Compensation> readHistory(String employeeId, Pageable pageable) {
+        LOG.debug("Attempting to read compensation history for employee with ID [{}], page [{}]", employeeId, pageable);
+
+        Page<Compensation> history = compensationRepository.findByEmployeeIdOrderByEffectiveDateDesc(employeeId,
+                pageable);
+        hydrateEmployees(history.getContent());
+
+        return history;
+    }
+
+    /**
+     * Compensations are usually stored with just a stub of their employee, meaning an Employee instance with ONLY the
+     * employeeId set. This swaps those stubs out for the full employee records.
+     *
+     * The records come out of the {@link EmployeeCache}, so most of the time there's no trip to the DB at all, and
+     * whatever isn't cached is read in with a single query no matter how many compensations there are.
+     *
+     * A compensation whose employee no longer exists fails the read, same as reading that employee would, rather than
+     * being handed back with no employee at all.
+     */
+    private void hydrateEmployees(List<Compensation> compensations) {
+        Set<String> stubIds = new HashSet<>();
+        for(Compensation compensation : compensations) {
+            if(isStub(compensation.getEmployee())) {
+                stubIds.add(compensation.getEmployee().getEmployeeId());
+            }
+        }
+
+        if(stubIds.isEmpty()) {
+            return;
+        }
+
+        Map<String, Employee> employees = employeeCache.findAll(stubIds);
+        for(Compensation compensation : compensations) {
+            if(isStub(compensation.getEmployee())) {
+                String employeeId = compensation.getEmployee().getEmployeeId();
+                Employee employee = employees.get(employeeId);
+                if(null == employee) {
+                    throw new RuntimeException("Invalid employeeId: " + employeeId);
+                }
+                compensation.setEmployee(employee);
+            }
+        }
+    }
+
+    private static boolean isStub(Employee employee) {
+        return null != employee && employee.isOnlyEmployeeIdSet();
+    }
 }
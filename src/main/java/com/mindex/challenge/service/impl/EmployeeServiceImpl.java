@@ -1,12 +1,45 @@
 package com.mindex.challenge.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mindex.challenge.dao.EmployeeCache;
+import com.mindex.challenge.dao.EmployeeDocumentListener;
 import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.BulkImportResult;
 import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeeBatch;
+import com.mindex.challenge.data.EmployeePage;
+import com.mindex.challenge.data.ReportEntry;
+import com.mindex.challenge.graph.OrgGraph;
 import com.mindex.challenge.service.EmployeeService;
+import com.mindex.challenge.service.ReportingStructureService;
+import com.mindex.challenge.util.JsonRecordReader;
+import com.mongodb.bulk.BulkWriteError;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.data.util.CloseableIterator;
 import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -14,15 +47,74 @@ public class EmployeeServiceImpl implements EmployeeService {
 
     private static final Logger LOG = LoggerFactory.getLogger(EmployeeServiceImpl.class);
 
+    /**
+     * Every field an employee is written out with, to what has to be read from the DB to fill it in. The version is
+     * always read whatever the fields, as it's what the ETag is made from.
+     */
+    private static final Map<String, List<String>> STORED_FIELDS = Map.of(
+            "employeeId", List.of(),
+            "firstName", List.of("firstName"),
+            "lastName", List.of("lastName"),
+            "fullName", List.of("firstName", "lastName"),
+            "lastFirst", List.of("firstName", "lastName"),
+            "position", List.of("position"),
+            "department", List.of("department"),
+            "directReports", List.of(EmployeeDocumentListener.DIRECT_REPORT_IDS),
+            "version", List.of("version"));
+
+    /**
+     * Updates upsert, and hand back the record as saved.
+     */
+    static final FindAndModifyOptions SAVE_AND_RETURN = FindAndModifyOptions.options().upsert(true).returnNew(true);
+
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private EmployeeCache employeeCache;
+
+    @Autowired
+    private OrgGraph orgGraph;
+
+    @Autowired
+    private ReportingStructureService reportingStructureService;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * How many employees to send to the DB in each bulk write when importing.
+     */
+    @Value("${employee.bulk.batch-size:1000}")
+    private int bulkBatchSize;
+
+    /**
+     * Employees per page when listing, unless asked for fewer or more, and the most that can be asked for.
+     */
+    @Value("${employee.list.default-limit:100}")
+    private int defaultListLimit;
+
+    @Value("${employee.list.max-limit:1000}")
+    private int maxListLimit;
+
+    /**
+     * The most IDs one batch read can ask for.
+     */
+    @Value("${employee.batch-get.max-ids:1000}")
+    private int maxBatchIds;
+
     @Override
     public Employee create(Employee employee) {
         LOG.debug("Creating employee [{}]", employee);
 
         employee.setEmployeeId(UUID.randomUUID().toString());
+        stubDirectReports(employee);
         employeeRepository.insert(employee);
+        employeeCache.put(employee);
+        orgGraph.put(employee);
 
         return employee;
     }
@@ -31,7 +123,7 @@ public class EmployeeServiceImpl implements EmployeeService {
     public Employee read(String id) {
         LOG.debug("Creating employee with id [{}]", id);
 
-        Employee employee = employeeRepository.findByEmployeeId(id);
+        Employee employee = employeeCache.find(id);
 
         if (employee == null) {
             throw new RuntimeException("Invalid employeeId: " + id);
@@ -40,10 +132,372 @@ public class EmployeeServiceImpl implements EmployeeService {
         return employee;
     }
 
+    /**
+     * @param hydrate -- whether the employee should come back with everyone under them filled out as full nested
+     * records. Otherwise their direct reports are ID-only stubs, same as they're stored.
+     */
+    @Override
+    public Employee read(String id, boolean hydrate) {
+        if(!hydrate) {
+            return read(id);
+        }
+
+        //Filling out everyone under an employee is just what the hydrated reporting structure does, a level at a time
+        return reportingStructureService.read(id, null, true).getEmployee();
+    }
+
+    /**
+     * Same as {@link #read(String, boolean)}, only with just the given fields needed. The employee's ID is always
+     * there. Employees that aren't cached are read from the DB with a projection of just those fields, so anything
+     * else, a big list of direct report IDs say, is never even loaded. Those employees come back with everything else
+     * unset, so they aren't cached. Hydrated reads come straight out of the org graph in full either way.
+     */
+    @Override
+    public Employee read(String id, boolean hydrate, Collection<String> fields) {
+        LOG.debug("Reading employee with id [{}], hydrate [{}], fields [{}]", id, hydrate, fields);
+
+        for(String field : fields) {
+            if(!STORED_FIELDS.containsKey(field)) {
+                throw new IllegalArgumentException("Invalid field: " + field);
+            }
+        }
+
+        if(hydrate) {
+            return read(id, true);
+        }
+
+        //Cached in full already, so there's nothing the DB could save us
+        Employee employee = employeeCache.getIfPresent(id);
+
+        if(null == employee) {
+            Query query = new Query(Criteria.where("employeeId").is(id));
+            query.fields().include("version");
+            for(String field : fields) {
+                STORED_FIELDS.get(field).forEach(query.fields()::include);
+            }
+            employee = mongoTemplate.findOne(query, Employee.class);
+        }
+
+        if(null == employee) {
+            throw new RuntimeException("Invalid employeeId: " + id);
+        }
+
+        return employee;
+    }
+
+    /**
+     * Reads all of the given employees at once, through the cache, so any that are cached never touch the DB and the
+     * rest are read with a single <code>$in</code> query. IDs asked for more than once come back once.
+     */
+    @Override
+    public EmployeeBatch readAll(Collection<String> ids) {
+        LOG.debug("Reading batch of [{}] employees", ids.size());
+
+        if(ids.size() > maxBatchIds) {
+            throw new IllegalArgumentException("Too many employeeIds: " + ids.size() + ", at most " + maxBatchIds);
+        }
+
+        Set<String> distinctIds = new LinkedHashSet<>();
+        for(String id : ids) {
+            if(null != id) {
+                distinctIds.add(id);
+            }
+        }
+
+        Map<String, Employee> found = employeeCache.findAll(distinctIds);
+
+        EmployeeBatch batch = new EmployeeBatch();
+        for(String id : distinctIds) {
+            Employee employee = found.get(id);
+            if(null == employee) {
+                batch.getMissingIds().add(id);
+            } else {
+                batch.getEmployees().add(employee);
+            }
+        }
+
+        return batch;
+    }
+
+    /**
+     * Reads the employee's management chain off of the org graph's reverse index of managers, see
+     * {@link OrgGraph#getManagementChain}, so it takes one lookup per level above them, however big the org. Until the
+     * graph holds the whole org, that's one query per level instead, for anyone whose managers aren't in it yet.
+     *
+     * @return List -- the chain from the top down, ending with the employee themselves. Each entry is just as it'd be
+     * in the top manager's reporting structure: its managerId is the entry before it, and its depth how far below the
+     * top it sits.
+     */
+    @Override
+    public List<ReportEntry> readChain(String id) {
+        LOG.debug("Reading management chain for employee with id [{}]", id);
+
+        List<OrgGraph.Node> chain = orgGraph.getManagementChain(id);
+
+        if(null == chain) {
+            throw new RuntimeException("Invalid employeeId: " + id);
+        }
+
+        List<ReportEntry> entries = new ArrayList<>(chain.size());
+        for(int depth = 0; depth < chain.size(); depth++) {
+            OrgGraph.Node node = chain.get(chain.size() - 1 - depth);
+
+            ReportEntry entry = new ReportEntry();
+            entry.setEmployeeId(node.getEmployeeId());
+            entry.setFirstName(node.getFirstName());
+            entry.setLastName(node.getLastName());
+            entry.setPosition(node.getPosition());
+            entry.setDepartment(node.getDepartment());
+            entry.setManagerId(0 == depth ? null : entries.get(depth - 1).getEmployeeId());
+            entry.setDepth(depth);
+            entries.add(entry);
+        }
+
+        return entries;
+    }
+
+    /**
+     * Whatever version the caller sent is ignored. The DB bumps the stored one as part of the very same write, so two
+     * updates landing at once are always saved as two different versions, and what comes back, ETag and all, is just
+     * what was saved.
+     */
     @Override
     public Employee update(Employee employee) {
         LOG.debug("Updating employee [{}]", employee);
 
-        return employeeRepository.save(employee);
+        stubDirectReports(employee);
+        Employee updated = mongoTemplate.findAndModify(byId(employee.getEmployeeId()), replaceAndBumpVersion(employee),
+                SAVE_AND_RETURN, Employee.class);
+
+        //Write through, so nobody reads the old record out of the cache from here on
+        employeeCache.put(updated);
+        orgGraph.put(updated);
+
+        return updated;
+    }
+
+    static Query byId(String employeeId) {
+        return new Query(Criteria.where("employeeId").is(employeeId));
+    }
+
+    /**
+     * @return Update -- replaces everything stored for the employee with what's in the given record, which must have
+     * its directReports stubbed already, and <code>$inc</code>s the version. An employee that doesn't exist yet, or has
+     * never been versioned, is saved as version 1.
+     */
+    static Update replaceAndBumpVersion(Employee employee) {
+        List<String> reportIds = new ArrayList<>();
+        if(null != employee.getDirectReports()) {
+            employee.getDirectReports().forEach(directReport -> reportIds.add(directReport.getEmployeeId()));
+        }
+
+        //Written as an update rather than a save, so the reports' IDs are stored the same way the listener would
+        return new Update()
+                .set("firstName", employee.getFirstName())
+                .set("lastName", employee.getLastName())
+                .set("position", employee.getPosition())
+                .set("department", employee.getDepartment())
+                .set(EmployeeDocumentListener.DIRECT_REPORT_IDS, reportIds)
+                .unset(EmployeeDocumentListener.DIRECT_REPORTS)
+                .inc("version", 1);
+    }
+
+    /**
+     * Lists a page of employees in employeeId order, starting after the given cursor. Each page is one indexed query,
+     * however far into the listing it is: it picks up at the cursor rather than skipping over everyone before it.
+     *
+     * @param department -- only employees in this department, or null for any.
+     * @param position -- only employees in this position, or null for any.
+     * @param after -- the previous page's nextCursor, or null for the first page.
+     * @param limit -- the most employees to list, or null for <code>employee.list.default-limit</code>.
+     */
+    @Override
+    public EmployeePage list(String department, String position, String after, Integer limit) {
+        LOG.debug("Listing employees in department [{}] and position [{}] after [{}], limit [{}]", department,
+                position, after, limit);
+
+        int pageSize = null == limit ? defaultListLimit : limit;
+        if(pageSize < 1 || pageSize > maxListLimit) {
+            throw new IllegalArgumentException("Invalid limit: " + limit);
+        }
+
+        //One more than fits on the page, to tell whether there's another page after it without a second query
+        List<Employee> employees = mongoTemplate.find(listQuery(department, position, after).limit(pageSize + 1),
+                Employee.class);
+
+        String nextCursor = null;
+        if(employees.size() > pageSize) {
+            employees = new ArrayList<>(employees.subList(0, pageSize));
+            nextCursor = employees.get(pageSize - 1).getEmployeeId();
+        }
+
+        return new EmployeePage(employees, nextCursor);
+    }
+
+    /**
+     * Same as {@link #list}, but every matching employee, pulled through a DB cursor a batch at a time as the caller
+     * iterates, so a listing of any size is never held in memory. The caller must close it.
+     */
+    @Override
+    public CloseableIterator<Employee> stream(String department, String position, String after) {
+        LOG.debug("Streaming employees in department [{}] and position [{}] after [{}]", department, position, after);
+
+        return mongoTemplate.stream(listQuery(department, position, after), Employee.class);
+    }
+
+    /**
+     * Matches the filters given, picks up after the cursor if there is one, and comes back in employeeId order. With a
+     * department or position, it's covered by that field's index, see
+     * {@link com.mindex.challenge.config.MongoIndexInitializer}, otherwise by the <code>_id</code> index.
+     */
+    private static Query listQuery(String department, String position, String after) {
+        Query query = new Query().with(Sort.by(Sort.Direction.ASC, "employeeId"));
+        if(null != department) {
+            query.addCriteria(Criteria.where("department").is(department));
+        }
+        if(null != position) {
+            query.addCriteria(Criteria.where("position").is(position));
+        }
+        if(null != after) {
+            query.addCriteria(Criteria.where("employeeId").gt(after));
+        }
+        return query;
+    }
+
+    /**
+     * Cuts the employee's directReports down to ID-only stubs, however filled out they came in, as the IDs are all
+     * that's stored of them. That way what's written through to the cache and the org graph, and handed back, is just
+     * what's in the DB. Reports without an ID aren't stored at all, so they're dropped.
+     */
+    static void stubDirectReports(Employee employee) {
+        if(null == employee.getDirectReports()) {
+            return;
+        }
+
+        List<Employee> stubs = new ArrayList<>(employee.getDirectReports().size());
+        for(Employee directReport : employee.getDirectReports()) {
+            if(null != directReport && null != directReport.getEmployeeId()) {
+                Employee stub = new Employee();
+                stub.setEmployeeId(directReport.getEmployeeId());
+                stubs.add(stub);
+            }
+        }
+        employee.setDirectReports(stubs);
+    }
+
+    @Override
+    public BulkImportResult importEmployees(InputStream inputStream) {
+        LOG.debug("Importing employees in batches of [{}]", bulkBatchSize);
+
+        BulkImportResult result = new BulkImportResult();
+
+        //The batch, and where each of its employees sat in the input, for reporting errors against
+        List<Employee> batch = new ArrayList<>(bulkBatchSize);
+        List<Integer> batchIndexes = new ArrayList<>(bulkBatchSize);
+
+        try(JsonRecordReader reader = new JsonRecordReader(objectMapper, inputStream)) {
+            JsonNode record;
+            while(null != (record = nextRecord(reader, result))) {
+                result.incrementReceived();
+
+                //A record that doesn't fit the Employee schema is skipped, not fatal
+                Employee employee;
+                try {
+                    employee = objectMapper.treeToValue(record, Employee.class);
+                } catch(JsonProcessingException ex) {
+                    result.addError(reader.getIndex(), record.path("employeeId").asText(null),
+                            ex.getOriginalMessage());
+                    continue;
+                }
+
+                //Same as create, new employees are given an ID if they come without one
+                if(null == employee.getEmployeeId() || employee.getEmployeeId().isEmpty()) {
+                    employee.setEmployeeId(UUID.randomUUID().toString());
+                }
+
+                //A report without an ID can't be stored or linked to anyone, so rather than quietly dropping them, as
+                //stubbing would, the whole record is turned away
+                if(hasReportWithoutId(employee)) {
+                    result.addError(reader.getIndex(), employee.getEmployeeId(), "Direct report without an employeeId");
+                    continue;
+                }
+                stubDirectReports(employee);
+
+                batch.add(employee);
+                batchIndexes.add(reader.getIndex());
+                if(batch.size() >= bulkBatchSize) {
+                    insertBatch(batch, batchIndexes, result);
+                }
+            }
+        } catch(IOException ex) {
+            throw new RuntimeException(ex);
+        }
+
+        //Whatever's left over after the last full batch
+        insertBatch(batch, batchIndexes, result);
+
+        LOG.debug("Imported [{}] of [{}] employees", result.getImported(), result.getReceived());
+        return result;
+    }
+
+    private static boolean hasReportWithoutId(Employee employee) {
+        if(null == employee.getDirectReports()) {
+            return false;
+        }
+
+        for(Employee directReport : employee.getDirectReports()) {
+            if(null == directReport || null == directReport.getEmployeeId() || directReport.getEmployeeId().isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return JsonNode -- the next record from the reader, or null if there are no more. Input that isn't well formed
+     * JSON is reported against the record it broke in, and ends the import there, as nothing after it can be trusted.
+     */
+    private JsonNode nextRecord(JsonRecordReader reader, BulkImportResult result) {
+        try {
+            return reader.next();
+        } catch(JsonProcessingException ex) {
+            result.addError(reader.getIndex() + 1, null, "Malformed JSON, import stopped: " + ex.getOriginalMessage());
+            return null;
+        } catch(IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Writes the batch with a single unordered bulk insert, so every record that can be written is, then clears it out
+     * ready for the next one. Records the DB rejects are reported in the result, and the rest written through to the
+     * cache and the org graph, same as with create.
+     */
+    private void insertBatch(List<Employee> batch, List<Integer> batchIndexes, BulkImportResult result) {
+        if(batch.isEmpty()) {
+            return;
+        }
+
+        Set<Integer> failed = new HashSet<>();
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Employee.class).insert(batch).execute();
+        } catch(BulkOperationException ex) {
+            for(BulkWriteError error : ex.getErrors()) {
+                failed.add(error.getIndex());
+                result.addError(batchIndexes.get(error.getIndex()), batch.get(error.getIndex()).getEmployeeId(),
+                        error.getMessage());
+            }
+        }
+
+        for(int i = 0; i < batch.size(); i++) {
+            if(!failed.contains(i)) {
+                employeeCache.put(batch.get(i));
+                orgGraph.put(batch.get(i));
+                result.incrementImported();
+            }
+        }
+
+        batch.clear();
+        batchIndexes.clear();
     }
 }
@@ -0,0 +1,591 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.dao.CompensationRepository;
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.PayrollRollup;
+import com.mindex.challenge.graph.OrgGraph;
+import com.mindex.challenge.service.PayrollRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * Works out the {@link PayrollRollup} for every employee in the org in one go, and serves them all from that snapshot.
+ *
+ * The snapshot is built in two passes over the {@link OrgGraph}. The first goes top down, a level at a time, giving
+ * every employee exactly one parent: the first manager to reach them. That cuts the org down to a plain tree, whatever
+ * the data looks like. The second goes bottom up, a level at a time, summing each employee's figures from those of
+ * their children in the tree. Everyone on a level can be summed at once, so each level is split across the common
+ * fork/join pool.
+ *
+ * In a tree, summing the children is all it takes. Any manager who lost a report to the cut (someone listed under two
+ * managers, or a loop back up the org) would come up short that way though, so those managers, and everyone above
+ * them, are worked out by walking their whole structure instead, counting everyone once. Bad data like that is rare,
+ * so it's rarely more than a handful of walks.
+ *
+ * Once built, a new compensation only changes the figures of the employee's own managers, so that's all that's redone.
+ * A change to the org is much the same. The {@link OrgGraph} tells us of every employee written or read in, which is
+ * queued up rather than dealt with there and then, so the graph's writers never wait on us. The next read rewires each
+ * queued employee in the tree in place, then redoes only them and everyone above them. It's only a new day, bringing
+ * new compensations into effect, or the whole graph being reloaded, that means a fresh snapshot.
+ *
+ * As the figures are updated in place, reading them takes the read side of a lock, and every update to the figures of
+ * the snapshot being handed out takes the write side, for the whole of the update. So a reader only ever sees the
+ * figures from before an update, or after, never those of a relink half way through redoing everyone above it. Readers
+ * don't hold each other up, and only wait on an update, which is a handful of sums, never on a build.
+ */
+@Service
+public class PayrollRollupServiceImpl implements PayrollRollupService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PayrollRollupServiceImpl.class);
+
+    @Autowired
+    private OrgGraph orgGraph;
+
+    @Autowired
+    private CompensationRepository compensationRepository;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Held for reading while reading the figures of the snapshot, and for writing while updating them in place. See
+     * above.
+     */
+    private final ReadWriteLock figuresLock = new ReentrantReadWriteLock();
+
+    /**
+     * Employees changed in the org graph since the snapshot last caught up with it, oldest first.
+     */
+    private final Queue<OrgGraph.Node> linkedNodes = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Bumped whenever the whole org graph is reloaded, so a snapshot built from the graph before that can't be mistaken
+     * for a current one.
+     */
+    private final AtomicLong graphRebuilds = new AtomicLong();
+
+    /**
+     * Set while a snapshot is being built. Changes only need queueing while there's a snapshot, or one on the way.
+     */
+    private volatile boolean building;
+
+    @PostConstruct
+    public void init() {
+        orgGraph.addChangeListener(new OrgGraph.ChangeListener() {
+            @Override
+            public void linked(OrgGraph.Node node) {
+                if(building || null != snapshot) {
+                    linkedNodes.add(node);
+                }
+            }
+
+            @Override
+            public void rebuilt() {
+                graphRebuilds.incrementAndGet();
+                linkedNodes.clear();
+            }
+        });
+    }
+
+    @Override
+    public PayrollRollup read(String employeeId) {
+        LOG.debug("Reading payroll rollup for employee with ID [{}]", employeeId);
+
+        Snapshot current = currentSnapshot();
+        Stats stats;
+        figuresLock.readLock().lock();
+        try {
+            stats = current.under.get(employeeId);
+        } finally {
+            figuresLock.readLock().unlock();
+        }
+
+        //Follow the lead of EmployeeServiceImpl regarding nonexistent IDs.
+        if(null == stats) {
+            throw new RuntimeException("Invalid employeeID: " + employeeId);
+        }
+
+        return stats.toRollup(employeeId);
+    }
+
+    @Override
+    public List<PayrollRollup> readAll() {
+        LOG.debug("Reading payroll rollups for every manager");
+
+        Snapshot current = currentSnapshot();
+        List<PayrollRollup> rollups = new ArrayList<>();
+        figuresLock.readLock().lock();
+        try {
+            current.under.forEach((employeeId, stats) -> {
+                if(stats.headcount > 0) {
+                    rollups.add(stats.toRollup(employeeId));
+                }
+            });
+        } finally {
+            figuresLock.readLock().unlock();
+        }
+
+        rollups.sort(Comparator.comparing(PayrollRollup::getEmployeeId));
+        return rollups;
+    }
+
+    @Override
+    public synchronized void compensationCreated(Compensation compensation) {
+        Snapshot current = snapshot;
+
+        //Nothing to update if there's no snapshot, or it's out of date anyway and will be rebuilt on the next read
+        if(null == current || !current.isCurrent(graphRebuilds.get(), LocalDate.now())) {
+            return;
+        }
+        applyLinked(current);
+
+        //Only the newest compensation in effect counts, so one yet to start, or already superseded, changes nothing
+        String employeeId = compensation.getEmployeeId();
+        LocalDate effectiveDate = compensation.getEffectiveDate();
+        LocalDate knownDate = current.effectiveDates.get(employeeId);
+        if(null == employeeId || null == effectiveDate || effectiveDate.isAfter(current.asOf)
+                || (null != knownDate && knownDate.isAfter(effectiveDate))) {
+            return;
+        }
+
+        LOG.debug("Updating payroll rollups above employee with ID [{}]", employeeId);
+
+        figuresLock.writeLock().lock();
+        try {
+            current.effectiveDates.put(employeeId, effectiveDate);
+            if(null == compensation.getSalary()) {
+                current.salaries.remove(employeeId);
+            } else {
+                current.salaries.put(employeeId, compensation.getSalary());
+            }
+
+            summarizeAbove(current, employeeId);
+        } finally {
+            figuresLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Catches the snapshot up with the org graph, rewiring each changed employee in the tree in turn and redoing their
+     * figures, and those of everyone above them. Anyone else's figures can't have moved. Callers must hold the lock.
+     */
+    private void applyLinked(Snapshot current) {
+        if(linkedNodes.isEmpty()) {
+            return;
+        }
+
+        //Readers wait for the whole lot, so they see the snapshot caught up with everything queued, or none of it
+        figuresLock.writeLock().lock();
+        try {
+            OrgGraph.Node node;
+            while(null != (node = linkedNodes.poll())) {
+                LOG.debug("Updating payroll rollups for org change to employee with ID [{}]", node.getEmployeeId());
+
+                current.relink(node);
+                current.summarize(node.getEmployeeId());
+                summarizeAbove(current, node.getEmployeeId());
+            }
+        } finally {
+            figuresLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Redoes the figures of everyone above the given employee, after theirs have changed.
+     */
+    private void summarizeAbove(Snapshot current, String employeeId) {
+        //Redo the tree parents first, from the bottom up, as each is summed from the one below
+        Set<String> updated = new HashSet<>();
+        String childId = employeeId;
+        String parentId;
+        while(null != (parentId = current.treeParents.get(childId)) && updated.add(parentId)) {
+            current.summarize(parentId);
+            childId = parentId;
+        }
+
+        //Any other managers above the employee only reach them through a shared report or a loop, so they're worked out
+        //by walking their structures, which doesn't depend on anyone else's figures
+        Set<String> visited = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>(orgGraph.getManagerIds(employeeId));
+        while(!pending.isEmpty()) {
+            String managerId = pending.pop();
+            if(visited.add(managerId)) {
+                if(!updated.contains(managerId)) {
+                    current.summarize(managerId);
+                }
+                pending.addAll(orgGraph.getManagerIds(managerId));
+            }
+        }
+    }
+
+    /**
+     * @return Snapshot -- the current snapshot, caught up with any changes to the org, or built afresh if there isn't
+     * one yet, the date has moved on or the whole graph has been reloaded.
+     */
+    private Snapshot currentSnapshot() {
+        Snapshot current = snapshot;
+        if(null != current && current.isCurrent(graphRebuilds.get(), LocalDate.now()) && linkedNodes.isEmpty()) {
+            return current;
+        }
+
+        synchronized(this) {
+            current = snapshot;
+            if(null == current || !current.isCurrent(graphRebuilds.get(), LocalDate.now())) {
+                //Anything queued so far is already in the graph we're about to build from. Anything queued from here
+                //on may or may not make it into the build, so it's applied after, which does no harm either way.
+                building = true;
+                try {
+                    linkedNodes.clear();
+                    current = build();
+                    snapshot = current;
+                } finally {
+                    building = false;
+                }
+            }
+            applyLinked(current);
+            return current;
+        }
+    }
+
+    private Snapshot build() {
+        long start = System.nanoTime();
+
+        //Take the count before reading anything, so a reload of the graph while we're building still shows as newer
+        Snapshot built = new Snapshot(graphRebuilds.get(), LocalDate.now());
+        for(OrgGraph.Node node : orgGraph.getNodes()) {
+            built.nodes.put(node.getEmployeeId(), node);
+        }
+        loadSalaries(built);
+
+        List<List<String>> levels = buildTree(built);
+
+        //Bottom up, so everyone's children are always done before them
+        for(int depth = levels.size() - 1; depth >= 0; depth--) {
+            levels.get(depth).parallelStream().forEach(built::summarize);
+        }
+
+        LOG.debug("Built payroll rollups for [{}] employees in [{}] ms", built.under.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return built;
+    }
+
+    /**
+     * Reads in everyone's compensation in effect as of the snapshot's date, with one query.
+     */
+    private void loadSalaries(Snapshot built) {
+        try(Stream<Compensation> compensations = compensationRepository
+                .findByEffectiveDateLessThanEqualOrderByEmployeeIdAscEffectiveDateDesc(built.asOf)) {
+
+            //Newest first for each employee, so the first one we see for them is the one in effect
+            compensations.forEach(compensation -> {
+                String employeeId = compensation.getEmployeeId();
+                if(null != employeeId && !built.effectiveDates.containsKey(employeeId)) {
+                    built.effectiveDates.put(employeeId, compensation.getEffectiveDate());
+                    if(null != compensation.getSalary()) {
+                        built.salaries.put(employeeId, compensation.getSalary());
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Cuts the org down to a tree, top down, from everyone without a manager. Anyone stuck in a loop with nobody above
+     * it is then started from as well, so everyone ends up somewhere.
+     *
+     * @return List -- the IDs at each depth of the tree, from the top.
+     */
+    private List<List<String>> buildTree(Snapshot built) {
+        List<List<String>> levels = new ArrayList<>();
+        Set<String> claimed = new HashSet<>();
+
+        List<String> roots = new ArrayList<>();
+        for(String employeeId : built.nodes.keySet()) {
+            if(orgGraph.getManagerIds(employeeId).isEmpty()) {
+                roots.add(employeeId);
+            }
+        }
+        claimFrom(built, roots, claimed, levels);
+
+        for(String employeeId : built.nodes.keySet()) {
+            if(!claimed.contains(employeeId)) {
+                claimFrom(built, List.of(employeeId), claimed, levels);
+            }
+        }
+
+        //A manager is only as exact as the trees under them
+        for(int depth = levels.size() - 1; depth > 0; depth--) {
+            for(String employeeId : levels.get(depth)) {
+                if(built.inexact.contains(employeeId)) {
+                    built.inexact.add(built.treeParents.get(employeeId));
+                }
+            }
+        }
+
+        return levels;
+    }
+
+    /**
+     * Walks down from the given roots a level at a time, claiming each unclaimed report as a child of the manager who
+     * got to them first. Managers who find one of their reports already claimed are marked inexact.
+     */
+    private void claimFrom(Snapshot built, List<String> roots, Set<String> claimed, List<List<String>> levels) {
+        claimed.addAll(roots);
+
+        List<String> level = roots;
+        for(int depth = 0; !level.isEmpty(); depth++) {
+            if(levels.size() == depth) {
+                levels.add(new ArrayList<>());
+            }
+            levels.get(depth).addAll(level);
+
+            List<String> nextLevel = new ArrayList<>();
+            for(String managerId : level) {
+                OrgGraph.Node manager = built.nodes.get(managerId);
+                if(null == manager) {
+                    continue;
+                }
+
+                List<String> children = new ArrayList<>();
+                for(String reportId : manager.getDirectReportIds()) {
+                    if(claimed.add(reportId)) {
+                        children.add(reportId);
+                        built.treeParents.put(reportId, managerId);
+                    } else {
+                        built.inexact.add(managerId);
+                    }
+                }
+                built.treeChildren.put(managerId, children);
+                nextLevel.addAll(children);
+            }
+            level = nextLevel;
+        }
+    }
+
+    /**
+     * Everything the rollups are worked out from, along with the rollups themselves. The tree is fixed once built, but
+     * the salaries, and so the figures, are updated in place as compensations come in.
+     */
+    private static class Snapshot {
+        private final long graphRebuilds;
+        private final LocalDate asOf;
+        private final Map<String, OrgGraph.Node> nodes = new HashMap<>();
+        private final Map<String, BigDecimal> salaries = new ConcurrentHashMap<>();
+        private final Map<String, LocalDate> effectiveDates = new ConcurrentHashMap<>();
+        private final Map<String, String> treeParents = new HashMap<>();
+        private final Map<String, List<String>> treeChildren = new HashMap<>();
+        private final Set<String> inexact = ConcurrentHashMap.newKeySet();
+
+        /**
+         * Figures for everyone under each employee, not counting the employee themselves.
+         */
+        private final Map<String, Stats> under = new ConcurrentHashMap<>();
+
+        private Snapshot(long graphRebuilds, LocalDate asOf) {
+            this.graphRebuilds = graphRebuilds;
+            this.asOf = asOf;
+        }
+
+        private boolean isCurrent(long graphRebuilds, LocalDate today) {
+            return this.graphRebuilds == graphRebuilds && asOf.equals(today);
+        }
+
+        /**
+         * Swaps in the latest node for an employee, and brings the tree in line with their direct reports. Reports
+         * they no longer have are let go of, to be the top of their own trees, and new reports nobody else has claimed
+         * are claimed, unless that would loop back round. Then the employee and everyone above them in the tree are
+         * checked over again for whether their children still cover everyone under them.
+         */
+        private void relink(OrgGraph.Node node) {
+            String employeeId = node.getEmployeeId();
+            OrgGraph.Node previous = nodes.put(employeeId, node);
+            Set<String> oldReportIds = null == previous ? Set.of() : new HashSet<>(previous.getDirectReportIds());
+            Set<String> newReportIds = new HashSet<>(node.getDirectReportIds());
+
+            List<String> children = new ArrayList<>(treeChildren.getOrDefault(employeeId, List.of()));
+            for(String reportId : oldReportIds) {
+                if(!newReportIds.contains(reportId) && employeeId.equals(treeParents.get(reportId))) {
+                    treeParents.remove(reportId);
+                    children.remove(reportId);
+                }
+            }
+            for(String reportId : node.getDirectReportIds()) {
+                if(!treeParents.containsKey(reportId) && !isTreeAncestor(reportId, employeeId)) {
+                    treeParents.put(reportId, employeeId);
+                    children.add(reportId);
+                }
+            }
+            treeChildren.put(employeeId, children);
+
+            //Bottom up, as a manager is only as exact as the trees under them
+            Set<String> checked = new HashSet<>();
+            for(String id = employeeId; null != id && checked.add(id); id = treeParents.get(id)) {
+                if(isExact(id)) {
+                    inexact.remove(id);
+                } else {
+                    inexact.add(id);
+                }
+            }
+        }
+
+        /**
+         * @return boolean -- whether the first employee is the second, or above them in the tree.
+         */
+        private boolean isTreeAncestor(String ancestorId, String employeeId) {
+            Set<String> visited = new HashSet<>();
+            for(String id = employeeId; null != id && visited.add(id); id = treeParents.get(id)) {
+                if(id.equals(ancestorId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * @return boolean -- whether everyone under the given employee is under exactly one of their children in the
+         * tree, so their figures can be summed from their children's.
+         */
+        private boolean isExact(String employeeId) {
+            OrgGraph.Node node = nodes.get(employeeId);
+            if(null == node) {
+                return true;
+            }
+            for(String reportId : node.getDirectReportIds()) {
+                if(!employeeId.equals(treeParents.get(reportId))) {
+                    return false;
+                }
+            }
+            for(String childId : treeChildren.getOrDefault(employeeId, List.of())) {
+                if(inexact.contains(childId)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Works out the figures under the given employee, from their children's figures if they're exact, else by
+         * walking their structure. Report IDs with no record are skipped, they only ever count as someone's report.
+         */
+        private void summarize(String employeeId) {
+            if(!nodes.containsKey(employeeId)) {
+                return;
+            }
+            under.put(employeeId, inexact.contains(employeeId) ? walk(employeeId) : sumChildren(employeeId));
+        }
+
+        private Stats sumChildren(String employeeId) {
+            Stats stats = Stats.EMPTY;
+            for(String childId : treeChildren.getOrDefault(employeeId, List.of())) {
+                stats = stats.plus(under.getOrDefault(childId, Stats.EMPTY)).plus(salaries.get(childId));
+            }
+            return stats;
+        }
+
+        /**
+         * Counts everyone under the given employee once, same as
+         * {@link com.mindex.challenge.data.ReportingStructure#calculateStructure()}.
+         */
+        private Stats walk(String employeeId) {
+            Stats stats = Stats.EMPTY;
+            Set<String> seenIds = new HashSet<>();
+            seenIds.add(employeeId);
+
+            Deque<String> pending = new ArrayDeque<>(nodes.get(employeeId).getDirectReportIds());
+            while(!pending.isEmpty()) {
+                String reportId = pending.pop();
+                if(seenIds.add(reportId)) {
+                    stats = stats.plus(salaries.get(reportId));
+                    OrgGraph.Node report = nodes.get(reportId);
+                    if(null != report) {
+                        pending.addAll(report.getDirectReportIds());
+                    }
+                }
+            }
+            return stats;
+        }
+    }
+
+    /**
+     * Running figures for some group of employees.
+     */
+    private static class Stats {
+        private static final Stats EMPTY = new Stats(0, 0, BigDecimal.ZERO, null, null);
+
+        private final int headcount;
+        private final int salariedCount;
+        private final BigDecimal total;
+        private final BigDecimal min;
+        private final BigDecimal max;
+
+        private Stats(int headcount, int salariedCount, BigDecimal total, BigDecimal min, BigDecimal max) {
+            this.headcount = headcount;
+            this.salariedCount = salariedCount;
+            this.total = total;
+            this.min = min;
+            this.max = max;
+        }
+
+        /**
+         * @return Stats -- these figures with one more employee, on the given salary, or on none if it's null.
+         */
+        private Stats plus(BigDecimal salary) {
+            if(null == salary) {
+                return new Stats(headcount + 1, salariedCount, total, min, max);
+            }
+            return new Stats(headcount + 1, salariedCount + 1, total.add(salary), lesser(min, salary),
+                    greater(max, salary));
+        }
+
+        private Stats plus(Stats other) {
+            return new Stats(headcount + other.headcount, salariedCount + other.salariedCount, total.add(other.total),
+                    lesser(min, other.min), greater(max, other.max));
+        }
+
+        private PayrollRollup toRollup(String employeeId) {
+            PayrollRollup rollup = new PayrollRollup();
+            rollup.setEmployeeId(employeeId);
+            rollup.setHeadcount(headcount);
+            rollup.setSalariedCount(salariedCount);
+            rollup.setTotalSalary(total);
+            rollup.setMinSalary(min);
+            rollup.setMaxSalary(max);
+            if(salariedCount > 0) {
+                rollup.setAverageSalary(total.divide(BigDecimal.valueOf(salariedCount), 2, RoundingMode.HALF_UP));
+            }
+            return rollup;
+        }
+
+        private static BigDecimal lesser(BigDecimal a, BigDecimal b) {
+            return null == a ? b : null == b ? a : a.min(b);
+        }
+
+        private static BigDecimal greater(BigDecimal a, BigDecimal b) {
+            return null == a ? b : null == b ? a : a.max(b);
+        }
+    }
+
+}
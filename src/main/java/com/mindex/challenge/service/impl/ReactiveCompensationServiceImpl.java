@@ -0,0 +1,91 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.dao.reactive.ReactiveCompensationRepository;
+import com.mindex.challenge.service.PayrollRollupService;
+import com.mindex.challenge.service.ReactiveCompensationService;
+import com.mindex.challenge.service.ReactiveEmployeeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+
+/**
+ * Same as {@link CompensationServiceImpl}, only without ever blocking.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveCompensationServiceImpl implements ReactiveCompensationService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveCompensationServiceImpl.class);
+
+    @Autowired
+    private ReactiveCompensationRepository compensationRepository;
+
+    @Autowired
+    private ReactiveEmployeeService employeeService;
+
+    @Autowired
+    private PayrollRollupService payrollRollupService;
+
+    @Override
+    public Mono<Compensation> create(Compensation compensation) {
+        LOG.debug("Creating compensation [{}]", compensation);
+
+        String employeeId = null == compensation.getEmployee()
+                ? compensation.getEmployeeId()
+                : compensation.getEmployee().getEmployeeId();
+        Mono<Employee> employee = null == employeeId ? Mono.empty() : employeeService.find(employeeId);
+
+        //Same as the blocking variant, nothing is stored against an employee who doesn't exist. The payroll rollups are
+        //all in memory, but updating them takes a lock, so it's kept off the event loop.
+        return employee
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Invalid employeeId: " + employeeId)))
+                .map(found -> {
+                    if(null == compensation.getEmployee() || compensation.getEmployee().isOnlyEmployeeIdSet()) {
+                        compensation.setEmployee(found);
+                    }
+                    return compensation;
+                })
+                .flatMap(compensationRepository::insert)
+                .flatMap(created -> Mono.fromRunnable(() -> payrollRollupService.compensationCreated(created))
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .thenReturn(created));
+    }
+
+    @Override
+    public Mono<Compensation> read(String employeeId, LocalDate asOf) {
+        LOG.debug("Attempting to read compensation for employee with ID [{}] as of [{}]", employeeId, asOf);
+
+        return compensationRepository
+                .findFirstByEmployeeIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(employeeId, asOf)
+                .switchIfEmpty(Mono.error(() ->
+                        new RuntimeException("No compensation for employeeID: " + employeeId + " as of " + asOf)))
+                .flatMap(this::hydrateEmployee);
+    }
+
+    /**
+     * Swaps the compensation's employee stub, if that's what it has, for the full employee record.
+     */
+    private Mono<Compensation> hydrateEmployee(Compensation compensation) {
+        Employee employee = compensation.getEmployee();
+        if(null == employee || !employee.isOnlyEmployeeIdSet()) {
+            return Mono.just(compensation);
+        }
+
+        //Same as the blocking variant, an employee with no record fails the read rather than being left out
+        String employeeId = employee.getEmployeeId();
+        return employeeService.find(employeeId)
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Invalid employeeId: " + employeeId)))
+                .map(full -> {
+                    compensation.setEmployee(full);
+                    return compensation;
+                });
+    }
+}
@@ -0,0 +1,91 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.dao.EmployeeCache;
+import com.mindex.challenge.dao.reactive.ReactiveEmployeeRepository;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.graph.OrgGraph;
+import com.mindex.challenge.service.ReactiveEmployeeService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.UUID;
+
+/**
+ * Same as {@link EmployeeServiceImpl}, only without ever blocking. The {@link EmployeeCache} is only ever looked in,
+ * never left to read through to the blocking repo itself, and the cache and {@link OrgGraph} are written through on
+ * every write just the same, so both variants see the same data.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveEmployeeServiceImpl implements ReactiveEmployeeService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveEmployeeServiceImpl.class);
+
+    @Autowired
+    private ReactiveEmployeeRepository employeeRepository;
+
+    @Autowired
+    private ReactiveMongoTemplate mongoTemplate;
+
+    @Autowired
+    private EmployeeCache employeeCache;
+
+    @Autowired
+    private OrgGraph orgGraph;
+
+    @Override
+    public Mono<Employee> create(Employee employee) {
+        LOG.debug("Creating employee [{}]", employee);
+
+        employee.setEmployeeId(UUID.randomUUID().toString());
+        EmployeeServiceImpl.stubDirectReports(employee);
+        return employeeRepository.insert(employee)
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(this::writeThrough);
+    }
+
+    @Override
+    public Mono<Employee> read(String id) {
+        LOG.debug("Reading employee with id [{}]", id);
+
+        return find(id).switchIfEmpty(Mono.error(() -> new RuntimeException("Invalid employeeId: " + id)));
+    }
+
+    /**
+     * Same as {@link #read}, but a nonexistent ID comes back empty rather than as an error.
+     */
+    @Override
+    public Mono<Employee> find(String id) {
+        return Mono.justOrEmpty(employeeCache.getIfPresent(id))
+                .switchIfEmpty(Mono.defer(() -> employeeRepository.findByEmployeeId(id).doOnNext(employeeCache::put)));
+    }
+
+    @Override
+    public Mono<Employee> update(Employee employee) {
+        LOG.debug("Updating employee [{}]", employee);
+
+        //Versioned by the DB in the same write, the same as EmployeeServiceImpl does, so the ETags stay right whichever
+        //variant did the update
+        EmployeeServiceImpl.stubDirectReports(employee);
+        return mongoTemplate.findAndModify(EmployeeServiceImpl.byId(employee.getEmployeeId()),
+                EmployeeServiceImpl.replaceAndBumpVersion(employee), EmployeeServiceImpl.SAVE_AND_RETURN,
+                Employee.class)
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(this::writeThrough);
+    }
+
+    /**
+     * Writing through to the org graph takes its lock, which a rebuild holds for as long as it's reading the whole
+     * repo, so callers move off of the event loop before they get here.
+     */
+    private void writeThrough(Employee employee) {
+        employeeCache.put(employee);
+        orgGraph.put(employee);
+    }
+}
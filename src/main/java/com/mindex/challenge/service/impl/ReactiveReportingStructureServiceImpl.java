@@ -0,0 +1,154 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.dao.reactive.ReactiveEmployeeRepository;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.service.ReactiveReportingStructureService;
+import com.mindex.challenge.service.ReportingStructureService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reporting structures without blocking.
+ *
+ * A hydrated read fills out every report under the employee straight from the reactive repo, a level at a time, same
+ * as {@link ReportingStructureServiceImpl} does. Rather than one query per level, each level's reports are read in
+ * batches of <code>reactive.fill-out.batch-size</code> IDs, with up to <code>reactive.fill-out.concurrency</code>
+ * batches in flight at once, so a wide level is fanned out across several connections, but never so wide as to swamp
+ * the DB.
+ *
+ * A plain read is worked out over the org graph, which is all in memory once it holds the org, but may have to read
+ * through to the blocking repo, so it's handed off to a thread that's allowed to block.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveReportingStructureServiceImpl implements ReactiveReportingStructureService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReactiveReportingStructureServiceImpl.class);
+
+    @Autowired
+    private ReactiveEmployeeRepository employeeRepository;
+
+    @Autowired
+    private ReportingStructureService reportingStructureService;
+
+    @Value("${reactive.fill-out.batch-size:100}")
+    private int batchSize;
+
+    @Value("${reactive.fill-out.concurrency:8}")
+    private int concurrency;
+
+    @Override
+    public Mono<ReportingStructure> read(String employeeId, Integer maxDepth, boolean hydrate) {
+        LOG.debug("Generating reporting structure for employee with ID [{}] to depth [{}], hydrated [{}]", employeeId,
+                maxDepth, hydrate);
+
+        if(null != maxDepth && maxDepth < 0) {
+            return Mono.error(new IllegalArgumentException("Invalid maxDepth: " + maxDepth));
+        }
+
+        if(!hydrate) {
+            return Mono.fromCallable(() -> reportingStructureService.read(employeeId, maxDepth, false))
+                    .subscribeOn(Schedulers.boundedElastic());
+        }
+
+        return employeeRepository.findByEmployeeId(employeeId)
+                //Follow the lead of EmployeeServiceImpl regarding nonexistent IDs.
+                .switchIfEmpty(Mono.error(() -> new RuntimeException("Invalid employeeID: " + employeeId)))
+                .flatMap(employee -> fillOutDirectReports(employee, maxDepth).thenReturn(employee))
+                .map(employee -> {
+                    ReportingStructure reportingStructure = new ReportingStructure(employee);
+                    reportingStructure.calculateStructure(maxDepth);
+                    return reportingStructure;
+                });
+    }
+
+    /**
+     * Swaps every stub under the given employee for the full record, down to the given depth. Anyone listed more than
+     * once is only filled out the first time, and left as a stub after that, so the tree never loops back on itself.
+     *
+     * The levels are filled out one after the other, so the IDs already fetched are only ever touched by one level at
+     * a time, even though each level's batches are read concurrently.
+     */
+    private Mono<Void> fillOutDirectReports(Employee employee, Integer maxDepth) {
+        Set<String> fetchedIds = new HashSet<>();
+        fetchedIds.add(employee.getEmployeeId());
+
+        return Mono.just(new Level(List.of(employee), 1))
+                .expand(level -> fillOutLevel(level, maxDepth, fetchedIds))
+                .then();
+    }
+
+    /**
+     * @return Mono -- the next level down, made of the records just read in, or empty if there's nothing more to fill.
+     */
+    private Mono<Level> fillOutLevel(Level level, Integer maxDepth, Set<String> fetchedIds) {
+        if(level.managers.isEmpty() || (null != maxDepth && level.depth > maxDepth)) {
+            return Mono.empty();
+        }
+
+        Set<String> stubIds = new LinkedHashSet<>();
+        for(Employee manager : level.managers) {
+            for(Employee directReport : manager.getDirectReports()) {
+                if(directReport.isOnlyEmployeeIdSet() && !fetchedIds.contains(directReport.getEmployeeId())) {
+                    stubIds.add(directReport.getEmployeeId());
+                }
+            }
+        }
+        if(stubIds.isEmpty()) {
+            return Mono.empty();
+        }
+        fetchedIds.addAll(stubIds);
+
+        return Flux.fromIterable(stubIds)
+                .buffer(batchSize)
+                .flatMap(employeeRepository::findByEmployeeIdIn, concurrency)
+                .collectMap(Employee::getEmployeeId)
+                .map(fullRecords -> {
+                    swapStubs(level.managers, fullRecords);
+                    return new Level(new ArrayList<>(fullRecords.values()), level.depth + 1);
+                });
+    }
+
+    /**
+     * Swaps the stubs out for the full records in their managers. Any stubs we couldn't find are left as-is.
+     */
+    private static void swapStubs(List<Employee> managers, Map<String, Employee> fullRecords) {
+        for(Employee manager : managers) {
+            List<Employee> directReports = manager.getDirectReports();
+            for(int i = 0; i < directReports.size(); i++) {
+                Employee fullRecord = fullRecords.get(directReports.get(i).getEmployeeId());
+                if(null != fullRecord && directReports.get(i).isOnlyEmployeeIdSet()) {
+                    directReports.set(i, fullRecord);
+                }
+            }
+        }
+    }
+
+    /**
+     * One level of the org being filled out: the managers whose direct reports are up next, and how far down they are.
+     */
+    private static class Level {
+        private final List<Employee> managers;
+        private final int depth;
+
+        private Level(List<Employee> managers, int depth) {
+            this.managers = managers;
+            this.depth = depth;
+        }
+    }
+}
@@ -1,69 +1,436 @@
 package com.mindex.challenge.service.impl;
 
-import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.config.VirtualThreadExecutor;
 import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.ReportCount;
+import com.mindex.challenge.data.ReportEntry;
 import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.graph.CompactHierarchy;
+import com.mindex.challenge.graph.OrgGraph;
 import com.mindex.challenge.service.ReportingStructureService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
 @Service
 public class ReportingStructureServiceImpl implements ReportingStructureService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ReportingStructureServiceImpl.class);
 
     @Autowired
-    private EmployeeRepository employeeRepository;
+    private OrgGraph orgGraph;
+
+    /**
+     * Only there with <code>threads.virtual.enabled=true</code>, in which case the reports a read is missing are
+     * fetched on it, several batches at once. Otherwise they're fetched a level at a time on the request's own thread.
+     */
+    @Autowired(required = false)
+    private VirtualThreadExecutor virtualThreadExecutor;
+
+    /**
+     * Most IDs to fetch in one query, and most queries one read may have in flight at once, so a huge org can't flood
+     * the DB.
+     */
+    @Value("${reporting.fetch.batch-size:100}")
+    private int fetchBatchSize;
+
+    @Value("${reporting.fetch.concurrency:8}")
+    private int fetchConcurrency;
 
     @Override
     public ReportingStructure read(String employeeId) {
-        LOG.debug("Generating reporting structure for employee with ID [{}]", employeeId);
+        return read(employeeId, null);
+    }
+
+    @Override
+    public ReportingStructure read(String employeeId, Integer maxDepth) {
+        return read(employeeId, maxDepth, true);
+    }
+
+    /**
+     * @param hydrate -- whether the structure's employee should come back with every report under them filled out as
+     * full nested records, which means creating them all, as the plain reads do. Otherwise it's just the employee
+     * themselves, with their direct reports as ID-only stubs, same as they're stored, and the structure is worked out
+     * straight off of the org graph's {@link CompactHierarchy} without creating any records at all.
+     */
+    @Override
+    public ReportingStructure read(String employeeId, Integer maxDepth, boolean hydrate) {
+        LOG.debug("Generating reporting structure for employee with ID [{}] to depth [{}], hydrated [{}]", employeeId,
+                maxDepth, hydrate);
+
+        if(null != maxDepth && maxDepth < 0) {
+            throw new IllegalArgumentException("Invalid maxDepth: " + maxDepth);
+        }
 
-        //The bootstrapped data in the DB is inserted literally from the JSON. As such, employee records fetched from
-        //the repo are just stubs, meaning they are Employee instances with ONLY the employeeId set. We need
-        //replace all these stubs with the full records from the repo for the full structure display.
-        Employee employee = employeeRepository.findByEmployeeId(employeeId);
+        //Everything comes out of the in-memory org graph rather than the DB. Just like the records in the repo, the
+        //graph hands back employees whose directReports are stubs, meaning Employee instances with ONLY the
+        //employeeId set.
+        OrgGraph.Node root = orgGraph.get(employeeId);
 
         //Follow the lead of EmployeeServiceImpl regarding nonexistent IDs.
-        if(null == employee) {
+        if(null == root) {
             throw new RuntimeException("Invalid employeeID: " + employeeId);
         }
 
-        fillOutDirectReports(employee);
-
-        //With any nested employee records all filled out, we're all set to generate the reporting structure
+        Employee employee = root.toEmployee();
         ReportingStructure reportingStructure = new ReportingStructure(employee);
-        reportingStructure.calculateStructure();
+
+        if(hydrate) {
+            //We need to replace all the stubs with the full records for the full structure display
+            fillOutDirectReports(employee, maxDepth);
+            reportingStructure.calculateStructure(maxDepth);
+        } else {
+            reportingStructure.calculateStructure(loadHierarchy(employeeId, maxDepth), maxDepth);
+        }
 
         return reportingStructure;
     }
 
+    @Override
+    public ReportCount count(String employeeId) {
+        LOG.debug("Counting reports for employee with ID [{}]", employeeId);
+
+        //The org graph remembers everyone's count until their part of the org changes, so usually there's nothing to
+        //build here
+        Integer numberOfReports = orgGraph.getReportCount(employeeId);
+
+        if(null == numberOfReports) {
+            throw new RuntimeException("Invalid employeeID: " + employeeId);
+        }
+
+        return new ReportCount(employeeId, numberOfReports);
+    }
+
+    /**
+     * The org graph's tag of everyone under the employee, at any depth even when there's a maxDepth. That can only
+     * mean a new ETag when the read would've come back the same, never the other way round. The read's own arguments
+     * go in too, since different reads of the same structure make for different JSON.
+     */
+    @Override
+    public String etag(String employeeId, Integer maxDepth, boolean hydrate) {
+        if(null != maxDepth && maxDepth < 0) {
+            throw new IllegalArgumentException("Invalid maxDepth: " + maxDepth);
+        }
+
+        String structureTag = orgGraph.getStructureTag(employeeId);
+        if(null == structureTag) {
+            throw new RuntimeException("Invalid employeeID: " + employeeId);
+        }
+
+        return structureTag + "-" + (null == maxDepth ? "all" : maxDepth) + (hydrate ? "-hydrated" : "");
+    }
+
+    @Override
+    public Iterator<ReportEntry> walk(String employeeId, Integer maxDepth) {
+        LOG.debug("Walking reporting structure for employee with ID [{}] to depth [{}]", employeeId, maxDepth);
+
+        if(null != maxDepth && maxDepth < 0) {
+            throw new IllegalArgumentException("Invalid maxDepth: " + maxDepth);
+        }
+
+        //Look the root up right away, so a bad ID fails here rather than partway through someone's streamed response
+        OrgGraph.Node root = orgGraph.get(employeeId);
+        if(null == root) {
+            throw new RuntimeException("Invalid employeeID: " + employeeId);
+        }
+
+        return new ReportWalk(root, maxDepth);
+    }
+
+    /**
+     * Gets the compact hierarchy, first making sure it holds everyone under the given employee that it can. Anyone
+     * listed as a report but not yet in the graph is read through, a whole level at a time, so the number of round
+     * trips to the repo grows with the depth of the org instead of its headcount, same as
+     * {@link #fillOutDirectReports}. Everyone read through is patched straight into the hierarchy, so there's no
+     * building it over between levels. Once the graph holds the org, which is always after start-up, it's straight
+     * through. Report IDs with no record in the repo either are remembered by the graph, so they're only asked after
+     * the once, not on every level of every read.
+     */
+    private CompactHierarchy loadHierarchy(String employeeId, Integer maxDepth) {
+        while(true) {
+            CompactHierarchy hierarchy = orgGraph.getCompactHierarchy();
+            int root = hierarchy.ordinalOf(employeeId);
+
+            List<String> missingIds = root < 0 ? List.of(employeeId) : hierarchy.findMissingUnder(root, maxDepth);
+            if(missingIds.isEmpty() || fetchAll(missingIds).isEmpty()) {
+                //Either nobody's missing, or nobody missing has a record anywhere, which is as good as it gets
+                return hierarchy;
+            }
+        }
+    }
+
+    /**
+     * Same as {@link OrgGraph#getAll}. With virtual threads switched on, though, a lot of IDs are split into batches
+     * and fetched concurrently, with no more than <code>reporting.fetch.concurrency</code> batches of this read in
+     * flight at once. The cap is per read, not across reads, so reads going on together can have more than that.
+     * Either way, anyone the graph already holds is straight out of memory.
+     */
+    private Map<String, OrgGraph.Node> fetchAll(Collection<String> employeeIds) {
+        if(null == virtualThreadExecutor || employeeIds.size() <= fetchBatchSize) {
+            return orgGraph.getAll(employeeIds);
+        }
+
+        List<String> ids = new ArrayList<>(employeeIds);
+        Semaphore permits = new Semaphore(fetchConcurrency);
+        List<Future<Map<String, OrgGraph.Node>>> batches = new ArrayList<>();
+        try {
+            for(int i = 0; i < ids.size(); i += fetchBatchSize) {
+                List<String> batch = ids.subList(i, Math.min(i + fetchBatchSize, ids.size()));
+
+                //Wait our turn, so there's never more than the cap's worth of batches in flight
+                permits.acquire();
+                batches.add(virtualThreadExecutor.getExecutorService().submit(() -> {
+                    try {
+                        return orgGraph.getAll(batch);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+
+            Map<String, OrgGraph.Node> found = new HashMap<>();
+            for(Future<Map<String, OrgGraph.Node>> batch : batches) {
+                found.putAll(batch.get());
+            }
+            return found;
+        } catch (InterruptedException e) {
+            batches.forEach(batch -> batch.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted fetching reports", e);
+        } catch (ExecutionException e) {
+            batches.forEach(batch -> batch.cancel(true));
+            if(e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Failed fetching reports", e.getCause());
+        }
+    }
+
     /**
      * Ensures that all {@link Employee} instances in directReports are filled out, for the parent employee as well as
      * any of their own nested direct reports.
      *
+     * Rather than resolving each stub on its own, the hierarchy is loaded one level at a time: every stub hanging off
+     * the current level is resolved with a single {@link #fetchAll} call. Anything the graph doesn't hold yet is
+     * then read through with one query per level (or per batch, on virtual threads, run side by side), so the number
+     * of round trips to the repo grows with the depth of the org instead of its headcount.
+     *
+     * Anyone listed more than once (or, in bad data, listed under their own reports) is only filled out the first
+     * time, and left as a stub after that, so the resulting tree never loops back on itself.
+     *
      * @param employee -- the employee with the given employeeId.
+     * @param maxDepth -- how many levels below the employee to fill out, or null for all of them.
      */
-    private void fillOutDirectReports(Employee employee) {
-        for(Employee directReport : employee.getDirectReports()) {
+    private void fillOutDirectReports(Employee employee, Integer maxDepth) {
+        //Keep track of every ID we've already fetched, so an employee listed under more than one manager is only ever
+        //fetched (and descended into) once.
+        Set<String> fetchedIds = new HashSet<>();
+        fetchedIds.add(employee.getEmployeeId());
 
-            //Only go on to fill out stub records...
-            if(directReport.isOnlyEmployeeIdSet()) {
-                int index = employee.getDirectReports().indexOf(directReport);
+        List<Employee> level = List.of(employee);
+        for(int depth = 1; !level.isEmpty() && (null == maxDepth || depth <= maxDepth); depth++) {
 
-                //Update the directReport record in the parent employee
-                employee.getDirectReports().set(index,
-                        employeeRepository.findByEmployeeId(directReport.getEmployeeId()));
+            //First, collect the IDs of all the stubs on this level that we haven't fetched yet
+            Set<String> stubIds = new LinkedHashSet<>();
+            for(Employee manager : level) {
+                for(Employee directReport : manager.getDirectReports()) {
+                    if(directReport.isOnlyEmployeeIdSet() && !fetchedIds.contains(directReport.getEmployeeId())) {
+                        stubIds.add(directReport.getEmployeeId());
+                    }
+                }
+            }
 
-                //refresh the newly updated directReport
-                directReport = employee.getDirectReports().get(index);
+            //One lookup for the whole level
+            Map<String, Employee> fullRecords = new HashMap<>();
+            for(OrgGraph.Node node : fetchAll(stubIds).values()) {
+                fullRecords.put(node.getEmployeeId(), node.toEmployee());
+            }
+            fetchedIds.addAll(stubIds);
 
-                if(!directReport.getDirectReports().isEmpty()) {
-                    fillOutDirectReports(directReport);
+            //Now swap the stubs out for the full records in their parents. Any stubs we couldn't find are left as-is.
+            for(Employee manager : level) {
+                List<Employee> directReports = manager.getDirectReports();
+                for(int i = 0; i < directReports.size(); i++) {
+                    Employee fullRecord = fullRecords.get(directReports.get(i).getEmployeeId());
+                    if(null != fullRecord && directReports.get(i).isOnlyEmployeeIdSet()) {
+                        directReports.set(i, fullRecord);
+                    }
                 }
             }
+
+            //The records we just fetched make up the next level down
+            level = new ArrayList<>(fullRecords.values());
+        }
+    }
+
+    /**
+     * Lazily walks the org graph under a given employee, handing back one {@link ReportEntry} at a time in the same
+     * order, and by the same rules, as {@link ReportingStructure#calculateStructure(Integer)}: depth-first, anyone
+     * already seen is skipped, a report looping back around to one of their own managers goes no further, and with a
+     * max depth, anyone listed in several places is only taken in where they sit highest up.
+     *
+     * Nothing is built up as the walk goes except a note of the IDs seen so far. The stack only ever holds the chain
+     * of managers down to the current employee, along with each of their direct reports, so it grows with the depth of
+     * the org rather than its size. With a max depth, how far down everyone within it first turns up is worked out
+     * before the walk starts, a level at a time.
+     */
+    private class ReportWalk implements Iterator<ReportEntry> {
+        private final Integer maxDepth;
+        private final Map<String, Integer> shallowestDepths;
+        private final Set<String> seenIds = new HashSet<>();
+        private final Set<String> pathIds = new HashSet<>();
+        private final Deque<Level> stack = new ArrayDeque<>();
+        private ReportEntry next;
+
+        private ReportWalk(OrgGraph.Node root, Integer maxDepth) {
+            this.maxDepth = maxDepth;
+            shallowestDepths = null == maxDepth ? null : findShallowestDepths(root, maxDepth);
+            seenIds.add(root.getEmployeeId());
+            next = toEntry(root, root.getEmployeeId(), null, 0);
+            descend(root, 0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            if(null == next) {
+                next = advance();
+            }
+            return null != next;
+        }
+
+        @Override
+        public ReportEntry next() {
+            if(!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ReportEntry entry = next;
+            next = null;
+            return entry;
+        }
+
+        private ReportEntry advance() {
+            while(!stack.isEmpty()) {
+                Level level = stack.peek();
+
+                //Done with this manager's reports, so back up to theirs
+                if(!level.reportIds.hasNext()) {
+                    stack.pop();
+                    pathIds.remove(level.managerId);
+                    continue;
+                }
+
+                String reportId = level.reportIds.next();
+                if(pathIds.contains(reportId) || isHigherUpElsewhere(reportId, level.depth) || !seenIds.add(reportId)) {
+                    continue;
+                }
+
+                OrgGraph.Node report = level.reports.get(reportId);
+                ReportEntry entry = toEntry(report, reportId, level.managerId, level.depth);
+                if(null != report) {
+                    descend(report, level.depth);
+                }
+                return entry;
+            }
+            return null;
+        }
+
+        private boolean isHigherUpElsewhere(String reportId, int depth) {
+            return null != shallowestDepths && depth > shallowestDepths.getOrDefault(reportId, depth);
+        }
+
+        /**
+         * @return Map -- each ID under the given employee down to the max depth, the employee's own included, to the
+         * fewest levels below them it's found at. Anyone not in the graph yet is read through a level at a time.
+         */
+        private Map<String, Integer> findShallowestDepths(OrgGraph.Node root, int maxDepth) {
+            Map<String, Integer> depths = new HashMap<>();
+            depths.put(root.getEmployeeId(), 0);
+
+            List<String> levelIds = root.getDirectReportIds();
+            for(int depth = 1; depth <= maxDepth && !levelIds.isEmpty(); depth++) {
+                List<String> newIds = new ArrayList<>();
+                for(String reportId : levelIds) {
+                    if(null == depths.putIfAbsent(reportId, depth)) {
+                        newIds.add(reportId);
+                    }
+                }
+
+                List<String> nextLevelIds = new ArrayList<>();
+                if(depth < maxDepth && !newIds.isEmpty()) {
+                    for(OrgGraph.Node report : orgGraph.getAll(newIds).values()) {
+                        nextLevelIds.addAll(report.getDirectReportIds());
+                    }
+                }
+                levelIds = nextLevelIds;
+            }
+
+            return depths;
+        }
+
+        /**
+         * Queues up the direct reports of the given employee to be walked next, unless that would be too deep.
+         */
+        private void descend(OrgGraph.Node manager, int depth) {
+            if((null != maxDepth && depth >= maxDepth) || manager.getDirectReportIds().isEmpty()) {
+                return;
+            }
+
+            //Resolve all of this manager's reports at once, so anyone the graph doesn't hold yet is one read through
+            Map<String, OrgGraph.Node> reports = orgGraph.getAll(manager.getDirectReportIds());
+            stack.push(new Level(manager.getEmployeeId(), manager.getDirectReportIds().iterator(), reports, depth + 1));
+            pathIds.add(manager.getEmployeeId());
+        }
+
+        /**
+         * @param node -- may be null for a report ID with no record behind it, which gets an entry with just the ID.
+         */
+        private ReportEntry toEntry(OrgGraph.Node node, String employeeId, String managerId, int depth) {
+            ReportEntry entry = new ReportEntry();
+            entry.setEmployeeId(employeeId);
+            entry.setManagerId(managerId);
+            entry.setDepth(depth);
+            if(null != node) {
+                entry.setFirstName(node.getFirstName());
+                entry.setLastName(node.getLastName());
+                entry.setPosition(node.getPosition());
+                entry.setDepartment(node.getDepartment());
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * One manager on the walk's stack, along with how far through their direct reports the walk has got.
+     */
+    private static class Level {
+        private final String managerId;
+        private final Iterator<String> reportIds;
+        private final Map<String, OrgGraph.Node> reports;
+        private final int depth;
+
+        private Level(String managerId, Iterator<String> reportIds, Map<String, OrgGraph.Node> reports, int depth) {
+            this.managerId = managerId;
+            this.reportIds = reportIds;
+            this.reports = reports;
+            this.depth = depth;
         }
     }
 
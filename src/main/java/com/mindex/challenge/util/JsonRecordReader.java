@@ -0,0 +1,80 @@
+package com.mindex.challenge.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads JSON records off of a stream one at a time with Jackson's streaming parser, so only the record currently
+ * being read is ever held in memory. Takes either a single JSON array of records, or a plain sequence of records one
+ * after the other, as in newline delimited JSON.
+ */
+public class JsonRecordReader implements Closeable {
+
+    private final ObjectMapper objectMapper;
+    private final JsonParser parser;
+    private final boolean array;
+
+    /**
+     * Whether the parser has to be moved on before the next record can be read. It's only ever moved on when that
+     * record is asked for, so that anything wrong with the input after one record is never blamed on that record.
+     */
+    private boolean advance;
+    private boolean done;
+
+    /**
+     * Position of the record last handed out by {@link #next()}, counting from 0.
+     */
+    private int index = -1;
+
+    public JsonRecordReader(ObjectMapper objectMapper, InputStream inputStream) throws IOException {
+        this.objectMapper = objectMapper;
+        parser = objectMapper.getFactory().createParser(inputStream);
+
+        //Peek at the very first token to tell which of the two layouts we've been given. An array's first record is
+        //the token inside it, otherwise it's this one.
+        array = parser.nextToken() == JsonToken.START_ARRAY;
+        advance = array;
+    }
+
+    /**
+     * @return JsonNode -- the next record, or null once there are no more.
+     * @throws IOException if the stream can't be read, or isn't well formed JSON. There's no telling where the next
+     * record would start after that, so nothing more can be read. Every record before the bad input has been handed
+     * out by then, so {@link #getIndex()} is the last good one.
+     */
+    public JsonNode next() throws IOException {
+        if(done) {
+            return null;
+        }
+
+        //Move on to the start of this record, past the end of the last one
+        JsonToken token = advance ? parser.nextToken() : parser.currentToken();
+        advance = true;
+        if(null == token || (array && token == JsonToken.END_ARRAY)) {
+            done = true;
+            return null;
+        }
+
+        JsonNode record = objectMapper.readTree(parser);
+        index++;
+        return record;
+    }
+
+    /**
+     * @return int -- position of the record last returned by {@link #next()}, counting from 0, or -1 before the first.
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public void close() throws IOException {
+        parser.close();
+    }
+}
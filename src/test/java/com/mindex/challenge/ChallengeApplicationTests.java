@@ -1,6 +1,9 @@
 package com.mindex.challenge;
 
+import com.mindex.challenge.config.MongoIndexInitializer;
+import com.mindex.challenge.dao.EmployeeDocumentListener;
 import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.Compensation;
 import com.mindex.challenge.data.Employee;
 import com.mindex.challenge.data.ReportingStructure;
 import com.mindex.challenge.data.builder.EmployeeBuilder;
@@ -10,18 +13,34 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static com.mindex.challenge.service.impl.EmployeeServiceImplTest.assertEmployeeEquivalence;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
 public class ChallengeApplicationTests {
 
+	private static final Logger LOG = LoggerFactory.getLogger(ChallengeApplicationTests.class);
+
 	private ReportingStructure reportingStructure;
 
 	@Rule
@@ -36,6 +55,9 @@ public class ChallengeApplicationTests {
 	@Autowired
 	private EmployeeService employeeService;
 
+	@Autowired
+	private MongoTemplate mongoTemplate;
+
 	@Test
 	public void contextLoads() {
 	}
@@ -174,4 +196,135 @@ public class ChallengeApplicationTests {
 				reportingStructure.getTreeLikeDisplay());
 	}
 
+	/**
+	 * Tests that the reporting structure goes all the way down a deep chain of command, not just two levels.
+	 */
+	@Test
+	public void test_reportingStructure_deepChain() {
+		Employee root = new EmployeeBuilder("Top Dog").build();
+
+		Employee manager = root;
+		for(int i = 0; i < 12; i++) {
+			Employee report = new EmployeeBuilder("Level" + i + " Report").build();
+			manager.addDirectReport(report);
+			manager = report;
+		}
+
+		reportingStructure = new ReportingStructure(root);
+		reportingStructure.calculateStructure();
+
+		assertEquals(12, reportingStructure.getNumberOfReports());
+		assertTrue(reportingStructure.getTreeLikeDisplay().startsWith("+Top Dog\n" +
+				"|--Level0 Report\n" +
+				"   |---Level1 Report\n" +
+				"       |----Level2 Report\n" +
+				"            |-----Level3 Report\n"));
+		assertFalse(reportingStructure.isCycleDetected());
+
+		//Now again, but only a few levels down
+		reportingStructure.calculateStructure(3);
+		assertEquals(3, reportingStructure.getNumberOfReports());
+	}
+
+	/**
+	 * Tests that a chain of reports looping back around to their own manager is cut off, rather than going on forever.
+	 */
+	@Test
+	public void test_reportingStructure_cycle() {
+		Employee root = new EmployeeBuilder("Circle Jerk").employeeId("c1").build();
+		Employee directRep = new EmployeeBuilder("Round Robin").employeeId("c2").build();
+		Employee subDirectRep = new EmployeeBuilder("Loop DeLoop").employeeId("c3").build();
+
+		root.addDirectReport(directRep);
+		directRep.addDirectReport(subDirectRep);
+
+		//...and the bad data, pointing back up to the top as a stub, like it would come out of the DB
+		Employee rootStub = new Employee();
+		rootStub.setEmployeeId("c1");
+		subDirectRep.addDirectReport(rootStub);
+		subDirectRep.addDirectReport(directRep);
+
+		reportingStructure = new ReportingStructure(root);
+		reportingStructure.calculateStructure();
+
+		assertTrue(reportingStructure.isCycleDetected());
+		assertEquals(2, reportingStructure.getNumberOfReports());
+		assertEquals("+Circle Jerk\n|--Round Robin\n   |---Loop DeLoop\n", reportingStructure.getTreeLikeDisplay());
+	}
+
+	/**
+	 * Rough benchmark of the reporting structure calculation over a big synthetic org of 100k employees, where
+	 * everyone manages up to 4 reports, making it around 9 levels deep.
+	 */
+	@Test
+	public void test_reportingStructure_largeOrgBenchmark() {
+		int orgSize = 100_000;
+		int span = 4;
+
+		List<Employee> employees = new ArrayList<>(orgSize);
+		for(int i = 0; i < orgSize; i++) {
+			Employee employee = new EmployeeBuilder().employeeId("emp-" + i).build();
+			employees.add(employee);
+			if(i > 0) {
+				employees.get((i - 1) / span).addDirectReport(employee);
+			}
+		}
+
+		//A few warm up rounds first, so we're not just timing the JIT
+		for(int i = 0; i < 3; i++) {
+			new ReportingStructure(employees.get(0)).calculateStructure();
+		}
+
+		long start = System.nanoTime();
+		reportingStructure = new ReportingStructure(employees.get(0));
+		reportingStructure.calculateStructure();
+		long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		LOG.info("Calculated reporting structure of [{}] employees in [{}] ms", orgSize, elapsedMillis);
+		assertEquals(orgSize - 1, reportingStructure.getNumberOfReports());
+	}
+
+	/**
+	 * Tests that the indexes behind the lookups on both collections, by employee, by direct report, and by department
+	 * and by position, are all in place, over the right fields, in the right order and directions.
+	 */
+	@Test
+	public void test_indexesExist() {
+		Map<String, IndexInfo> compensationIndexes = indexesByName(Compensation.class);
+		assertIndexFields(compensationIndexes.get(MongoIndexInitializer.COMPENSATION_EMPLOYEE_INDEX),
+				"employeeId", Sort.Direction.ASC, "effectiveDate", Sort.Direction.DESC);
+
+		Map<String, IndexInfo> employeeIndexes = indexesByName(Employee.class);
+		assertIndexFields(employeeIndexes.get(MongoIndexInitializer.EMPLOYEE_MANAGER_INDEX),
+				EmployeeDocumentListener.DIRECT_REPORT_IDS, Sort.Direction.ASC);
+		assertIndexFields(employeeIndexes.get(MongoIndexInitializer.EMPLOYEE_DEPARTMENT_INDEX),
+				"department", Sort.Direction.ASC, "_id", Sort.Direction.ASC);
+		assertIndexFields(employeeIndexes.get(MongoIndexInitializer.EMPLOYEE_POSITION_INDEX),
+				"position", Sort.Direction.ASC, "_id", Sort.Direction.ASC);
+
+		//Lookups by employee ID go through the _id index Mongo always has
+		assertIndexFields(employeeIndexes.get("_id_"), "_id", Sort.Direction.ASC);
+	}
+
+	private Map<String, IndexInfo> indexesByName(Class<?> type) {
+		Map<String, IndexInfo> indexes = new HashMap<>();
+		for(IndexInfo index : mongoTemplate.indexOps(type).getIndexInfo()) {
+			indexes.put(index.getName(), index);
+		}
+		return indexes;
+	}
+
+	/**
+	 * @param fields -- each of the index's fields, in order, as its key followed by its direction.
+	 */
+	private static void assertIndexFields(IndexInfo index, Object... fields) {
+		assertNotNull(index);
+		List<IndexField> indexFields = index.getIndexFields();
+		assertEquals(index.toString(), fields.length / 2, indexFields.size());
+		for(int i = 0; i < indexFields.size(); i++) {
+			assertEquals(index.toString(), fields[2 * i], indexFields.get(i).getKey());
+			assertEquals(index.toString(), fields[2 * i + 1], indexFields.get(i).getDirection());
+		}
+	}
+
 }
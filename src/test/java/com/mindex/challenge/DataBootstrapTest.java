@@ -8,11 +8,17 @@ import com.mindex.challenge.service.CompensationService;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Status;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
-import static org.junit.Assert.assertEquals;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
@@ -24,8 +30,17 @@ public class DataBootstrapTest {
     @Autowired
     private CompensationRepository compensationRepository;
 
+    @Autowired
+    private DataBootstrap dataBootstrap;
+
+    @Autowired
+    private BootstrapHealthIndicator bootstrapHealthIndicator;
+
     @Test
     public void test() {
+        //Bootstrapping is synchronous by default, so it's all done before the tests ever run
+        assertTrue(dataBootstrap.isReady());
+
         Employee employee = employeeRepository.findByEmployeeId("16a596ae-edd3-4847-99fe-c4518e82c86f");
         assertNotNull(employee);
         assertEquals("John", employee.getFirstName());
@@ -33,6 +48,26 @@ public class DataBootstrapTest {
         assertEquals("Development Manager", employee.getPosition());
         assertEquals("Engineering", employee.getDepartment());
 
-        Compensation compensation = compensationRepository.findByEmployeeId("16a596ae-edd3-4847-99fe-c4518e82c86f");
+        Compensation compensation = compensationRepository
+                .findFirstByEmployeeIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(
+                        "16a596ae-edd3-4847-99fe-c4518e82c86f", LocalDate.now());
+        assertNotNull(compensation);
+        assertEquals(new BigDecimal("50000"), compensation.getSalary());
+        assertEquals(LocalDate.parse("2022-01-01"), compensation.getEffectiveDate());
+    }
+
+    /**
+     * Tests that the app's health is out of service for as long as the bootstrap isn't ready, and up after.
+     */
+    @Test
+    public void test_health() {
+        assertEquals(Status.UP, bootstrapHealthIndicator.health().getStatus());
+
+        ReflectionTestUtils.setField(dataBootstrap, "ready", false);
+        try {
+            assertEquals(Status.OUT_OF_SERVICE, bootstrapHealthIndicator.health().getStatus());
+        } finally {
+            ReflectionTestUtils.setField(dataBootstrap, "ready", true);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,143 @@
+package com.mindex.challenge.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mindex.challenge.data.Employee;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import de.bwaldvogel.mongo.MongoServer;
+import de.bwaldvogel.mongo.backend.h2.H2Backend;
+import de.bwaldvogel.mongo.backend.memory.MemoryBackend;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Compares write throughput and read latency across the backends {@link MongoConfig} can be switched between, using
+ * the seed employees scaled up by <code>benchmark.scale</code> copies.
+ *
+ * Takes a while, so it only runs when asked for, e.g. <code>./gradlew test -Dbenchmark.backends=true</code>. Pass
+ * <code>-Dbenchmark.mongo.uri=mongodb://...</code> as well to include an external Mongo. Results are logged.
+ */
+public class MongoBackendBenchmarkTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MongoBackendBenchmarkTest.class);
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int READS = 10_000;
+
+    @Before
+    public void setup() {
+        Assume.assumeTrue("Backend benchmark not requested", Boolean.getBoolean("benchmark.backends"));
+    }
+
+    @Test
+    public void benchmark_backends() throws Exception {
+        List<Employee> employees = scaledDataset(Integer.getInteger("benchmark.scale", 1000));
+        LOG.info("Benchmarking backends with [{}] employees", employees.size());
+
+        benchmarkEmbedded("memory", new MongoServer(new MemoryBackend()), employees);
+
+        Path h2Dir = Files.createTempDirectory("challenge-benchmark");
+        Path h2File = h2Dir.resolve("benchmark.mv");
+        try {
+            benchmarkEmbedded("h2", new MongoServer(new H2Backend(h2File.toString())), employees);
+        } finally {
+            Files.deleteIfExists(h2File);
+            Files.deleteIfExists(h2Dir);
+        }
+
+        String uri = System.getProperty("benchmark.mongo.uri");
+        if(null != uri) {
+            try(MongoClient client = MongoClients.create(uri)) {
+                benchmark("uri", client, employees);
+            }
+        }
+    }
+
+    private void benchmarkEmbedded(String backend, MongoServer server, List<Employee> employees) {
+        server.bind();
+        try(MongoClient client = MongoClients.create("mongodb:/" + server.getLocalAddress())) {
+            benchmark(backend, client, employees);
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private void benchmark(String backend, MongoClient client, List<Employee> employees) {
+        MongoTemplate mongoTemplate = new MongoTemplate(client, "benchmark");
+        mongoTemplate.dropCollection(Employee.class);
+
+        //Writes, in batches the same size as the bootstrap's
+        long start = System.nanoTime();
+        for(int i = 0; i < employees.size(); i += BATCH_SIZE) {
+            mongoTemplate.insert(employees.subList(i, Math.min(i + BATCH_SIZE, employees.size())), Employee.class);
+        }
+        long writeNanos = System.nanoTime() - start;
+
+        //Reads, by ID, at random, after a warm up
+        Random random = new Random(42);
+        for(int i = 0; i < READS / 10; i++) {
+            mongoTemplate.findById(employees.get(random.nextInt(employees.size())).getEmployeeId(), Employee.class);
+        }
+
+        long[] readNanos = new long[READS];
+        for(int i = 0; i < READS; i++) {
+            String employeeId = employees.get(random.nextInt(employees.size())).getEmployeeId();
+            long readStart = System.nanoTime();
+            assertNotNull(mongoTemplate.findById(employeeId, Employee.class));
+            readNanos[i] = System.nanoTime() - readStart;
+        }
+        Arrays.sort(readNanos);
+
+        LOG.info("[{}] writes: [{}] records/sec, reads: mean [{}] us, p50 [{}] us, p99 [{}] us", backend,
+                employees.size() * TimeUnit.SECONDS.toNanos(1) / Math.max(writeNanos, 1),
+                TimeUnit.NANOSECONDS.toMicros(Arrays.stream(readNanos).sum() / READS),
+                TimeUnit.NANOSECONDS.toMicros(readNanos[READS / 2]),
+                TimeUnit.NANOSECONDS.toMicros(readNanos[READS * 99 / 100]));
+
+        mongoTemplate.dropCollection(Employee.class);
+    }
+
+    /**
+     * @return List -- the given number of copies of the seed employees, each copy with its own IDs but the same shape.
+     */
+    private List<Employee> scaledDataset(int copies) throws Exception {
+        Employee[] seed;
+        try(InputStream inputStream = getClass().getResourceAsStream("/static/employee_database.json")) {
+            seed = new ObjectMapper().readValue(inputStream, Employee[].class);
+        }
+
+        List<Employee> employees = new ArrayList<>(seed.length * copies);
+        for(int copy = 0; copy < copies; copy++) {
+            for(Employee original : seed) {
+                Employee employee = new Employee();
+                employee.setEmployeeId(original.getEmployeeId() + "-" + copy);
+                employee.setFirstName(original.getFirstName());
+                employee.setLastName(original.getLastName());
+                employee.setPosition(original.getPosition());
+                employee.setDepartment(original.getDepartment());
+                for(Employee directReport : original.getDirectReports()) {
+                    Employee stub = new Employee();
+                    stub.setEmployeeId(directReport.getEmployeeId() + "-" + copy);
+                    employee.addDirectReport(stub);
+                }
+                employees.add(employee);
+            }
+        }
+        return employees;
+    }
+}
@@ -0,0 +1,136 @@
+package com.mindex.challenge.controller.reactive;
+
+import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.data.builder.EmployeeBuilder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.mindex.challenge.service.impl.EmployeeServiceImplTest.assertEmployeeEquivalence;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Runs the app under the "reactive" profile, with a small fill out batch size so even a handful of reports is read in
+ * several concurrent batches.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "reactive.fill-out.batch-size=2")
+@ActiveProfiles("reactive")
+public class ReactiveApiTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Test
+    public void test_employee_createReadUpdate() {
+        Employee employee = new EmployeeBuilder("Rea Ctive").position("Developer").department("Engineering").build();
+
+        Employee created = webTestClient.post().uri("/employee").bodyValue(employee)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Employee.class).returnResult().getResponseBody();
+        assertNotNull(created);
+        assertNotNull(created.getEmployeeId());
+
+        Employee read = webTestClient.get().uri("/employee/{id}", created.getEmployeeId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Employee.class).returnResult().getResponseBody();
+        assertEmployeeEquivalence(created, read);
+
+        created.setPosition("Lead Developer");
+        Employee updated = webTestClient.put().uri("/employee/{id}", created.getEmployeeId()).bodyValue(created)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Employee.class).returnResult().getResponseBody();
+        assertEmployeeEquivalence(created, updated);
+
+        webTestClient.get().uri("/employee/{id}", "nobody").exchange().expectStatus().is5xxServerError();
+    }
+
+    @Test
+    public void test_compensation_createRead() {
+        Compensation compensation = new Compensation(stub("16a596ae-edd3-4847-99fe-c4518e82c86f"));
+        compensation.setSalary(new BigDecimal("150000"));
+
+        webTestClient.post().uri("/compensation").bodyValue(compensation).exchange().expectStatus().isOk();
+
+        Compensation read = webTestClient.get().uri("/compensation/{id}", "16a596ae-edd3-4847-99fe-c4518e82c86f")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Compensation.class).returnResult().getResponseBody();
+        assertNotNull(read);
+        assertEquals(0, new BigDecimal("150000").compareTo(read.getSalary()));
+        assertEquals("Lennon", read.getEmployee().getLastName());
+    }
+
+    /**
+     * Tests that the hydrated read, fanned out over several batches per level, works out the same structure as the
+     * plain read over the org graph.
+     */
+    @Test
+    public void test_reportingStructure_hydrated() {
+        List<Employee> reports = new ArrayList<>();
+        EmployeeBuilder manager = new EmployeeBuilder("Fanny Out");
+        for(int i = 0; i < 5; i++) {
+            Employee report = new EmployeeBuilder("Report" + i + " Concurrent").build();
+            reports.add(report);
+            manager.directReport(stub(report.getEmployeeId()));
+        }
+        //...plus one of them listed twice, and one nobody's heard of
+        manager.directReport(stub(reports.get(0).getEmployeeId())).directReport(stub("nobody"));
+
+        Employee managerRecord = manager.build();
+        List<Employee> records = new ArrayList<>(reports);
+        records.add(managerRecord);
+        employeeRepository.insert(records);
+
+        ReportingStructure hydrated = readReportingStructure(managerRecord.getEmployeeId(), true);
+        assertEquals(6, hydrated.getNumberOfReports());
+        for(Employee report : hydrated.getEmployee().getDirectReports().subList(0, 5)) {
+            assertFalse(report.isOnlyEmployeeIdSet());
+        }
+
+        ReportingStructure plain = readReportingStructure(managerRecord.getEmployeeId(), false);
+        assertEquals(hydrated.getNumberOfReports(), plain.getNumberOfReports());
+        assertEquals(hydrated.getTreeLikeDisplay(), plain.getTreeLikeDisplay());
+
+        ReportingStructure example = readReportingStructure("16a596ae-edd3-4847-99fe-c4518e82c86f", true);
+        assertEquals(4, example.getNumberOfReports());
+        assertEquals("+John Lennon\n|--Paul McCartney\n|--Ringo Starr\n   |---Pete Best\n   |---George Harrison\n",
+                example.getTreeLikeDisplay());
+    }
+
+    private ReportingStructure readReportingStructure(String employeeId, boolean hydrate) {
+        ReportingStructure reportingStructure = webTestClient.get()
+                .uri("/reportingStructure/{employeeId}?hydrate={hydrate}", employeeId, hydrate)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ReportingStructure.class).returnResult().getResponseBody();
+        assertNotNull(reportingStructure);
+        return reportingStructure;
+    }
+
+    private static Employee stub(String employeeId) {
+        Employee stub = new Employee();
+        stub.setEmployeeId(employeeId);
+        return stub;
+    }
+}
@@ -0,0 +1,130 @@
+package com.mindex.challenge.dao;
+
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.builder.EmployeeBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class EmployeeCacheTest {
+
+    private EmployeeRepository employeeRepository;
+    private EmployeeCache employeeCache;
+
+    @Before
+    public void setup() {
+        employeeRepository = mock(EmployeeRepository.class);
+        employeeCache = newCache(true);
+    }
+
+    /**
+     * Tests that only the first lookup goes to the repo, and that the counters show it.
+     */
+    @Test
+    public void test_find_readsThrough() {
+        Employee employee = new EmployeeBuilder("Carrie Cached").employeeId("c1").build();
+        when(employeeRepository.findByEmployeeId("c1")).thenReturn(employee);
+
+        assertEquals("Carrie Cached", employeeCache.find("c1").getFullName());
+        assertEquals("Carrie Cached", employeeCache.find("c1").getFullName());
+        assertNull(employeeCache.find("nobody"));
+
+        verify(employeeRepository, times(1)).findByEmployeeId("c1");
+        assertEquals(1, employeeCache.stats().hitCount());
+        assertEquals(2, employeeCache.stats().missCount());
+    }
+
+    /**
+     * Tests that callers only ever get copies, so messing with one can't corrupt the cached record.
+     */
+    @Test
+    public void test_find_returnsCopies() {
+        Employee employee = new EmployeeBuilder("Carrie Cached").employeeId("c1").build();
+        when(employeeRepository.findByEmployeeId("c1")).thenReturn(employee);
+
+        Employee first = employeeCache.find("c1");
+        first.setFirstName("Changed");
+        first.addDirectReport(new EmployeeBuilder().employeeId("r1").build());
+
+        Employee second = employeeCache.find("c1");
+        assertNotSame(first, second);
+        assertEquals("Carrie", second.getFirstName());
+        assertTrue(second.getDirectReports().isEmpty());
+    }
+
+    /**
+     * Tests that writing an update through replaces what's cached, without another trip to the repo.
+     */
+    @Test
+    public void test_put_writesThrough() {
+        Employee employee = new EmployeeBuilder("Carrie Cached").employeeId("c1").build();
+        when(employeeRepository.findByEmployeeId("c1")).thenReturn(employee);
+        employeeCache.find("c1");
+
+        employeeCache.put(new EmployeeBuilder("Carrie Changed").employeeId("c1").build());
+        assertEquals("Carrie Changed", employeeCache.find("c1").getFullName());
+
+        employeeCache.invalidate("c1");
+        assertEquals("Carrie Cached", employeeCache.find("c1").getFullName());
+        verify(employeeRepository, times(2)).findByEmployeeId("c1");
+    }
+
+    /**
+     * Tests that a batch lookup only asks the repo for the employees that aren't already cached, and leaves out any it
+     * can't find.
+     */
+    @Test
+    public void test_findAll_loadsOnlyMisses() {
+        Employee cached = new EmployeeBuilder("Carrie Cached").employeeId("c1").build();
+        Employee loaded = new EmployeeBuilder("Larry Loaded").employeeId("l1").build();
+        employeeCache.put(cached);
+        when(employeeRepository.findByEmployeeIdIn(anyCollection())).thenReturn(List.of(loaded));
+
+        Map<String, Employee> found = employeeCache.findAll(List.of("c1", "l1", "nobody"));
+
+        assertEquals(Set.of("c1", "l1"), found.keySet());
+        verify(employeeRepository, times(1)).findByEmployeeIdIn(Set.of("l1", "nobody"));
+    }
+
+    /**
+     * Tests that with the cache switched off, every lookup goes to the repo.
+     */
+    @Test
+    public void test_disabled_passesThrough() {
+        employeeCache = newCache(false);
+        Employee employee = new EmployeeBuilder("Carrie Cached").employeeId("c1").build();
+        when(employeeRepository.findByEmployeeId("c1")).thenReturn(employee);
+
+        employeeCache.put(employee);
+        employeeCache.find("c1");
+        employeeCache.find("c1");
+
+        verify(employeeRepository, times(2)).findByEmployeeId("c1");
+        assertEquals(0, employeeCache.size());
+    }
+
+    private EmployeeCache newCache(boolean enabled) {
+        EmployeeCache cache = new EmployeeCache();
+        ReflectionTestUtils.setField(cache, "employeeRepository", employeeRepository);
+        ReflectionTestUtils.setField(cache, "enabled", enabled);
+        ReflectionTestUtils.setField(cache, "maxSize", 100L);
+        ReflectionTestUtils.setField(cache, "ttl", Duration.ofMinutes(1));
+        cache.init();
+        return cache;
+    }
+}
@@ -0,0 +1,122 @@
+package com.mindex.challenge.dao;
+
+import com.mindex.challenge.config.DirectReportIdsMigration;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.builder.EmployeeBuilder;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DocumentCodec;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class EmployeeStorageTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EmployeeStorageTest.class);
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private DirectReportIdsMigration migration;
+
+    private MongoCollection<Document> collection;
+
+    @Before
+    public void setup() {
+        collection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Employee.class));
+    }
+
+    /**
+     * Tests that saving an employee with their reports filled out stores only the reports' IDs, and that they still
+     * come back out of the repo as stubs.
+     */
+    @Test
+    public void test_storesReportIdsOnly() {
+        Employee grandReport = new EmployeeBuilder("Gina Grand").build();
+        Employee report = new EmployeeBuilder("Rory Report").directReport(grandReport).build();
+        Employee manager = new EmployeeBuilder("Mandy Manager").directReport(report).build();
+        employeeRepository.insert(List.of(grandReport, report, manager));
+
+        Document stored = collection.find(Filters.eq("_id", manager.getEmployeeId())).first();
+        assertFalse(stored.containsKey(EmployeeDocumentListener.DIRECT_REPORTS));
+        assertEquals(List.of(report.getEmployeeId()), stored.get(EmployeeDocumentListener.DIRECT_REPORT_IDS));
+
+        //The employee saved is left as it was
+        assertEquals("Rory", manager.getDirectReports().get(0).getFirstName());
+
+        Employee read = employeeRepository.findByEmployeeId(manager.getEmployeeId());
+        assertEquals(1, read.getDirectReports().size());
+        assertEquals(report.getEmployeeId(), read.getDirectReports().get(0).getEmployeeId());
+        assertTrue(read.getDirectReports().get(0).isOnlyEmployeeIdSet());
+
+        List<Employee> managers = employeeRepository.findByDirectReportsEmployeeId(report.getEmployeeId());
+        assertEquals(1, managers.size());
+        assertEquals(manager.getEmployeeId(), managers.get(0).getEmployeeId());
+    }
+
+    /**
+     * Tests that documents stored the old way, with stale copies of the reports embedded in them, read as stubs even
+     * before they're migrated, and that the migration cuts them down to just the IDs.
+     */
+    @Test
+    public void test_migrate() {
+        Document staleGrandReport = new Document("_id", "legacy-grand").append("firstName", "Stale");
+        Document staleReport = new Document("_id", "legacy-report").append("firstName", "Stale")
+                .append("lastName", "Copy")
+                .append(EmployeeDocumentListener.DIRECT_REPORTS, List.of(staleGrandReport));
+        Document legacy = new Document("_id", "legacy-manager").append("firstName", "Leggy")
+                .append("lastName", "Legacy")
+                .append(EmployeeDocumentListener.DIRECT_REPORTS, List.of(staleReport, new Document("_id", "legacy-2")));
+        collection.insertOne(legacy);
+        int legacyBytes = sizeOf(legacy);
+
+        Employee read = employeeRepository.findByEmployeeId("legacy-manager");
+        assertEquals(2, read.getDirectReports().size());
+        assertTrue(read.getDirectReports().get(0).isOnlyEmployeeIdSet());
+        assertEquals("legacy-2", read.getDirectReports().get(1).getEmployeeId());
+
+        assertTrue(migration.migrate() >= 1);
+
+        Document migrated = collection.find(Filters.eq("_id", "legacy-manager")).first();
+        assertFalse(migrated.containsKey(EmployeeDocumentListener.DIRECT_REPORTS));
+        assertEquals(List.of("legacy-report", "legacy-2"), migrated.get(EmployeeDocumentListener.DIRECT_REPORT_IDS));
+        assertEquals("Leggy", migrated.getString("firstName"));
+
+        int migratedBytes = sizeOf(migrated);
+        LOG.info("Legacy document of [{}] bytes migrated to [{}] bytes", legacyBytes, migratedBytes);
+        assertTrue(migratedBytes < legacyBytes);
+
+        read = employeeRepository.findByEmployeeId("legacy-manager");
+        List<String> reportIds = new ArrayList<>();
+        read.getDirectReports().forEach(directReport -> reportIds.add(directReport.getEmployeeId()));
+        assertEquals(List.of("legacy-report", "legacy-2"), reportIds);
+
+        //Nothing left to do second time around
+        assertEquals(0, migration.migrate());
+    }
+
+    private static int sizeOf(Document document) {
+        return new RawBsonDocument(document, new DocumentCodec()).getByteBuffer().remaining();
+    }
+}
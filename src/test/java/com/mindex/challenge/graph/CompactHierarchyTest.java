@@ -0,0 +1,255 @@
+package com.mindex.challenge.graph;
+
+import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.data.builder.EmployeeBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CompactHierarchyTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompactHierarchyTest.class);
+
+    private OrgGraph orgGraph;
+
+    @Before
+    public void setup() {
+        orgGraph = new OrgGraph();
+        ReflectionTestUtils.setField(orgGraph, "employeeRepository", mock(EmployeeRepository.class));
+    }
+
+    /**
+     * Tests that reports and managers come out in order, and that a report with no record still gets an ordinal.
+     */
+    @Test
+    public void test_build() {
+        orgGraph.put(new EmployeeBuilder("Anne Alpha").employeeId("a").directReport(stub("b")).directReport(stub("c"))
+                .build());
+        orgGraph.put(new EmployeeBuilder("Bert Beta").employeeId("b").directReport(stub("c"))
+                .directReport(stub("ghost")).build());
+        orgGraph.put(new EmployeeBuilder("Cleo Gamma").employeeId("c").department("Shared Services").build());
+
+        CompactHierarchy hierarchy = orgGraph.getCompactHierarchy();
+        assertEquals(4, hierarchy.size());
+
+        int a = hierarchy.ordinalOf("a");
+        assertEquals(2, hierarchy.getReportCount(a));
+        assertEquals("b", hierarchy.getEmployeeId(hierarchy.getReport(a, 0)));
+        assertEquals("c", hierarchy.getEmployeeId(hierarchy.getReport(a, 1)));
+
+        int c = hierarchy.ordinalOf("c");
+        assertEquals(2, hierarchy.getManagerCount(c));
+        assertEquals("Cleo Gamma", hierarchy.getFullName(c));
+        assertEquals("Shared Services", hierarchy.getDepartment(c));
+
+        int ghost = hierarchy.ordinalOf("ghost");
+        assertFalse(hierarchy.hasRecord(ghost));
+        assertNull(hierarchy.getFirstName(ghost));
+        assertEquals(List.of("ghost"), hierarchy.findMissingUnder(a, null));
+        assertEquals(List.of(), hierarchy.findMissingUnder(a, 1));
+        assertEquals(-1, hierarchy.ordinalOf("nobody"));
+
+        //Handed out again until the graph changes, and then it's patched rather than built over
+        assertTrue(hierarchy == orgGraph.getCompactHierarchy());
+        orgGraph.put(new EmployeeBuilder("Gus Ghost").employeeId("ghost").build());
+        CompactHierarchy patched = orgGraph.getCompactHierarchy();
+        assertTrue(patched.hasRecord(patched.ordinalOf("ghost")));
+        assertEquals(ghost, patched.ordinalOf("ghost"));
+        assertEquals(1, patched.getOverlaySize());
+        assertFalse(hierarchy.hasRecord(ghost));
+    }
+
+    /**
+     * Tests that patching changes into the hierarchy, moving reports about, hiring, and reading employees through,
+     * leaves it walking, and wired up, the same as one built from scratch.
+     */
+    @Test
+    public void test_patch_matchesBuild() {
+        EmployeeRepository employeeRepository = mock(EmployeeRepository.class);
+        ReflectionTestUtils.setField(orgGraph, "employeeRepository", employeeRepository);
+        orgGraph.put(new EmployeeBuilder("Bea Boss").employeeId("boss").directReport(stub("left"))
+                .directReport(stub("right")).build());
+        orgGraph.put(new EmployeeBuilder("Lou Left").employeeId("left").directReport(stub("l1")).build());
+        orgGraph.put(new EmployeeBuilder("Rae Right").employeeId("right").build());
+        orgGraph.put(new EmployeeBuilder("Lena One").employeeId("l1").build());
+        CompactHierarchy built = orgGraph.getCompactHierarchy();
+
+        //Hand the report over to the right, who also hires someone new, and someone with a report of their own
+        orgGraph.put(new EmployeeBuilder("Lou Left").employeeId("left").build());
+        orgGraph.put(new EmployeeBuilder("Rae Right").employeeId("right").directReport(stub("l1"))
+                .directReport(stub("newbie")).directReport(stub("stored")).build());
+        orgGraph.put(new EmployeeBuilder("Ned Newbie").employeeId("newbie").build());
+
+        //And someone written straight to the repo turns up by being read through
+        when(employeeRepository.findByEmployeeIdIn(anyCollection())).thenReturn(List.of(
+                new EmployeeBuilder("Stu Stored").employeeId("stored").directReport(stub("left")).build()));
+        orgGraph.getAll(List.of("stored"));
+
+        CompactHierarchy patched = orgGraph.getCompactHierarchy();
+        CompactHierarchy fresh = CompactHierarchy.build(orgGraph.getNodes());
+        assertTrue(patched.getOverlaySize() > 0);
+        assertEquals(built.size() + 2, patched.size());
+        assertEquals(fresh.size(), patched.size());
+
+        for(int ordinal = 0; ordinal < fresh.size(); ordinal++) {
+            String id = fresh.getEmployeeId(ordinal);
+            int patchedOrdinal = patched.ordinalOf(id);
+            assertEquals(id, patched.getEmployeeId(patchedOrdinal));
+            assertEquals(fresh.hasRecord(ordinal), patched.hasRecord(patchedOrdinal));
+            assertEquals(fresh.getFullName(ordinal), patched.getFullName(patchedOrdinal));
+            assertEquals(reportIds(fresh, ordinal), reportIds(patched, patchedOrdinal));
+            assertEquals(new HashSet<>(managerIds(fresh, ordinal)), new HashSet<>(managerIds(patched, patchedOrdinal)));
+        }
+
+        for(Integer maxDepth : new Integer[] {null, 1, 2}) {
+            ReportingStructure fromFresh = new ReportingStructure(orgGraph.get("boss").toEmployee());
+            fromFresh.calculateStructure(fresh, maxDepth);
+
+            ReportingStructure fromPatched = new ReportingStructure(orgGraph.get("boss").toEmployee());
+            fromPatched.calculateStructure(patched, maxDepth);
+
+            assertEquals(fromFresh.getTreeLikeDisplay(), fromPatched.getTreeLikeDisplay());
+            assertEquals(fromFresh.getNumberOfReports(), fromPatched.getNumberOfReports());
+            assertEquals(fromFresh.isCycleDetected(), fromPatched.isCycleDetected());
+        }
+    }
+
+    private static List<String> reportIds(CompactHierarchy hierarchy, int ordinal) {
+        List<String> reportIds = new ArrayList<>();
+        for(int i = 0; i < hierarchy.getReportCount(ordinal); i++) {
+            reportIds.add(hierarchy.getEmployeeId(hierarchy.getReport(ordinal, i)));
+        }
+        return reportIds;
+    }
+
+    private static List<String> managerIds(CompactHierarchy hierarchy, int ordinal) {
+        List<String> managerIds = new ArrayList<>();
+        for(int i = 0; i < hierarchy.getManagerCount(ordinal); i++) {
+            managerIds.add(hierarchy.getEmployeeId(hierarchy.getManager(ordinal, i)));
+        }
+        return managerIds;
+    }
+
+    /**
+     * Tests that walking the compact hierarchy follows the very same rules as walking the employee records, with
+     * shared reports and loops in the org.
+     */
+    @Test
+    public void test_calculateStructure_matchesRecords() {
+        Map<String, Employee> records = new HashMap<>();
+        records.put("boss", new EmployeeBuilder("Bea Boss").employeeId("boss").directReport(stub("left"))
+                .directReport(stub("right")).build());
+        records.put("left", new EmployeeBuilder("Lou Left").employeeId("left").directReport(stub("shared")).build());
+        records.put("right", new EmployeeBuilder("Rae Right").employeeId("right").directReport(stub("shared"))
+                .directReport(stub("ghost")).build());
+        records.put("shared", new EmployeeBuilder("Sam Shared").employeeId("shared").directReport(stub("boss"))
+                .build());
+        records.values().forEach(orgGraph::put);
+
+        //The records, all wired up to each other in full
+        Map<String, Employee> wired = new HashMap<>();
+        records.forEach((id, record) -> wired.put(id, orgGraph.get(id).toEmployee()));
+        for(Employee employee : wired.values()) {
+            List<Employee> directReports = employee.getDirectReports();
+            for(int i = 0; i < directReports.size(); i++) {
+                directReports.set(i, wired.getOrDefault(directReports.get(i).getEmployeeId(), directReports.get(i)));
+            }
+        }
+
+        for(Integer maxDepth : new Integer[] {null, 1, 2}) {
+            ReportingStructure fromRecords = new ReportingStructure(wired.get("boss"));
+            fromRecords.calculateStructure(maxDepth);
+
+            ReportingStructure fromHierarchy = new ReportingStructure(orgGraph.get("boss").toEmployee());
+            fromHierarchy.calculateStructure(orgGraph.getCompactHierarchy(), maxDepth);
+
+            assertEquals(fromRecords.getTreeLikeDisplay(), fromHierarchy.getTreeLikeDisplay());
+            assertEquals(fromRecords.getNumberOfReports(), fromHierarchy.getNumberOfReports());
+            assertEquals(fromRecords.isCycleDetected(), fromHierarchy.isCycleDetected());
+        }
+    }
+
+    /**
+     * Measures the heap taken per employee by the reporting path, before and after: fully materialized employee
+     * records, as a hydrated read builds, against the compact hierarchy. Both share their strings with the org graph,
+     * so it's only the structure being compared. Results are logged, as heap measurements are too noisy to assert on.
+     */
+    @Test
+    public void test_memoryPerEmployee() {
+        int orgSize = 100_000;
+        int span = 4;
+
+        List<String> ids = new ArrayList<>(orgSize);
+        for(int i = 0; i < orgSize; i++) {
+            ids.add("emp-" + i);
+        }
+        for(int i = 0; i < orgSize; i++) {
+            EmployeeBuilder builder = new EmployeeBuilder("First" + i + " Last" + i)
+                    .employeeId(ids.get(i))
+                    .position("Position " + i % 20)
+                    .department("Department " + i % 8);
+            for(int r = i * span + 1; r <= i * span + span && r < orgSize; r++) {
+                builder.directReport(stub(ids.get(r)));
+            }
+            orgGraph.put(builder.build());
+        }
+
+        long before = usedHeap();
+        List<Employee> materialized = new ArrayList<>(orgSize);
+        for(String id : ids) {
+            materialized.add(orgGraph.get(id).toEmployee());
+        }
+        for(Employee employee : materialized) {
+            List<Employee> directReports = employee.getDirectReports();
+            for(int i = 0; i < directReports.size(); i++) {
+                int report = Integer.parseInt(directReports.get(i).getEmployeeId().substring(4));
+                directReports.set(i, materialized.get(report));
+            }
+        }
+        long materializedBytes = usedHeap() - before;
+
+        before = usedHeap();
+        CompactHierarchy hierarchy = orgGraph.getCompactHierarchy();
+        long compactBytes = usedHeap() - before;
+
+        LOG.info("Reporting structure memory per employee, materialized records: [{}] bytes, compact hierarchy: [{}] "
+                        + "bytes (estimated [{}] bytes)", materializedBytes / orgSize, compactBytes / orgSize,
+                hierarchy.estimateBytes() / orgSize);
+
+        //Keep both alive until they've been measured
+        assertEquals(orgSize, materialized.size());
+        assertEquals(orgSize, hierarchy.size());
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for(int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static Employee stub(String employeeId) {
+        Employee stub = new Employee();
+        stub.setEmployeeId(employeeId);
+        return stub;
+    }
+}
@@ -0,0 +1,327 @@
+package com.mindex.challenge.graph;
+
+import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.builder.EmployeeBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OrgGraphTest {
+
+    private EmployeeRepository employeeRepository;
+    private OrgGraph orgGraph;
+
+    @Before
+    public void setup() {
+        employeeRepository = mock(EmployeeRepository.class);
+        orgGraph = new OrgGraph();
+        ReflectionTestUtils.setField(orgGraph, "employeeRepository", employeeRepository);
+    }
+
+    /**
+     * Tests that moving a report from one manager to another keeps the reverse manager index in line.
+     */
+    @Test
+    public void test_put_rewiresManagers() {
+        Employee report = new EmployeeBuilder("Rita Report").employeeId("r1").build();
+        Employee managerA = new EmployeeBuilder("Anne Alpha").employeeId("mA").directReport(stub("r1")).build();
+        Employee managerB = new EmployeeBuilder("Bert Beta").employeeId("mB").build();
+
+        orgGraph.put(report);
+        orgGraph.put(managerA);
+        orgGraph.put(managerB);
+        assertEquals(Set.of("mA"), orgGraph.getManagerIds("r1"));
+
+        //Hand the report over to manager B
+        managerA.setDirectReports(new ArrayList<>());
+        managerB.addDirectReport(stub("r1"));
+        orgGraph.put(managerA);
+        orgGraph.put(managerB);
+
+        assertEquals(Set.of("mB"), orgGraph.getManagerIds("r1"));
+        assertTrue(orgGraph.get("mA").getDirectReportIds().isEmpty());
+        assertEquals(List.of("r1"), orgGraph.get("mB").getDirectReportIds());
+    }
+
+    /**
+     * Tests that the management chain follows the reverse manager index up, keeps up with a report being moved, and
+     * stops rather than going round a loop forever.
+     */
+    @Test
+    public void test_getManagementChain() {
+        orgGraph.put(new EmployeeBuilder("Tina Top").employeeId("top").directReport(stub("mid")).build());
+        orgGraph.put(new EmployeeBuilder("Mick Middle").employeeId("mid").directReport(stub("low")).build());
+        orgGraph.put(new EmployeeBuilder("Liz Low").employeeId("low").build());
+
+        assertEquals(List.of("low", "mid", "top"), chainIds("low"));
+        assertEquals(List.of("top"), chainIds("top"));
+
+        //Move the report straight under the top
+        orgGraph.put(new EmployeeBuilder("Mick Middle").employeeId("mid").build());
+        orgGraph.put(new EmployeeBuilder("Tina Top").employeeId("top")
+                .directReport(stub("mid")).directReport(stub("low")).build());
+        assertEquals(List.of("low", "top"), chainIds("low"));
+
+        //Now the top reports to the bottom
+        orgGraph.put(new EmployeeBuilder("Liz Low").employeeId("low").directReport(stub("top")).build());
+        assertEquals(List.of("low", "top"), chainIds("low"));
+        assertEquals(List.of("mid", "top", "low"), chainIds("mid"));
+    }
+
+    /**
+     * Tests that the management chain of someone read in before their managers looks the managers up in the repo,
+     * rather than stopping short, and that it stops looking once the graph has been built from the whole repo.
+     */
+    @Test
+    public void test_getManagementChain_partialGraph() {
+        Employee top = new EmployeeBuilder("Tina Top").employeeId("top").directReport(stub("mid")).build();
+        Employee mid = new EmployeeBuilder("Mick Middle").employeeId("mid").directReport(stub("low")).build();
+        Employee low = new EmployeeBuilder("Liz Low").employeeId("low").build();
+        when(employeeRepository.findByDirectReportsEmployeeId("low")).thenReturn(List.of(mid));
+        when(employeeRepository.findByDirectReportsEmployeeId("mid")).thenReturn(List.of(top));
+        when(employeeRepository.findByDirectReportsEmployeeId("top")).thenReturn(List.of());
+
+        //Only the employee themselves has been read in so far
+        orgGraph.put(low);
+        assertEquals(List.of("low", "mid", "top"), chainIds("low"));
+        assertEquals(Set.of("mid"), orgGraph.getManagerIds("low"));
+
+        //Everyone's in the graph from here on, so the index alone is trusted
+        when(employeeRepository.findAll()).thenReturn(List.of(top, mid, low));
+        orgGraph.rebuild();
+        assertEquals(List.of("low", "mid", "top"), chainIds("low"));
+        assertEquals(List.of("top"), chainIds("top"));
+        verify(employeeRepository, times(1)).findByDirectReportsEmployeeId("top");
+    }
+
+    private List<String> chainIds(String employeeId) {
+        List<String> chainIds = new ArrayList<>();
+        orgGraph.getManagementChain(employeeId).forEach(node -> chainIds.add(node.getEmployeeId()));
+        return chainIds;
+    }
+
+    /**
+     * Tests that employees missing from the graph are read through from the repo, in one query, and kept thereafter.
+     */
+    @Test
+    public void test_getAll_readsThrough() {
+        Employee first = new EmployeeBuilder("Fred First").employeeId("f1").build();
+        Employee second = new EmployeeBuilder("Sam Second").employeeId("s2").build();
+        when(employeeRepository.findByEmployeeIdIn(anyCollection())).thenReturn(List.of(first, second));
+
+        assertEquals(2, orgGraph.getAll(List.of("f1", "s2", "nobody")).size());
+        assertEquals("Fred", orgGraph.get("f1").getFirstName());
+        assertEquals("Second", orgGraph.get("s2").getLastName());
+        verify(employeeRepository, times(1)).findByEmployeeIdIn(anyCollection());
+    }
+
+    /**
+     * Tests that an ID the repo doesn't have is only asked after the once, until the next write, which may be them.
+     */
+    @Test
+    public void test_getAll_remembersMissing() {
+        when(employeeRepository.findByEmployeeIdIn(anyCollection())).thenReturn(List.of());
+
+        assertTrue(orgGraph.getAll(List.of("ghost")).isEmpty());
+        assertNull(orgGraph.get("ghost"));
+        verify(employeeRepository, times(1)).findByEmployeeIdIn(anyCollection());
+
+        orgGraph.put(new EmployeeBuilder("Mandy Manager").employeeId("m1").directReport(stub("ghost")).build());
+        assertNull(orgGraph.get("ghost"));
+        verify(employeeRepository, times(2)).findByEmployeeIdIn(anyCollection());
+
+        //Written now, so they're found without asking the repo at all
+        orgGraph.put(new EmployeeBuilder("Gus Ghost").employeeId("ghost").build());
+        assertEquals("Gus", orgGraph.get("ghost").getFirstName());
+        verify(employeeRepository, times(2)).findByEmployeeIdIn(anyCollection());
+    }
+
+    /**
+     * Tests that remembered report counts are kept up to date by each write, without counting anyone afresh, as
+     * reports are moved, hired and dropped, and that a report shared between managers makes them count afresh.
+     */
+    @Test
+    public void test_reportCounts_maintainedOnWrite() {
+        orgGraph.put(new EmployeeBuilder("Tina Top").employeeId("top").directReport(stub("mA")).directReport(stub("mB"))
+                .build());
+        orgGraph.put(new EmployeeBuilder("Anne Alpha").employeeId("mA").directReport(stub("r1")).build());
+        orgGraph.put(new EmployeeBuilder("Bert Beta").employeeId("mB").build());
+        orgGraph.put(new EmployeeBuilder("Rita Report").employeeId("r1").directReport(stub("g1")).build());
+        orgGraph.put(new EmployeeBuilder("Gus Grand").employeeId("g1").build());
+
+        assertEquals(Integer.valueOf(4), orgGraph.getReportCount("top"));
+        assertEquals(Integer.valueOf(2), orgGraph.getReportCount("mA"));
+        assertEquals(Integer.valueOf(0), orgGraph.getReportCount("mB"));
+
+        //Hand the report, and whoever's under them, over to manager B
+        orgGraph.put(new EmployeeBuilder("Anne Alpha").employeeId("mA").build());
+        orgGraph.put(new EmployeeBuilder("Bert Beta").employeeId("mB").directReport(stub("r1")).build());
+        assertCounted(4, "top");
+        assertCounted(0, "mA");
+        assertCounted(2, "mB");
+
+        //A new hire, who brings a report of their own
+        orgGraph.put(new EmployeeBuilder("Nina New").employeeId("n1").directReport(stub("g2")).build());
+        orgGraph.put(new EmployeeBuilder("Gail Grand").employeeId("g2").build());
+        orgGraph.put(new EmployeeBuilder("Bert Beta").employeeId("mB").directReport(stub("r1")).directReport(stub("n1"))
+                .build());
+        assertCounted(6, "top");
+        assertCounted(4, "mB");
+        assertEquals(Integer.valueOf(1), orgGraph.getReportCount("n1"));
+
+        //Drop the grand report
+        orgGraph.put(new EmployeeBuilder("Rita Report").employeeId("r1").build());
+        assertCounted(5, "top");
+        assertCounted(3, "mB");
+        assertEquals(Integer.valueOf(0), orgGraph.getReportCount("r1"));
+
+        //Sharing a report between both managers can't be done by adding up, so the counts above are forgotten
+        orgGraph.put(new EmployeeBuilder("Anne Alpha").employeeId("mA").directReport(stub("n1")).build());
+        assertEquals(null, ReflectionTestUtils.<Map<String, Integer>>getField(orgGraph, "reportCounts").get("top"));
+        assertEquals(null, ReflectionTestUtils.<Map<String, Integer>>getField(orgGraph, "reportCounts").get("mA"));
+        assertEquals(Integer.valueOf(5), orgGraph.getReportCount("top"));
+        assertEquals(Integer.valueOf(2), orgGraph.getReportCount("mA"));
+        assertCounted(3, "mB");
+    }
+
+    /**
+     * Tests that someone new to the graph, put over reports who are already in it, is remembered with the number of
+     * reports they brought along, counted the once.
+     */
+    @Test
+    public void test_reportCounts_newManagerOverExistingReports() {
+        orgGraph.put(new EmployeeBuilder("Gail Grand").employeeId("g2").directReport(stub("g3")).build());
+        orgGraph.put(new EmployeeBuilder("Gwen Great").employeeId("g3").build());
+        assertEquals(Integer.valueOf(1), orgGraph.getReportCount("g2"));
+
+        orgGraph.put(new EmployeeBuilder("Nina New").employeeId("n1").directReport(stub("g2")).build());
+        assertCounted(2, "n1");
+        assertCounted(1, "g2");
+        assertEquals(Integer.valueOf(2), orgGraph.getReportCount("n1"));
+
+        //And once more with someone new over them
+        orgGraph.put(new EmployeeBuilder("Tina Top").employeeId("top").directReport(stub("n1")).build());
+        assertCounted(3, "top");
+        assertCounted(2, "n1");
+    }
+
+    /**
+     * Tests that a count worked out by reading reports through from the repo is still remembered, as reading them in
+     * isn't a change to anyone.
+     */
+    @Test
+    public void test_reportCounts_rememberedAfterReadThrough() {
+        Employee report = new EmployeeBuilder("Rita Report").employeeId("r1").build();
+        when(employeeRepository.findByEmployeeIdIn(anyCollection())).thenReturn(List.of(report));
+        orgGraph.put(new EmployeeBuilder("Mandy Manager").employeeId("m1").directReport(stub("r1")).build());
+
+        assertEquals(Integer.valueOf(1), orgGraph.getReportCount("m1"));
+        assertCounted(1, "m1");
+        verify(employeeRepository, times(1)).findByEmployeeIdIn(anyCollection());
+    }
+
+    /**
+     * Asserts the given employee's count is remembered, rather than being counted afresh, and is as expected.
+     */
+    private void assertCounted(int expected, String employeeId) {
+        Map<String, Integer> reportCounts = ReflectionTestUtils.getField(orgGraph, "reportCounts");
+        assertEquals(Integer.valueOf(expected), reportCounts.get(employeeId));
+    }
+
+    /**
+     * Tests that readers walking the graph while a writer keeps rewiring a report between two managers always see a
+     * whole node, and never trip over a half-applied update.
+     */
+    @Test
+    public void test_concurrentReadsDuringRewire() throws Exception {
+        Employee managerA = new EmployeeBuilder("Anne Alpha").employeeId("mA").build();
+        Employee managerB = new EmployeeBuilder("Bert Beta").employeeId("mB").build();
+        Employee root = new EmployeeBuilder("Rhonda Root").employeeId("root")
+                .directReport(stub("mA"))
+                .directReport(stub("mB"))
+                .build();
+        List<Employee> reports = new ArrayList<>();
+        for(int i = 0; i < 100; i++) {
+            Employee report = new EmployeeBuilder().employeeId("r" + i).build();
+            reports.add(report);
+            orgGraph.put(report);
+        }
+        orgGraph.put(root);
+        orgGraph.put(managerA);
+        orgGraph.put(managerB);
+
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> readers = new ArrayList<>();
+        for(int r = 0; r < 3; r++) {
+            readers.add(executor.submit(() -> {
+                while(writing.get()) {
+                    OrgGraph.Node rootNode = orgGraph.get("root");
+                    for(OrgGraph.Node manager : orgGraph.getAll(rootNode.getDirectReportIds()).values()) {
+                        for(String reportId : manager.getDirectReportIds()) {
+                            assertNotNull(orgGraph.get(reportId));
+                        }
+                        //Each manager always holds either none or all of the reports
+                        int held = manager.getDirectReportIds().size();
+                        assertTrue(held == 0 || held == reports.size());
+                    }
+                }
+                return null;
+            }));
+        }
+
+        for(int flip = 0; flip < 500; flip++) {
+            Employee from = flip % 2 == 0 ? managerA : managerB;
+            Employee to = flip % 2 == 0 ? managerB : managerA;
+            from.setDirectReports(new ArrayList<>());
+            to.setDirectReports(stubs(reports));
+            orgGraph.put(to);
+            orgGraph.put(from);
+        }
+        writing.set(false);
+
+        for(Future<?> reader : readers) {
+            reader.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        //The last flip handed everyone over to manager A
+        assertEquals(Set.of("mA"), orgGraph.getManagerIds("r0"));
+    }
+
+    private static Employee stub(String employeeId) {
+        Employee stub = new Employee();
+        stub.setEmployeeId(employeeId);
+        return stub;
+    }
+
+    private static List<Employee> stubs(Collection<Employee> employees) {
+        List<Employee> stubs = new ArrayList<>();
+        for(Employee employee : employees) {
+            stubs.add(stub(employee.getEmployeeId()));
+        }
+        return stubs;
+    }
+}
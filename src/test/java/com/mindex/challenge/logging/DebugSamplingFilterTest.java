@@ -0,0 +1,79 @@
+package com.mindex.challenge.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DebugSamplingFilterTest {
+
+    private LoggerContext loggerContext;
+    private ListAppender<ILoggingEvent> appender;
+
+    @Before
+    public void setup() {
+        //A logging setup of our own, so as not to disturb the app's
+        loggerContext = new LoggerContext();
+        loggerContext.addTurboFilter(new SampledDebugTurboFilter());
+
+        appender = new ListAppender<>();
+        appender.setContext(loggerContext);
+        appender.start();
+
+        Logger root = loggerContext.getLogger(Logger.ROOT_LOGGER_NAME);
+        root.setLevel(Level.INFO);
+        root.addAppender(appender);
+    }
+
+    /**
+     * Tests that at INFO, the app's DEBUG lines only get through for sampled requests, and nobody else's ever do.
+     */
+    @Test
+    public void test_sampledRequestsLogDebug() throws Exception {
+        org.slf4j.Logger appLogger = loggerContext.getLogger("com.mindex.challenge.SomeService");
+        org.slf4j.Logger otherLogger = loggerContext.getLogger("org.somebody.Else");
+
+        List<String> debugSampled = new ArrayList<>();
+
+        //Sampling nothing
+        DebugSamplingFilter filter = new DebugSamplingFilter(0);
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), (request, response) -> {
+            debugSampled.add(MDC.get(DebugSamplingFilter.MDC_KEY));
+            appLogger.debug("unsampled");
+            appLogger.info("info");
+        });
+
+        //Sampling everything, switched at runtime
+        filter.setRate(1);
+        filter.doFilter(new MockHttpServletRequest(), new MockHttpServletResponse(), (request, response) -> {
+            debugSampled.add(MDC.get(DebugSamplingFilter.MDC_KEY));
+            appLogger.debug("sampled");
+            otherLogger.debug("not ours");
+        });
+
+        assertNull(debugSampled.get(0));
+        assertEquals("true", debugSampled.get(1));
+        assertNull(MDC.get(DebugSamplingFilter.MDC_KEY));
+
+        List<String> logged = new ArrayList<>();
+        appender.list.forEach(event -> logged.add(event.getMessage()));
+        assertEquals(List.of("info", "sampled"), logged);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_invalidRate() {
+        new DebugSamplingFilter(0).setRate(1.5);
+    }
+}
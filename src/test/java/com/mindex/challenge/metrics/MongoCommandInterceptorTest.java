@@ -0,0 +1,86 @@
+package com.mindex.challenge.metrics;
+
+import com.mindex.challenge.dao.EmployeeRepository;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.ReportingStructure;
+import com.mindex.challenge.data.builder.EmployeeBuilder;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class MongoCommandInterceptorTest {
+
+    private static final String REPORTING_STRUCTURE_URI = "/reportingStructure/{employeeId}";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private EmployeeRepository employeeRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Tests that the employee lookups a reporting structure read makes are counted against it. The employees go
+     * straight into the repo, so the org graph has to read each level through.
+     */
+    @Test
+    public void test_reportingStructure_countsLookups() {
+        Employee report = new EmployeeBuilder("Rita Roundtrip").build();
+        Employee manager = new EmployeeBuilder("Mona Metric").directReport(stub(report.getEmployeeId())).build();
+        employeeRepository.insert(List.of(manager, report));
+
+        DistributionSummary before = lookups();
+        long countBefore = null == before ? 0 : before.count();
+        double totalBefore = null == before ? 0 : before.totalAmount();
+
+        ReportingStructure reportingStructure = restTemplate.getForEntity(
+                "http://localhost:" + port + "/reportingStructure/{employeeId}", ReportingStructure.class,
+                manager.getEmployeeId()).getBody();
+        assertNotNull(reportingStructure);
+        assertEquals(1, reportingStructure.getNumberOfReports());
+
+        //One for the manager, one for their level of reports
+        DistributionSummary after = lookups();
+        assertNotNull(after);
+        assertEquals(countBefore + 1, after.count());
+        assertEquals(totalBefore + 2, after.totalAmount(), 0);
+
+        String prometheus = restTemplate.getForObject("http://localhost:" + port + "/actuator/prometheus",
+                String.class);
+        assertTrue(prometheus.contains("mongo_request_round_trips"));
+        assertTrue(prometheus.contains("http_server_requests_seconds_bucket"));
+        assertTrue(prometheus.contains("employee_cache_size"));
+        assertTrue(prometheus.contains("org_graph_size"));
+    }
+
+    private DistributionSummary lookups() {
+        return meterRegistry.find("mongo.request.commands")
+                .tags("uri", REPORTING_STRUCTURE_URI, "command", "find", "collection", "employee")
+                .summary();
+    }
+
+    private static Employee stub(String employeeId) {
+        Employee stub = new Employee();
+        stub.setEmployeeId(employeeId);
+        return stub;
+    }
+}
@@ -1,5 +1,6 @@
 package com.mindex.challenge.service.impl;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.mindex.challenge.dao.CompensationRepository;
 import com.mindex.challenge.dao.EmployeeRepository;
 import com.mindex.challenge.data.Compensation;
@@ -18,10 +19,13 @@ import org.springframework.test.context.junit4.SpringRunner;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.List;
 
 import static com.mindex.challenge.service.impl.EmployeeServiceImplTest.assertEmployeeEquivalence;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.log;
 
 @RunWith(SpringRunner.class)
@@ -76,6 +80,132 @@ public class CompensationServiceImplTest {
         assertCompensationEquals(ogCompensation, readComp);
     }
 
+    @Test
+    public void test_readAll() {
+        Employee first = new EmployeeBuilder("Bart Batchley")
+                .employeeId("batch-1")
+                .position("Bulk Procurement Lead")
+                .department("Purchasing")
+                .build();
+        Employee second = new EmployeeBuilder("Bea Batchley")
+                .employeeId("batch-2")
+                .position("Bulk Procurement Deputy")
+                .department("Purchasing")
+                .build();
+        employeeRepository.insert(List.of(first, second));
+
+        //Stored with just employee stubs, the way the seed data is, so they have to be hydrated on the way out
+        for(Employee employee : List.of(first, second)) {
+            Compensation compensation = new Compensation(new EmployeeBuilder().employeeId(employee.getEmployeeId()).build());
+            compensation.setSalary(new BigDecimal("40000.00"));
+            compensation.setEffectiveDate(LocalDate.parse("2022-02-01"));
+            compensationRepository.insert(compensation);
+        }
+
+        Compensation[] compensations = restTemplate.getForEntity(compensationUrl + "?employeeIds={ids}",
+                Compensation[].class, "batch-1,batch-2,nobody").getBody();
+
+        assertNotNull(compensations);
+        assertEquals(2, compensations.length);
+        for(Compensation compensation : compensations) {
+            Employee expected = compensation.getEmployeeId().equals("batch-1") ? first : second;
+            assertEmployeeEquivalence(expected, compensation.getEmployee());
+        }
+    }
+
+    @Test
+    public void test_readAsOfAndHistory() {
+        Employee employee = new EmployeeBuilder("Rhonda Raise")
+                .employeeId("history-1")
+                .position("Seasoned Negotiator")
+                .department("Finance")
+                .build();
+        employeeRepository.insert(employee);
+
+        for(String effectiveDate : List.of("2020-01-01", "2099-01-01", "2021-01-01")) {
+            Compensation compensation = new Compensation(employee);
+            compensation.setSalary(new BigDecimal(effectiveDate.substring(0, 4)));
+            compensation.setEffectiveDate(LocalDate.parse(effectiveDate));
+            compensationService.create(compensation);
+        }
+
+        //Today, the latest raise has kicked in but the one planned for the future hasn't
+        Compensation current = restTemplate.getForEntity(compensationEmployeeIdUrl, Compensation.class,
+                "history-1").getBody();
+        assertNotNull(current);
+        assertEquals(LocalDate.parse("2021-01-01"), current.getEffectiveDate());
+        assertEmployeeEquivalence(employee, current.getEmployee());
+
+        Compensation past = restTemplate.getForEntity(compensationEmployeeIdUrl + "?asOf={asOf}", Compensation.class,
+                "history-1", "15/06/2020").getBody();
+        assertNotNull(past);
+        assertEquals(LocalDate.parse("2020-01-01"), past.getEffectiveDate());
+
+        //Read in a batch, it's still just the one in effect on the day, with nothing before it in the history
+        Compensation[] batch = restTemplate.getForEntity(compensationUrl + "?employeeIds={ids}&asOf={asOf}",
+                Compensation[].class, "history-1,nobody", "15/06/2021").getBody();
+        assertNotNull(batch);
+        assertEquals(1, batch.length);
+        assertEquals(LocalDate.parse("2021-01-01"), batch[0].getEffectiveDate());
+        assertEquals(new BigDecimal("2021"), batch[0].getSalary());
+        assertEmployeeEquivalence(employee, batch[0].getEmployee());
+
+        //The history is everything, newest first
+        JsonNode history = restTemplate.getForEntity(compensationEmployeeIdUrl + "/history?page=0&size=2",
+                JsonNode.class, "history-1").getBody();
+        assertNotNull(history);
+        assertEquals(3, history.get("totalElements").asInt());
+        assertEquals(2, history.get("content").size());
+        assertEquals("01/01/2099", history.get("content").get(0).get("effectiveDate").asText());
+        assertEquals("01/01/2021", history.get("content").get(1).get("effectiveDate").asText());
+    }
+
+    /**
+     * Tests that a compensation for an employee who doesn't exist is turned away, and nothing is stored for them.
+     */
+    @Test
+    public void test_create_invalidEmployee() {
+        Compensation compensation = new Compensation(new EmployeeBuilder().employeeId("nobody-1").build());
+        compensation.setSalary(new BigDecimal("10000.00"));
+        compensation.setEffectiveDate(LocalDate.parse("2022-03-01"));
+
+        try {
+            compensationService.create(compensation);
+            fail("Expected the compensation to be turned away");
+        } catch(RuntimeException ex) {
+            assertEquals("Invalid employeeId: nobody-1", ex.getMessage());
+        }
+
+        assertNull(compensationRepository.findFirstByEmployeeIdAndEffectiveDateLessThanEqualOrderByEffectiveDateDesc(
+                "nobody-1", LocalDate.parse("2022-03-01")));
+    }
+
+    /**
+     * Tests that reading a compensation whose employee no longer exists fails, singly or in a batch, rather than
+     * handing it back with no employee.
+     */
+    @Test
+    public void test_read_invalidEmployee() {
+        Compensation compensation = new Compensation(new EmployeeBuilder().employeeId("orphan-1").build());
+        compensation.setSalary(new BigDecimal("10000.00"));
+        compensation.setEffectiveDate(LocalDate.parse("2022-03-01"));
+        compensationRepository.insert(compensation);
+
+        try {
+            compensationService.read("orphan-1");
+            fail("Expected the read to fail");
+        } catch(RuntimeException ex) {
+            assertEquals("Invalid employeeId: orphan-1", ex.getMessage());
+        }
+
+        try {
+            compensationService.readAll(List.of("orphan-1"), LocalDate.now());
+            fail("Expected the read to fail");
+        } catch(RuntimeException ex) {
+            assertEquals("Invalid employeeId: orphan-1", ex.getMessage());
+        }
+    }
+
     private void assertCompensationEquals(Compensation expected, Compensation actual) {
         assertEmployeeEquivalence(expected.getEmployee(), actual.getEmployee());
         assertEquals(expected.getSalary(), actual.getSalary());
@@ -1,6 +1,13 @@
 package com.mindex.challenge.service.impl;
 
+import com.mindex.challenge.controller.MediaTypes;
+import com.mindex.challenge.dao.EmployeeCache;
+import com.mindex.challenge.data.BulkImportResult;
 import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.EmployeeBatch;
+import com.mindex.challenge.data.EmployeePage;
+import com.mindex.challenge.data.ReportEntry;
+import com.mindex.challenge.graph.OrgGraph;
 import com.mindex.challenge.service.EmployeeService;
 import org.junit.Before;
 import org.junit.Test;
@@ -12,11 +19,30 @@ import org.springframework.boot.web.server.LocalServerPort;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -24,10 +50,17 @@ public class EmployeeServiceImplTest {
 
     private String employeeUrl;
     private String employeeIdUrl;
+    private String employeeBulkUrl;
 
     @Autowired
     private EmployeeService employeeService;
 
+    @Autowired
+    private EmployeeCache employeeCache;
+
+    @Autowired
+    private OrgGraph orgGraph;
+
     @LocalServerPort
     private int port;
 
@@ -38,6 +71,7 @@ public class EmployeeServiceImplTest {
     public void setup() {
         employeeUrl = "http://localhost:" + port + "/employee";
         employeeIdUrl = "http://localhost:" + port + "/employee/{id}";
+        employeeBulkUrl = "http://localhost:" + port + "/employee/bulk";
     }
 
     @Test
@@ -77,6 +111,375 @@ public class EmployeeServiceImplTest {
         assertEmployeeEquivalence(readEmployee, updatedEmployee);
     }
 
+    /**
+     * Tests that reads come with an ETag which answers a matching If-None-Match with a 304, up until the employee is
+     * updated.
+     */
+    @Test
+    public void testConditionalRead() {
+        Employee employee = new Employee();
+        employee.setFirstName("Etta");
+        employee.setLastName("Tagg");
+        Employee createdEmployee = employeeService.create(employee);
+
+        ResponseEntity<Employee> read = conditionalRead(createdEmployee.getEmployeeId(), null);
+        assertEquals(HttpStatus.OK, read.getStatusCode());
+        String etag = read.getHeaders().getETag();
+        assertNotNull(etag);
+
+        read = conditionalRead(createdEmployee.getEmployeeId(), etag);
+        assertEquals(HttpStatus.NOT_MODIFIED, read.getStatusCode());
+        assertNull(read.getBody());
+
+        //An update bumps the version, and with it the ETag
+        createdEmployee.setPosition("Tagger");
+        Employee updatedEmployee = employeeService.update(createdEmployee);
+        assertEquals(Long.valueOf(1), updatedEmployee.getVersion());
+        assertEquals(Long.valueOf(2), employeeService.update(updatedEmployee).getVersion());
+
+        read = conditionalRead(createdEmployee.getEmployeeId(), etag);
+        assertEquals(HttpStatus.OK, read.getStatusCode());
+        assertEquals("Tagger", read.getBody().getPosition());
+        assertEquals(Long.valueOf(2), read.getBody().getVersion());
+        assertNotEquals(etag, read.getHeaders().getETag());
+
+        assertEquals(HttpStatus.NOT_MODIFIED,
+                conditionalRead(createdEmployee.getEmployeeId(), read.getHeaders().getETag()).getStatusCode());
+    }
+
+    /**
+     * Tests that updates landing at once are each saved as a version of their own, and that the ETag read afterwards
+     * is of the last version saved.
+     */
+    @Test
+    public void testConcurrentUpdates() throws Exception {
+        Employee employee = new Employee();
+        employee.setFirstName("Connie");
+        employee.setLastName("Current");
+        String id = employeeService.create(employee).getEmployeeId();
+
+        int updates = 20;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Long>> versions = new ArrayList<>();
+        for(int i = 0; i < updates; i++) {
+            String position = "Position " + i;
+            versions.add(executor.submit(() -> {
+                Employee update = new Employee();
+                update.setEmployeeId(id);
+                update.setFirstName("Connie");
+                update.setLastName("Current");
+                update.setPosition(position);
+                return employeeService.update(update).getVersion();
+            }));
+        }
+
+        Set<Long> saved = new HashSet<>();
+        for(Future<Long> version : versions) {
+            saved.add(version.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertEquals(updates, saved.size());
+        assertEquals(Long.valueOf(updates), Collections.max(saved));
+
+        ResponseEntity<Employee> read = conditionalRead(id, null);
+        assertEquals(Long.valueOf(updates), read.getBody().getVersion());
+        assertEquals("\"v" + updates + "\"", read.getHeaders().getETag());
+    }
+
+    /**
+     * Tests that an update sent with the reports filled out only keeps their IDs, and that reads come back shallow
+     * unless asked to hydrate.
+     */
+    @Test
+    public void testReadHydrated() {
+        Employee report = new Employee();
+        report.setFirstName("Hydra");
+        report.setLastName("Report");
+        report = employeeService.create(report);
+
+        Employee manager = new Employee();
+        manager.setFirstName("Hydra");
+        manager.setLastName("Manager");
+        manager = employeeService.create(manager);
+
+        //Sent with the report in full, stale name and all
+        report.setFirstName("Stale");
+        manager.addDirectReport(report);
+        Employee updatedEmployee = restTemplate.exchange(employeeIdUrl, HttpMethod.PUT, new HttpEntity<>(manager),
+                Employee.class, manager.getEmployeeId()).getBody();
+        assertTrue(updatedEmployee.getDirectReports().get(0).isOnlyEmployeeIdSet());
+
+        Employee shallow = restTemplate.getForEntity(employeeIdUrl, Employee.class, manager.getEmployeeId()).getBody();
+        assertEquals(1, shallow.getDirectReports().size());
+        assertTrue(shallow.getDirectReports().get(0).isOnlyEmployeeIdSet());
+
+        Employee hydrated = restTemplate.getForEntity(employeeIdUrl + "?hydrate=true", Employee.class,
+                manager.getEmployeeId()).getBody();
+        assertEquals(report.getEmployeeId(), hydrated.getDirectReports().get(0).getEmployeeId());
+        assertEquals("Hydra", hydrated.getDirectReports().get(0).getFirstName());
+    }
+
+    /**
+     * Tests that a read with fields only writes out those fields, and only reads those fields from the DB when the
+     * employee isn't cached.
+     */
+    @Test
+    public void testReadFields() {
+        Employee report = new Employee();
+        report.setFirstName("Phil");
+        report.setLastName("Field");
+        report = employeeService.create(report);
+
+        Employee employee = new Employee();
+        employee.setFirstName("Fiona");
+        employee.setLastName("Fields");
+        employee.setPosition("Projectionist");
+        employee.setDepartment("Cinema");
+        employee.addDirectReport(report);
+        employee = employeeService.create(employee);
+
+        Map<?, ?> read = restTemplate.getForEntity(employeeIdUrl + "?fields=firstName, position", Map.class,
+                employee.getEmployeeId()).getBody();
+        assertEquals(Set.of("employeeId", "firstName", "position"), read.keySet());
+        assertEquals("Projectionist", read.get("position"));
+
+        //Nested employees are cut down to the same fields
+        read = restTemplate.getForEntity(employeeIdUrl + "?fields=lastName,directReports&hydrate=true", Map.class,
+                employee.getEmployeeId()).getBody();
+        assertEquals(Set.of("employeeId", "lastName", "directReports"), read.keySet());
+        Map<?, ?> readReport = (Map<?, ?>) ((List<?>) read.get("directReports")).get(0);
+        assertEquals(Set.of("employeeId", "lastName"), readReport.keySet());
+        assertEquals("Field", readReport.get("lastName"));
+
+        //Not cached, so only what's asked for is read at all
+        employeeCache.invalidate(employee.getEmployeeId());
+        Employee projected = employeeService.read(employee.getEmployeeId(), false, List.of("lastName"));
+        assertEquals("Fields", projected.getLastName());
+        assertNull(projected.getFirstName());
+        assertNull(projected.getPosition());
+        assertTrue(projected.getDirectReports().isEmpty());
+
+        projected = employeeService.read(employee.getEmployeeId(), false, List.of("directReports"));
+        assertEquals(report.getEmployeeId(), projected.getDirectReports().get(0).getEmployeeId());
+        assertNull(projected.getLastName());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadFields_invalid() {
+        employeeService.read("16a596ae-edd3-4847-99fe-c4518e82c86f", false, List.of("salary"));
+    }
+
+    /**
+     * Tests paging through a filtered listing of employees, and streaming the same listing as NDJSON.
+     */
+    @Test
+    public void testList() {
+        //A department of its own, so nobody else's employees turn up in it
+        String department = "Listing " + UUID.randomUUID();
+        List<String> employeeIds = new ArrayList<>();
+        for(int i = 0; i < 5; i++) {
+            Employee employee = new Employee();
+            employee.setFirstName("Lister" + i);
+            employee.setLastName("Paged");
+            employee.setDepartment(department);
+            employee.setPosition(i % 2 == 0 ? "Even" : "Odd");
+            employeeIds.add(employeeService.create(employee).getEmployeeId());
+        }
+        Collections.sort(employeeIds);
+
+        List<String> listedIds = new ArrayList<>();
+        String after = null;
+        int pages = 0;
+        do {
+            String url = employeeUrl + "?department={department}&limit=2" + (null == after ? "" : "&after=" + after);
+            EmployeePage page = restTemplate.getForEntity(url, EmployeePage.class, department).getBody();
+            assertTrue(page.getEmployees().size() <= 2);
+            page.getEmployees().forEach(employee -> listedIds.add(employee.getEmployeeId()));
+            after = page.getNextCursor();
+            pages++;
+        } while(null != after);
+
+        assertEquals(3, pages);
+        assertEquals(employeeIds, listedIds);
+
+        EmployeePage evens = restTemplate.getForEntity(employeeUrl + "?department={department}&position=Even",
+                EmployeePage.class, department).getBody();
+        assertEquals(3, evens.getEmployees().size());
+        assertNull(evens.getNextCursor());
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.parseMediaType(MediaTypes.APPLICATION_NDJSON_VALUE)));
+        String ndjson = restTemplate.exchange(employeeUrl + "?department={department}&after={after}", HttpMethod.GET,
+                new HttpEntity<>(headers), String.class, department, employeeIds.get(0)).getBody();
+
+        assertNotNull(ndjson);
+        String[] lines = ndjson.split("\n");
+        assertEquals(4, lines.length);
+        assertTrue(lines[0].contains("\"employeeId\":\"" + employeeIds.get(1) + "\""));
+        assertTrue(lines[3].contains("\"employeeId\":\"" + employeeIds.get(4) + "\""));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testList_invalidLimit() {
+        employeeService.list(null, null, null, 0);
+    }
+
+    /**
+     * Tests reading a batch of employees, in the order asked for, with the IDs nobody has reported separately.
+     */
+    @Test
+    public void testBatchGet() {
+        String lennonId = "16a596ae-edd3-4847-99fe-c4518e82c86f";
+        String mcCartneyId = "b7839309-3348-463b-a7e3-5de1c168beb3";
+
+        EmployeeBatch batch = restTemplate.postForEntity(employeeUrl + "/batch-get",
+                List.of(mcCartneyId, "nobody", lennonId, mcCartneyId), EmployeeBatch.class).getBody();
+
+        assertNotNull(batch);
+        assertEquals(2, batch.getEmployees().size());
+        assertEquals("McCartney", batch.getEmployees().get(0).getLastName());
+        assertEquals("Lennon", batch.getEmployees().get(1).getLastName());
+        assertEquals(List.of("nobody"), batch.getMissingIds());
+
+        batch = restTemplate.postForEntity(employeeUrl + "/batch-get", List.of(), EmployeeBatch.class).getBody();
+        assertTrue(batch.getEmployees().isEmpty());
+        assertTrue(batch.getMissingIds().isEmpty());
+    }
+
+    /**
+     * Tests the management chain, from the top down to the employee, including that it keeps up with an update moving
+     * the employee under someone else.
+     */
+    @Test
+    public void testReadChain() {
+        Employee low = newEmployee("Lowe", null);
+        Employee mid = newEmployee("Middleton", low);
+        Employee top = newEmployee("Topper", mid);
+
+        ReportEntry[] chain = restTemplate.getForEntity(employeeIdUrl + "/chain", ReportEntry[].class,
+                low.getEmployeeId()).getBody();
+        assertNotNull(chain);
+        assertEquals(3, chain.length);
+        assertEquals("Topper", chain[0].getLastName());
+        assertNull(chain[0].getManagerId());
+        assertEquals(mid.getEmployeeId(), chain[1].getEmployeeId());
+        assertEquals(top.getEmployeeId(), chain[1].getManagerId());
+        assertEquals(low.getEmployeeId(), chain[2].getEmployeeId());
+        assertEquals(mid.getEmployeeId(), chain[2].getManagerId());
+        assertEquals(2, chain[2].getDepth());
+
+        //Promote the employee to report straight to the top
+        mid.setDirectReports(new ArrayList<>());
+        employeeService.update(mid);
+        top.addDirectReport(low);
+        employeeService.update(top);
+
+        chain = restTemplate.getForEntity(employeeIdUrl + "/chain", ReportEntry[].class,
+                low.getEmployeeId()).getBody();
+        assertEquals(2, chain.length);
+        assertEquals(top.getEmployeeId(), chain[1].getManagerId());
+    }
+
+    private Employee newEmployee(String lastName, Employee directReport) {
+        Employee employee = new Employee();
+        employee.setFirstName("Chain");
+        employee.setLastName(lastName);
+        if(null != directReport) {
+            employee.addDirectReport(directReport);
+        }
+        return employeeService.create(employee);
+    }
+
+    private ResponseEntity<Employee> conditionalRead(String id, String etag) {
+        HttpHeaders headers = new HttpHeaders();
+        if(null != etag) {
+            headers.setIfNoneMatch(etag);
+        }
+        return restTemplate.exchange(employeeIdUrl, HttpMethod.GET, new HttpEntity<>(headers), Employee.class, id);
+    }
+
+    @Test
+    public void testBulkImport() {
+        //Small batches, so the import has to go through a few of them
+        Object batchSize = ReflectionTestUtils.getField(employeeService, "bulkBatchSize");
+        ReflectionTestUtils.setField(employeeService, "bulkBatchSize", 2);
+
+        try {
+            String body = "{\"employeeId\": \"bulk-1\", \"firstName\": \"Betty\", \"lastName\": \"Bulk\"}\n" +
+                    "{\"employeeId\": \"bulk-2\", \"firstName\": \"Barry\", \"lastName\": \"Bulk\"}\n" +
+                    "{\"employeeId\": \"bulk-3\", \"directReports\": \"not a list\"}\n" +
+                    "{\"firstName\": \"Nora\", \"lastName\": \"Noid\"}\n";
+
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.parseMediaType(MediaTypes.APPLICATION_NDJSON_VALUE));
+
+            BulkImportResult result = restTemplate.postForEntity(employeeBulkUrl, new HttpEntity<>(body, headers),
+                    BulkImportResult.class).getBody();
+
+            assertNotNull(result);
+            assertEquals(4, result.getReceived());
+            assertEquals(3, result.getImported());
+            assertEquals(1, result.getErrors().size());
+            assertEquals(2, result.getErrors().get(0).getIndex());
+            assertEquals("bulk-3", result.getErrors().get(0).getId());
+
+            Employee readEmployee = restTemplate.getForEntity(employeeIdUrl, Employee.class, "bulk-2").getBody();
+            assertEquals("Barry", readEmployee.getFirstName());
+
+            //Now the same again, as a JSON array
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            body = "[{\"employeeId\": \"bulk-4\", \"firstName\": \"Arthur\", \"lastName\": \"Array\"}]";
+
+            result = restTemplate.postForEntity(employeeBulkUrl, new HttpEntity<>(body, headers),
+                    BulkImportResult.class).getBody();
+
+            assertEquals(1, result.getImported());
+            assertTrue(result.getErrors().isEmpty());
+        } finally {
+            ReflectionTestUtils.setField(employeeService, "bulkBatchSize", batchSize);
+        }
+    }
+
+    /**
+     * Tests that a record with a direct report lacking an ID is turned away on its own, and that the rest of the
+     * import goes through, stubbed and linked into the org, as if each had been created.
+     */
+    @Test
+    public void testBulkImport_reportWithoutId() {
+        String body = "{\"employeeId\": \"bulk-5\", \"firstName\": \"Norbert\", \"directReports\": " +
+                "[{\"employeeId\": \"bulk-6\"}, {\"firstName\": \"Nameless\"}]}\n" +
+                "{\"employeeId\": \"bulk-7\", \"firstName\": \"Mabel\", \"directReports\": " +
+                "[{\"employeeId\": \"bulk-8\", \"firstName\": \"Fully\", \"lastName\": \"Filled\"}]}\n" +
+                "{\"employeeId\": \"bulk-8\", \"firstName\": \"Fully\", \"lastName\": \"Filled\"}\n";
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType(MediaTypes.APPLICATION_NDJSON_VALUE));
+
+        BulkImportResult result = restTemplate.postForEntity(employeeBulkUrl, new HttpEntity<>(body, headers),
+                BulkImportResult.class).getBody();
+
+        assertNotNull(result);
+        assertEquals(3, result.getReceived());
+        assertEquals(2, result.getImported());
+        assertEquals(1, result.getErrors().size());
+        assertEquals(0, result.getErrors().get(0).getIndex());
+        assertEquals("bulk-5", result.getErrors().get(0).getId());
+        try {
+            employeeService.read("bulk-5");
+            fail("Expected the record to have been turned away");
+        } catch(RuntimeException ex) {
+            assertEquals("Invalid employeeId: bulk-5", ex.getMessage());
+        }
+
+        //The report was stored as a stub, and the manager written through to the cache and the org
+        assertNotNull(employeeCache.getIfPresent("bulk-7"));
+        Employee manager = restTemplate.getForEntity(employeeIdUrl, Employee.class, "bulk-7").getBody();
+        assertEquals(1, manager.getDirectReports().size());
+        assertEquals("bulk-8", manager.getDirectReports().get(0).getEmployeeId());
+        assertNull(manager.getDirectReports().get(0).getFirstName());
+        assertEquals(Integer.valueOf(1), orgGraph.getReportCount("bulk-7"));
+    }
+
     /**
      * Changed to public to use in my own junits without rewriting. Huzzah for efficiency!! =D
      */
@@ -0,0 +1,258 @@
+package com.mindex.challenge.service.impl;
+
+import com.mindex.challenge.data.Compensation;
+import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.PayrollRollup;
+import com.mindex.challenge.data.builder.EmployeeBuilder;
+import com.mindex.challenge.service.CompensationService;
+import com.mindex.challenge.service.EmployeeService;
+import com.mindex.challenge.service.PayrollRollupService;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class PayrollRollupServiceImplTest {
+
+    private String payrollEmployeeIdUrl;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private EmployeeService employeeService;
+
+    @Autowired
+    private CompensationService compensationService;
+
+    @Autowired
+    private PayrollRollupService payrollRollupService;
+
+    @Before
+    public void setup() {
+        payrollEmployeeIdUrl = "http://localhost:" + port + "/payroll/{employeeId}";
+    }
+
+    /**
+     * Tests the rollup of a small org, then that a new compensation is reflected in the rollups of everyone above.
+     */
+    @Test
+    public void test_read() {
+        Employee contractor = employeeService.create(new EmployeeBuilder("Connie Contract").build());
+        Employee leaf = employeeService.create(new EmployeeBuilder("Lee Leaf").build());
+        Employee lead = employeeService.create(new EmployeeBuilder("Lena Lead").directReport(stub(leaf)).build());
+        Employee manager = employeeService.create(new EmployeeBuilder("Manny Manager")
+                .directReport(stub(lead))
+                .directReport(stub(contractor))
+                .build());
+
+        compensate(leaf, "300", "2020-01-01");
+        compensate(lead, "100", "2020-01-01");
+        compensate(manager, "1000", "2020-01-01");
+
+        PayrollRollup rollup = restTemplate.getForEntity(payrollEmployeeIdUrl, PayrollRollup.class,
+                manager.getEmployeeId()).getBody();
+        assertNotNull(rollup);
+        assertEquals(3, rollup.getHeadcount());
+        assertEquals(2, rollup.getSalariedCount());
+        assertEquals(0, new BigDecimal("400").compareTo(rollup.getTotalSalary()));
+        assertEquals(0, new BigDecimal("200").compareTo(rollup.getAverageSalary()));
+        assertEquals(0, new BigDecimal("100").compareTo(rollup.getMinSalary()));
+        assertEquals(0, new BigDecimal("300").compareTo(rollup.getMaxSalary()));
+
+        PayrollRollup leafRollup = payrollRollupService.read(leaf.getEmployeeId());
+        assertEquals(0, leafRollup.getHeadcount());
+        assertNull(leafRollup.getAverageSalary());
+
+        //A raise for the leaf, and the contractor's first pay, only touch the figures above them
+        compensate(leaf, "350", "2021-01-01");
+        compensate(contractor, "50", LocalDate.now().toString());
+
+        rollup = payrollRollupService.read(manager.getEmployeeId());
+        assertEquals(3, rollup.getSalariedCount());
+        assertEquals(0, new BigDecimal("500").compareTo(rollup.getTotalSalary()));
+        assertEquals(0, new BigDecimal("50").compareTo(rollup.getMinSalary()));
+        assertEquals(0, new BigDecimal("350").compareTo(rollup.getMaxSalary()));
+        assertEquals(0, new BigDecimal("350").compareTo(payrollRollupService.read(lead.getEmployeeId())
+                .getTotalSalary()));
+
+        //Whereas one that's yet to take effect changes nothing
+        compensate(leaf, "9999", "2099-01-01");
+        assertEquals(0, new BigDecimal("500").compareTo(payrollRollupService.read(manager.getEmployeeId())
+                .getTotalSalary()));
+    }
+
+    /**
+     * Tests that someone listed under two managers in the same structure is only counted once.
+     */
+    @Test
+    public void test_read_sharedReport() {
+        Employee shared = employeeService.create(new EmployeeBuilder("Shay Shared").build());
+        Employee left = employeeService.create(new EmployeeBuilder("Lefty Lead").directReport(stub(shared)).build());
+        Employee right = employeeService.create(new EmployeeBuilder("Righty Lead").directReport(stub(shared)).build());
+        Employee manager = employeeService.create(new EmployeeBuilder("Dee Diamond")
+                .directReport(stub(left))
+                .directReport(stub(right))
+                .build());
+
+        compensate(shared, "100", "2020-01-01");
+        compensate(left, "200", "2020-01-01");
+        compensate(right, "300", "2020-01-01");
+
+        PayrollRollup rollup = payrollRollupService.read(manager.getEmployeeId());
+        assertEquals(3, rollup.getHeadcount());
+        assertEquals(0, new BigDecimal("600").compareTo(rollup.getTotalSalary()));
+        assertEquals(1, payrollRollupService.read(left.getEmployeeId()).getHeadcount());
+        assertEquals(1, payrollRollupService.read(right.getEmployeeId()).getHeadcount());
+
+        compensate(shared, "150", "2021-01-01");
+        assertEquals(0, new BigDecimal("650").compareTo(payrollRollupService.read(manager.getEmployeeId())
+                .getTotalSalary()));
+        assertEquals(0, new BigDecimal("150").compareTo(payrollRollupService.read(right.getEmployeeId())
+                .getTotalSalary()));
+    }
+
+    /**
+     * Tests that changes to the org are reflected in the rollups of everyone above the employees changed, without the
+     * whole snapshot being built over again.
+     */
+    @Test
+    public void test_read_orgChange() {
+        Employee mover = employeeService.create(new EmployeeBuilder("Mo Mover").build());
+        Employee oldLead = employeeService.create(new EmployeeBuilder("Olga Oldlead").directReport(stub(mover))
+                .build());
+        Employee newLead = employeeService.create(new EmployeeBuilder("Nell Newlead").build());
+        Employee manager = employeeService.create(new EmployeeBuilder("Mae Manager")
+                .directReport(stub(oldLead))
+                .directReport(stub(newLead))
+                .build());
+
+        compensate(mover, "100", "2020-01-01");
+        compensate(oldLead, "200", "2020-01-01");
+        compensate(newLead, "300", "2020-01-01");
+
+        assertEquals(3, payrollRollupService.read(manager.getEmployeeId()).getHeadcount());
+        assertEquals(1, payrollRollupService.read(oldLead.getEmployeeId()).getHeadcount());
+        Object snapshot = ReflectionTestUtils.getField(payrollRollupService, "snapshot");
+        assertNotNull(snapshot);
+
+        //Move the report over to the other lead, then hire someone under them too
+        oldLead.setDirectReports(new ArrayList<>());
+        employeeService.update(oldLead);
+        Employee newHire = employeeService.create(new EmployeeBuilder("Hal Hire").build());
+        newLead.setDirectReports(List.of(stub(mover), stub(newHire)));
+        employeeService.update(newLead);
+
+        assertEquals(0, payrollRollupService.read(oldLead.getEmployeeId()).getHeadcount());
+        PayrollRollup rollup = payrollRollupService.read(newLead.getEmployeeId());
+        assertEquals(2, rollup.getHeadcount());
+        assertEquals(1, rollup.getSalariedCount());
+        assertEquals(0, new BigDecimal("100").compareTo(rollup.getTotalSalary()));
+
+        rollup = payrollRollupService.read(manager.getEmployeeId());
+        assertEquals(4, rollup.getHeadcount());
+        assertEquals(0, new BigDecimal("600").compareTo(rollup.getTotalSalary()));
+
+        //Still the same snapshot, just caught up
+        assertSame(snapshot, ReflectionTestUtils.getField(payrollRollupService, "snapshot"));
+    }
+
+    /**
+     * Tests that readers never see a relink half done: while a report keeps being moved between two leads, the
+     * manager's headcount always adds up from the leads' own, read in the same go, whichever lead the report is under
+     * at the time, if either.
+     */
+    @Test
+    public void test_readAll_duringOrgChanges() throws Exception {
+        Employee mover = employeeService.create(new EmployeeBuilder("Mick Mover").build());
+        Employee leadA = employeeService.create(new EmployeeBuilder("Ada Alead").directReport(stub(mover)).build());
+        Employee leadB = employeeService.create(new EmployeeBuilder("Bob Blead").build());
+        Employee manager = employeeService.create(new EmployeeBuilder("Mira Manager")
+                .directReport(stub(leadA))
+                .directReport(stub(leadB))
+                .build());
+        payrollRollupService.readAll();
+
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        List<Future<Integer>> results = new ArrayList<>();
+        for(int i = 0; i < 4; i++) {
+            results.add(readers.submit(() -> {
+                int reads = 0;
+                while(!done.get()) {
+                    Map<String, Integer> headcounts = new HashMap<>();
+                    for(PayrollRollup rollup : payrollRollupService.readAll()) {
+                        headcounts.put(rollup.getEmployeeId(), rollup.getHeadcount());
+                    }
+                    int fromLeads = 2 + headcounts.getOrDefault(leadA.getEmployeeId(), 0)
+                            + headcounts.getOrDefault(leadB.getEmployeeId(), 0);
+                    assertEquals(fromLeads, headcounts.get(manager.getEmployeeId()).intValue());
+                    reads++;
+                }
+                return reads;
+            }));
+        }
+
+        try {
+            for(int i = 0; i < 25; i++) {
+                leadA.setDirectReports(new ArrayList<>());
+                employeeService.update(leadA);
+                leadB.setDirectReports(List.of(stub(mover)));
+                employeeService.update(leadB);
+
+                leadB.setDirectReports(new ArrayList<>());
+                employeeService.update(leadB);
+                leadA.setDirectReports(List.of(stub(mover)));
+                employeeService.update(leadA);
+            }
+        } finally {
+            done.set(true);
+            readers.shutdown();
+        }
+
+        for(Future<Integer> result : results) {
+            assertTrue(result.get(10, TimeUnit.SECONDS) > 0);
+        }
+    }
+
+    private void compensate(Employee employee, String salary, String effectiveDate) {
+        Compensation compensation = new Compensation(employee);
+        compensation.setSalary(new BigDecimal(salary));
+        compensation.setEffectiveDate(LocalDate.parse(effectiveDate));
+        compensationService.create(compensation);
+    }
+
+    private static Employee stub(Employee employee) {
+        Employee stub = new Employee();
+        stub.setEmployeeId(employee.getEmployeeId());
+        return stub;
+    }
+}
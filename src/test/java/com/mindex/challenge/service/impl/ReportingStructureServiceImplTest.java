@@ -1,9 +1,14 @@
 package com.mindex.challenge.service.impl;
 
+import com.mindex.challenge.config.VirtualThreadExecutor;
+import com.mindex.challenge.controller.MediaTypes;
 import com.mindex.challenge.dao.EmployeeRepository;
 import com.mindex.challenge.data.Employee;
+import com.mindex.challenge.data.ReportCount;
 import com.mindex.challenge.data.ReportingStructure;
 import com.mindex.challenge.data.builder.EmployeeBuilder;
+import com.mindex.challenge.graph.OrgGraph;
+import com.mindex.challenge.service.EmployeeService;
 import com.mindex.challenge.service.ReportingStructureService;
 import org.junit.Before;
 import org.junit.Test;
@@ -12,13 +17,37 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.mindex.challenge.service.impl.EmployeeServiceImplTest.assertEmployeeEquivalence;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
@@ -26,6 +55,7 @@ public class ReportingStructureServiceImplTest {
 
     private String reportingStructureUrl;
     private String reportingStructureEmployeeIdUrl;
+    private String reportCountUrl;
 
     @Autowired
     private ReportingStructureService reportingStructureService;
@@ -39,10 +69,14 @@ public class ReportingStructureServiceImplTest {
     @Autowired
     private EmployeeRepository employeeRepository;
 
+    @Autowired
+    private EmployeeService employeeService;
+
     @Before
     public void setup() {
         reportingStructureUrl = "http://localhost:"+port+"/reportingStructure";
         reportingStructureEmployeeIdUrl = "http://localhost:"+port+"/reportingStructure/{employeeId}";
+        reportCountUrl = "http://localhost:"+port+"/reportingStructure/{employeeId}/count";
     }
 
     /**
@@ -108,6 +142,16 @@ public class ReportingStructureServiceImplTest {
         assertNotNull(readStructure);
         assertEmployeeEquivalence(employee, readStructure.getEmployee());
         assertEquals(4, readStructure.getNumberOfReports());
+
+        //By default everyone under the employee comes back nested in full, not as stubs
+        List<Employee> directReports = readStructure.getEmployee().getDirectReports();
+        assertEquals(2, directReports.size());
+        assertEmployeeEquivalence(directRep1, directReports.get(0));
+        assertEmployeeEquivalence(directRep2, directReports.get(1));
+        assertEmployeeEquivalence(subDirectRep1, directReports.get(0).getDirectReports().get(0));
+        assertEmployeeEquivalence(subDirectRep2, directReports.get(1).getDirectReports().get(0));
+        assertNoStubs(readStructure.getEmployee());
+
         assertEquals("+Nancy Oodles\n" +
                         "|--Manuel Bunches\n" +
                         "   |---Ella Batches\n" +
@@ -133,4 +177,383 @@ public class ReportingStructureServiceImplTest {
                         "   |---George Harrison\n",
                 readStructure.getTreeLikeDisplay());
     }
+
+    /**
+     * Tests that the maxDepth parameter cuts the structure off below the requested level.
+     */
+    @Test
+    public void test_read_maxDepth() {
+        ReportingStructure readStructure = restTemplate.getForEntity(reportingStructureEmployeeIdUrl + "?maxDepth=1",
+                ReportingStructure.class, "16a596ae-edd3-4847-99fe-c4518e82c86f").getBody();
+
+        assertNotNull(readStructure);
+        assertEquals(Integer.valueOf(1), readStructure.getMaxDepth());
+        assertEquals(2, readStructure.getNumberOfReports());
+        assertEquals("+John Lennon\n" +
+                        "|--Paul McCartney\n" +
+                        "|--Ringo Starr\n",
+                readStructure.getTreeLikeDisplay());
+    }
+
+    /**
+     * Tests that with a maxDepth, a report listed both right at the limit and higher up is taken in where they sit
+     * higher up, along with their own reports, however the structure is read. They're run into at the limit first, so
+     * they'd otherwise be skipped higher up as already seen, losing everyone under them.
+     */
+    @Test
+    public void test_read_maxDepth_sharedReport() {
+        Map<String, Employee> records = new HashMap<>();
+        records.put("boss", new EmployeeBuilder("Bea Boss").employeeId("boss").directReport(stub("alpha"))
+                .directReport(stub("shared")).build());
+        records.put("alpha", new EmployeeBuilder("Al Alpha").employeeId("alpha").directReport(stub("shared")).build());
+        records.put("shared", new EmployeeBuilder("Sam Shared").employeeId("shared").directReport(stub("grand"))
+                .build());
+        records.put("grand", new EmployeeBuilder("Gus Grand").employeeId("grand").build());
+        ReportingStructureServiceImpl service = newService(mockRepository(records));
+
+        String expected = "+Bea Boss\n" +
+                "|--Al Alpha\n" +
+                "|--Sam Shared\n" +
+                "   |---Gus Grand\n";
+        for(boolean hydrate : new boolean[] {true, false}) {
+            ReportingStructure readStructure = service.read("boss", 2, hydrate);
+            assertEquals(3, readStructure.getNumberOfReports());
+            assertEquals(expected, readStructure.getTreeLikeDisplay());
+        }
+
+        List<String> walked = new ArrayList<>();
+        service.walk("boss", 2).forEachRemaining(entry -> walked.add(entry.getEmployeeId() + "@" + entry.getDepth()));
+        assertEquals(List.of("boss@0", "alpha@1", "shared@1", "grand@2"), walked);
+    }
+
+    /**
+     * Tests the streamed variants of the reporting structure, as plain text and as NDJSON.
+     */
+    @Test
+    public void test_read_streamed() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.TEXT_PLAIN));
+
+        String text = restTemplate.exchange(reportingStructureEmployeeIdUrl, HttpMethod.GET, new HttpEntity<>(headers),
+                String.class, "16a596ae-edd3-4847-99fe-c4518e82c86f").getBody();
+
+        //Should come out exactly like the tree-like display of the regular read
+        assertEquals("+John Lennon\n" +
+                        "|--Paul McCartney\n" +
+                        "|--Ringo Starr\n" +
+                        "   |---Pete Best\n" +
+                        "   |---George Harrison\n",
+                text);
+
+        headers.setAccept(List.of(MediaType.parseMediaType(MediaTypes.APPLICATION_NDJSON_VALUE)));
+        String ndjson = restTemplate.exchange(reportingStructureEmployeeIdUrl + "?maxDepth=1", HttpMethod.GET,
+                new HttpEntity<>(headers), String.class, "16a596ae-edd3-4847-99fe-c4518e82c86f").getBody();
+
+        assertNotNull(ndjson);
+        String[] lines = ndjson.split("\n");
+        assertEquals(3, lines.length);
+        assertTrue(lines[0].contains("\"firstName\":\"John\""));
+        assertTrue(lines[0].contains("\"depth\":0"));
+        assertTrue(lines[2].contains("\"firstName\":\"Ringo\""));
+        assertTrue(lines[2].contains("\"managerId\":\"16a596ae-edd3-4847-99fe-c4518e82c86f\""));
+        assertTrue(lines[2].contains("\"depth\":1"));
+    }
+
+    /**
+     * Tests the lightweight report count, including that it keeps up with updates made through the employee service.
+     */
+    @Test
+    public void test_count() {
+        ReportCount readCount = restTemplate.getForEntity(reportCountUrl, ReportCount.class,
+                "16a596ae-edd3-4847-99fe-c4518e82c86f").getBody();
+
+        assertNotNull(readCount);
+        assertEquals(4, readCount.getNumberOfReports());
+
+        //A report shared by both direct reports must only be counted the once
+        Employee sharedRep = new EmployeeBuilder("Shaun Shared").build();
+        Employee directRep1 = new EmployeeBuilder("Dora Direct").directReport(sharedRep).build();
+        Employee directRep2 = new EmployeeBuilder("Dale Direct").directReport(sharedRep).build();
+        Employee employee = new EmployeeBuilder("Mona Manager")
+                .directReport(directRep1)
+                .directReport(directRep2)
+                .build();
+        employeeRepository.insert(List.of(sharedRep, directRep1, directRep2, employee));
+
+        readCount = restTemplate.getForEntity(reportCountUrl, ReportCount.class, employee.getEmployeeId()).getBody();
+        assertEquals(employee.getEmployeeId(), readCount.getEmployeeId());
+        assertEquals(3, readCount.getNumberOfReports());
+
+        //Now hire someone new under one of the direct reports
+        Employee newHire = employeeService.create(new EmployeeBuilder("Nina Newhire").build());
+        directRep2.addDirectReport(newHire);
+        employeeService.update(directRep2);
+
+        readCount = restTemplate.getForEntity(reportCountUrl, ReportCount.class, employee.getEmployeeId()).getBody();
+        assertEquals(4, readCount.getNumberOfReports());
+        readCount = restTemplate.getForEntity(reportCountUrl, ReportCount.class, directRep2.getEmployeeId()).getBody();
+        assertEquals(2, readCount.getNumberOfReports());
+    }
+
+    /**
+     * Tests that the reporting structure's ETag holds for as long as nobody in the structure changes, whatever changes
+     * outside of it, and that a matching If-None-Match is answered with a 304.
+     */
+    @Test
+    public void test_read_conditional() {
+        Employee deepRep = new EmployeeBuilder("Dee Deep").build();
+        Employee directRep = new EmployeeBuilder("Dan Direct").directReport(deepRep).build();
+        Employee employee = new EmployeeBuilder("Tess Tagged").directReport(directRep).build();
+        Employee outsider = new EmployeeBuilder("Otto Outside").build();
+        employeeRepository.insert(List.of(deepRep, directRep, employee, outsider));
+
+        ResponseEntity<ReportingStructure> read = conditionalRead(employee.getEmployeeId(), "", null);
+        assertEquals(HttpStatus.OK, read.getStatusCode());
+        assertEquals(2, read.getBody().getNumberOfReports());
+        String etag = read.getHeaders().getETag();
+        assertNotNull(etag);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, conditionalRead(employee.getEmployeeId(), "", etag).getStatusCode());
+
+        //Different reads of the same structure don't share an ETag
+        assertNotEquals(etag, conditionalRead(employee.getEmployeeId(), "?maxDepth=1", null).getHeaders().getETag());
+        assertNotEquals(etag, conditionalRead(employee.getEmployeeId(), "?hydrate=false", null).getHeaders().getETag());
+
+        //Changes outside the structure don't matter...
+        outsider.setPosition("Elsewhere");
+        employeeService.update(outsider);
+        assertEquals(HttpStatus.NOT_MODIFIED, conditionalRead(employee.getEmployeeId(), "", etag).getStatusCode());
+
+        //...but any change inside it, however deep, does
+        deepRep.setPosition("Deeper");
+        employeeService.update(deepRep);
+        read = conditionalRead(employee.getEmployeeId(), "", etag);
+        assertEquals(HttpStatus.OK, read.getStatusCode());
+        assertNotEquals(etag, read.getHeaders().getETag());
+
+        assertEquals(HttpStatus.NOT_MODIFIED,
+                conditionalRead(employee.getEmployeeId(), "", read.getHeaders().getETag()).getStatusCode());
+    }
+
+    private ResponseEntity<ReportingStructure> conditionalRead(String employeeId, String query, String etag) {
+        HttpHeaders headers = new HttpHeaders();
+        if(null != etag) {
+            headers.setIfNoneMatch(etag);
+        }
+        return restTemplate.exchange(reportingStructureEmployeeIdUrl + query, HttpMethod.GET,
+                new HttpEntity<>(headers), ReportingStructure.class, employeeId);
+    }
+
+    /**
+     * Tests that hydrating a big generated org costs one repository round trip per level of the org, rather than one
+     * per employee in it, and that once the org graph holds everyone, reads don't touch the repository at all.
+     */
+    @Test
+    public void test_read_batchedPerLevel() {
+        int depth = 6;
+        int width = 4;
+
+        //Stand up a fake repo over a generated org, so we can count exactly how often it gets hit
+        Map<String, Employee> records = new HashMap<>();
+        Employee root = generateOrg(records, depth, width);
+
+        EmployeeRepository countingRepository = mockRepository(records);
+        ReportingStructureServiceImpl service = newService(countingRepository);
+
+        ReportingStructure readStructure = service.read(root.getEmployeeId(), null, true);
+
+        //The empty graph reads the root through, then it's a single query per level below it
+        verify(countingRepository, never()).findByEmployeeId(anyString());
+        verify(countingRepository, times(depth + 1)).findByEmployeeIdIn(anyCollection());
+
+        //...and every last stub in the org should have been swapped out for its full record
+        assertNoStubs(readStructure.getEmployee());
+        assertEquals(records.size() - 1, readStructure.getNumberOfReports());
+
+        //Now that the graph holds the whole org, a second read is served entirely from memory
+        assertNoStubs(service.read(root.getEmployeeId(), null, true).getEmployee());
+        verify(countingRepository, times(depth + 1)).findByEmployeeIdIn(anyCollection());
+    }
+
+    /**
+     * Tests that the compact read works the structure out exactly as the default, hydrated, one does, without filling
+     * out anyone under the employee, and with the same one round trip per level to read the org through.
+     */
+    @Test
+    public void test_read_compact() {
+        int depth = 4;
+        int width = 3;
+
+        Map<String, Employee> records = new HashMap<>();
+        Employee root = generateOrg(records, depth, width);
+
+        EmployeeRepository countingRepository = mockRepository(records);
+        ReportingStructureServiceImpl service = newService(countingRepository);
+
+        ReportingStructure compact = service.read(root.getEmployeeId(), null, false);
+        verify(countingRepository, times(depth + 1)).findByEmployeeIdIn(anyCollection());
+
+        //Just the root is filled out
+        assertEquals(width, compact.getEmployee().getDirectReports().size());
+        assertTrue(compact.getEmployee().getDirectReports().get(0).isOnlyEmployeeIdSet());
+
+        ReportingStructure hydrated = service.read(root.getEmployeeId());
+        assertNoStubs(hydrated.getEmployee());
+        assertEquals(hydrated.getNumberOfReports(), compact.getNumberOfReports());
+        assertEquals(hydrated.getTreeLikeDisplay(), compact.getTreeLikeDisplay());
+
+        ReportingStructure shallow = service.read(root.getEmployeeId(), 2, false);
+        assertEquals(width + width * width, shallow.getNumberOfReports());
+        assertEquals(service.read(root.getEmployeeId(), 2, true).getTreeLikeDisplay(), shallow.getTreeLikeDisplay());
+    }
+
+    /**
+     * Tests that a report listed with no record anywhere only costs a round trip the once, rather than one per level
+     * of every compact read.
+     */
+    @Test
+    public void test_read_compact_danglingReport() {
+        int depth = 3;
+        int width = 2;
+
+        Map<String, Employee> records = new HashMap<>();
+        Employee root = generateOrg(records, depth, width);
+        root.addDirectReport(stub("long-gone"));
+
+        EmployeeRepository countingRepository = mockRepository(records);
+        ReportingStructureServiceImpl service = newService(countingRepository);
+
+        //The root, then a query per level, the dangling report going in with the first of them
+        ReportingStructure compact = service.read(root.getEmployeeId(), null, false);
+        assertEquals(records.size(), compact.getNumberOfReports());
+        verify(countingRepository, times(depth + 1)).findByEmployeeIdIn(anyCollection());
+
+        service.read(root.getEmployeeId(), null, false);
+        service.read(root.getEmployeeId(), 1, false);
+        verify(countingRepository, times(depth + 1)).findByEmployeeIdIn(anyCollection());
+    }
+
+    /**
+     * Tests that with an executor to fetch on, a level's missing reports are fetched in concurrent batches, never more
+     * at once than the cap, and come out the same as fetched one level at a time. A plain thread pool stands in for the
+     * virtual thread executor, so this runs on any JDK.
+     */
+    @Test
+    public void test_read_concurrentFetch() throws Exception {
+        int depth = 3;
+        int width = 6;
+        int concurrency = 2;
+
+        Map<String, Employee> records = new HashMap<>();
+        Employee root = generateOrg(records, depth, width);
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        EmployeeRepository slowRepository = mock(EmployeeRepository.class);
+        when(slowRepository.findByEmployeeIdIn(anyCollection())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+                return lookUp(records, invocation.getArgument(0));
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for(boolean hydrate : new boolean[] {false, true}) {
+                ReportingStructureServiceImpl service = newService(slowRepository);
+                ReflectionTestUtils.setField(service, "virtualThreadExecutor", new VirtualThreadExecutor(executor));
+                ReflectionTestUtils.setField(service, "fetchBatchSize", 5);
+                ReflectionTestUtils.setField(service, "fetchConcurrency", concurrency);
+
+                ReportingStructure reportingStructure = service.read(root.getEmployeeId(), null, hydrate);
+                assertEquals(width + width * width + width * width * width, reportingStructure.getNumberOfReports());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        //The bottom level alone is 216 reports, so 44 batches of 5, which should have overlapped
+        assertTrue(maxInFlight.get() > 1);
+        assertTrue(maxInFlight.get() <= concurrency);
+    }
+
+    /**
+     * Generates a full org <code>depth</code> levels deep under a root, where every manager has <code>width</code>
+     * direct reports. Records are stored just like the bootstrapped data, with direct reports as ID-only stubs.
+     *
+     * @return Employee -- the root of the generated org.
+     */
+    private static Employee generateOrg(Map<String, Employee> records, int depth, int width) {
+        Employee root = new EmployeeBuilder("Big Boss").build();
+        records.put(root.getEmployeeId(), root);
+
+        List<Employee> level = List.of(root);
+        for(int d = 0; d < depth; d++) {
+            List<Employee> nextLevel = new ArrayList<>();
+            for(Employee manager : level) {
+                for(int w = 0; w < width; w++) {
+                    Employee report = new EmployeeBuilder().build();
+                    records.put(report.getEmployeeId(), report);
+
+                    Employee stub = new Employee();
+                    stub.setEmployeeId(report.getEmployeeId());
+                    manager.addDirectReport(stub);
+
+                    nextLevel.add(report);
+                }
+            }
+            level = nextLevel;
+        }
+        return root;
+    }
+
+    /**
+     * @return EmployeeRepository -- a mock serving batch reads from the given records, so a test can count exactly how
+     * often the repo gets hit.
+     */
+    private static EmployeeRepository mockRepository(Map<String, Employee> records) {
+        EmployeeRepository repository = mock(EmployeeRepository.class);
+        when(repository.findByEmployeeIdIn(anyCollection()))
+                .thenAnswer(invocation -> lookUp(records, invocation.getArgument(0)));
+        return repository;
+    }
+
+    private static List<Employee> lookUp(Map<String, Employee> records, Collection<String> ids) {
+        List<Employee> found = new ArrayList<>();
+        for(String id : ids) {
+            if(records.containsKey(id)) {
+                found.add(records.get(id));
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return ReportingStructureServiceImpl -- a service of its own, over an empty org graph of its own, reading
+     * through from the given repo.
+     */
+    private static ReportingStructureServiceImpl newService(EmployeeRepository employeeRepository) {
+        OrgGraph orgGraph = new OrgGraph();
+        ReflectionTestUtils.setField(orgGraph, "employeeRepository", employeeRepository);
+
+        ReportingStructureServiceImpl service = new ReportingStructureServiceImpl();
+        ReflectionTestUtils.setField(service, "orgGraph", orgGraph);
+        return service;
+    }
+
+    private static Employee stub(String employeeId) {
+        Employee stub = new Employee();
+        stub.setEmployeeId(employeeId);
+        return stub;
+    }
+
+    private static void assertNoStubs(Employee employee) {
+        for(Employee directReport : employee.getDirectReports()) {
+            assertFalse(directReport.isOnlyEmployeeIdSet());
+            assertNoStubs(directReport);
+        }
+    }
 }
@@ -0,0 +1,61 @@
+package com.mindex.challenge.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class JsonRecordReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * Tests that records come out one at a time from either layout, and that there's nothing after the last.
+     */
+    @Test
+    public void test_next() throws IOException {
+        for(String input : new String[] {"[{\"n\":0},{\"n\":1}]", "{\"n\":0}\n{\"n\":1}\n"}) {
+            try(JsonRecordReader reader = reader(input)) {
+                assertEquals(0, reader.next().get("n").asInt());
+                assertEquals(0, reader.getIndex());
+                assertEquals(1, reader.next().get("n").asInt());
+                assertEquals(1, reader.getIndex());
+                assertNull(reader.next());
+                assertNull(reader.next());
+            }
+        }
+    }
+
+    /**
+     * Tests that a record followed by bad input is still handed out whole, and that the bad input is only reported
+     * when the record after it is asked for.
+     */
+    @Test
+    public void test_next_malformedAfterRecord() throws IOException {
+        try(JsonRecordReader reader = reader("[{\"n\":0},,{\"n\":2}]")) {
+            JsonNode record = reader.next();
+            assertEquals(0, record.get("n").asInt());
+            assertEquals(0, reader.getIndex());
+
+            try {
+                reader.next();
+                fail("Expected the missing record to be reported");
+            } catch(JsonProcessingException ex) {
+                //Blamed on the record after the last good one
+                assertEquals(0, reader.getIndex());
+            }
+        }
+    }
+
+    private JsonRecordReader reader(String input) throws IOException {
+        return new JsonRecordReader(objectMapper, new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+    }
+}